@@ -0,0 +1,444 @@
+package theater;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Seeded generator of synthetic plays and invoices for benchmarks, soak tests
+ * and capacity planning.
+ * <p>
+ * The output depends only on the settings and the seed. Invoice {@code i} is
+ * generated from its own random stream derived from {@code (seed, i)}, so any
+ * invoice can be regenerated on its own and invoices can be produced in
+ * parallel with identical results. Workloads are shaped by:
+ * </p>
+ * <ul>
+ *   <li>play popularity following a Zipf law with a configurable exponent,
+ *       so a few plays account for most performances;</li>
+ *   <li>a weighted mix of play types over the catalog;</li>
+ *   <li>a normal audience distribution per play type, clamped at zero;</li>
+ *   <li>invoice sizes drawn log-uniformly between a minimum and a maximum, so
+ *       most invoices are short but every order of magnitude occurs.</li>
+ * </ul>
+ * <p>
+ * Invoices can be returned as objects or written to JSON or to an
+ * {@link InvoiceArchiveWriter invoice archive}; the JSON writer emits lines
+ * as they are generated, so even a 10-million-line invoice is written with
+ * flat memory use.
+ * </p>
+ * <p>
+ * This class lives in {@code src/fixtures/java}, which is compiled into the
+ * tests and the benchmark jar but not into the application jar.
+ * </p>
+ */
+public final class InvoiceGenerator {
+
+    /** The built-in play types, in the order of their default weights and audiences. */
+    private static final String[] TYPES = {"tragedy", "comedy", "history", "pastoral"};
+    private static final double[] DEFAULT_TYPE_WEIGHTS = {4, 3, 2, 1};
+    private static final double[] DEFAULT_AUDIENCE_MEANS = {45, 35, 30, 25};
+    private static final double[] DEFAULT_AUDIENCE_DEVIATIONS = {15, 12, 10, 10};
+
+    private static final int DEFAULT_PLAYS = 100;
+    private static final int DEFAULT_CUSTOMERS = 1000;
+    private static final int DEFAULT_MIN_LINES = 1;
+    private static final int DEFAULT_MAX_LINES = 100;
+    private static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+
+    /** Golden-ratio increment used by SplittableRandom, to decorrelate per-invoice seeds. */
+    private static final long SEED_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+    private final int customers;
+    private final int minLines;
+    private final int maxLines;
+    private final Map<String, Play> plays;
+    private final String[] playIDs;
+    private final double[] popularity;
+    private final double[] audienceMeans;
+    private final double[] audienceDeviations;
+
+    private InvoiceGenerator(final Builder builder) {
+        this.seed = builder.seed;
+        this.customers = builder.customers;
+        this.minLines = builder.minLines;
+        this.maxLines = builder.maxLines;
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final double[] typeCdf = cumulative(builder.typeWeights);
+        this.plays = new LinkedHashMap<>();
+        this.playIDs = new String[builder.playCount];
+        this.audienceMeans = new double[builder.playCount];
+        this.audienceDeviations = new double[builder.playCount];
+        final double[] weights = new double[builder.playCount];
+        for (int rank = 0; rank < builder.playCount; rank++) {
+            final int type = search(typeCdf, random.nextDouble());
+            playIDs[rank] = String.format("play-%05d", rank);
+            plays.put(playIDs[rank], new Play(String.format("Play %d (%s)", rank + 1, TYPES[type]), TYPES[type]));
+            audienceMeans[rank] = builder.audienceMeans[type];
+            audienceDeviations[rank] = builder.audienceDeviations[type];
+            weights[rank] = 1 / Math.pow(rank + 1, builder.zipfExponent);
+        }
+        this.popularity = cumulative(weights);
+    }
+
+    /**
+     * Returns a builder with the default workload shape: 100 plays, 1000
+     * customers, 1 to 100 lines per invoice and Zipf exponent 1.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the generated plays.
+     *
+     * @return an unmodifiable mapping from play id to play, most popular first
+     */
+    public Map<String, Play> plays() {
+        return Collections.unmodifiableMap(plays);
+    }
+
+    /**
+     * Returns a catalog of the generated plays, priced by the default registry.
+     *
+     * @return the catalog
+     */
+    public PlayCatalog catalog() {
+        return PlayCatalog.of(plays);
+    }
+
+    /**
+     * Generates one invoice.
+     *
+     * @param index the invoice number, from 0
+     * @return the invoice; the same for the same settings, seed and index
+     */
+    public Invoice invoice(final long index) {
+        final SplittableRandom random = randomFor(index);
+        final String customer = customer(random);
+        final int lines = lineCount(random);
+        final List<Performance> performances = new ArrayList<>(lines);
+        for (int line = 0; line < lines; line++) {
+            final int play = nextPlay(random);
+            performances.add(new Performance(playIDs[play], nextAudience(random, play)));
+        }
+        return new Invoice(customer, performances);
+    }
+
+    /**
+     * Generates invoices {@code 0..count-1} lazily, in order. The stream can
+     * be made parallel without changing its contents.
+     *
+     * @param count the number of invoices
+     * @return the invoices
+     */
+    public Stream<Invoice> invoices(final long count) {
+        return LongStream.range(0, count).mapToObj(this::invoice);
+    }
+
+    /**
+     * Writes the plays in the format of {@code plays.json}.
+     *
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    public void writePlaysJson(final Appendable out) throws IOException {
+        out.append('{');
+        boolean first = true;
+        for (final Map.Entry<String, Play> entry : plays.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append("\n  \"").append(entry.getKey()).append("\": {\"name\": \"")
+                    .append(entry.getValue().getName()).append("\", \"type\": \"")
+                    .append(entry.getValue().getType()).append("\"}");
+        }
+        out.append("\n}\n");
+    }
+
+    /**
+     * Writes invoices {@code 0..count-1} as a JSON array in the format of
+     * {@code invoices.json}, generating each line as it is written.
+     *
+     * @param out   the output
+     * @param count the number of invoices
+     * @throws IOException if writing fails
+     */
+    public void writeInvoicesJson(final Appendable out, final long count) throws IOException {
+        out.append('[');
+        for (long index = 0; index < count; index++) {
+            if (index > 0) {
+                out.append(',');
+            }
+            final SplittableRandom random = randomFor(index);
+            out.append("\n{\"customer\": \"").append(customer(random)).append("\", \"performances\": [");
+            final int lines = lineCount(random);
+            for (int line = 0; line < lines; line++) {
+                if (line > 0) {
+                    out.append(',');
+                }
+                final int play = nextPlay(random);
+                out.append("\n  {\"playID\": \"").append(playIDs[play]).append("\", \"audience\": ")
+                        .append(Integer.toString(nextAudience(random, play))).append('}');
+            }
+            out.append("]}");
+        }
+        out.append("\n]\n");
+    }
+
+    /**
+     * Writes the plays and invoices to JSON files.
+     *
+     * @param playsFile    the file for the plays
+     * @param invoicesFile the file for the invoices
+     * @param count        the number of invoices
+     * @throws IOException if writing fails
+     */
+    public void writeJson(final Path playsFile, final Path invoicesFile, final long count) throws IOException {
+        try (Writer out = newWriter(playsFile)) {
+            writePlaysJson(out);
+        }
+        try (Writer out = newWriter(invoicesFile)) {
+            writeInvoicesJson(out, count);
+        }
+    }
+
+    /**
+     * Writes invoices {@code 0..count-1} to a binary invoice archive.
+     *
+     * @param archive the archive file
+     * @param count   the number of invoices
+     * @throws IOException if writing fails
+     */
+    public void writeArchive(final Path archive, final long count) throws IOException {
+        try (InvoiceArchiveWriter writer = new InvoiceArchiveWriter(archive)) {
+            for (long index = 0; index < count; index++) {
+                writer.append(invoice(index));
+            }
+        }
+    }
+
+    private static Writer newWriter(final Path file) throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    private SplittableRandom randomFor(final long index) {
+        return new SplittableRandom(seed + SEED_GAMMA * (index + 1));
+    }
+
+    private String customer(final SplittableRandom random) {
+        return "Customer " + random.nextInt(customers);
+    }
+
+    private int lineCount(final SplittableRandom random) {
+        if (minLines == maxLines) {
+            return minLines;
+        }
+        final double low = Math.log(minLines);
+        final double high = Math.log(maxLines + 1.0);
+        final int lines = (int) Math.exp(low + (high - low) * random.nextDouble());
+        return Math.max(minLines, Math.min(maxLines, lines));
+    }
+
+    private int nextPlay(final SplittableRandom random) {
+        return search(popularity, random.nextDouble());
+    }
+
+    private int nextAudience(final SplittableRandom random, final int play) {
+        // Box-Muller transform; 1 - nextDouble() is in (0, 1], so the log is finite
+        final double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+                * Math.cos(2 * Math.PI * random.nextDouble());
+        return Math.max(0, (int) Math.round(audienceMeans[play] + audienceDeviations[play] * gaussian));
+    }
+
+    private static double[] cumulative(final double[] weights) {
+        final double[] cdf = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int search(final double[] cdf, final double uniform) {
+        final int found = Arrays.binarySearch(cdf, uniform);
+        final int index;
+        if (found >= 0) {
+            index = found + 1;
+        }
+        else {
+            index = -found - 1;
+        }
+        return Math.min(index, cdf.length - 1);
+    }
+
+    /**
+     * Settings for an {@link InvoiceGenerator}.
+     */
+    public static final class Builder {
+        private long seed;
+        private int playCount = DEFAULT_PLAYS;
+        private int customers = DEFAULT_CUSTOMERS;
+        private int minLines = DEFAULT_MIN_LINES;
+        private int maxLines = DEFAULT_MAX_LINES;
+        private double zipfExponent = DEFAULT_ZIPF_EXPONENT;
+        private final double[] typeWeights = DEFAULT_TYPE_WEIGHTS.clone();
+        private final double[] audienceMeans = DEFAULT_AUDIENCE_MEANS.clone();
+        private final double[] audienceDeviations = DEFAULT_AUDIENCE_DEVIATIONS.clone();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the seed.
+         *
+         * @param value the seed
+         * @return this builder
+         */
+        public Builder seed(final long value) {
+            this.seed = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of plays in the catalog.
+         *
+         * @param count the number of plays, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if {@code count} is not positive
+         */
+        public Builder plays(final int count) {
+            if (count < 1) {
+                throw new IllegalArgumentException("plays must be positive: " + count);
+            }
+            this.playCount = count;
+            return this;
+        }
+
+        /**
+         * Sets the number of distinct customers.
+         *
+         * @param count the number of customers, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if {@code count} is not positive
+         */
+        public Builder customers(final int count) {
+            if (count < 1) {
+                throw new IllegalArgumentException("customers must be positive: " + count);
+            }
+            this.customers = count;
+            return this;
+        }
+
+        /**
+         * Sets the range of invoice sizes.
+         *
+         * @param min the fewest performances per invoice, at least 1
+         * @param max the most performances per invoice
+         * @return this builder
+         * @throws IllegalArgumentException if the range is empty or starts below 1
+         */
+        public Builder linesPerInvoice(final int min, final int max) {
+            if (min < 1 || max < min) {
+                throw new IllegalArgumentException(String.format("invalid line range: %d..%d", min, max));
+            }
+            this.minLines = min;
+            this.maxLines = max;
+            return this;
+        }
+
+        /**
+         * Sets how skewed play popularity is: the play of rank {@code r} is
+         * chosen with weight {@code 1 / r^exponent}; 0 makes all plays equally popular.
+         *
+         * @param exponent the Zipf exponent, not negative
+         * @return this builder
+         * @throws IllegalArgumentException if {@code exponent} is negative
+         */
+        public Builder zipfExponent(final double exponent) {
+            if (exponent < 0) {
+                throw new IllegalArgumentException("zipf exponent must not be negative: " + exponent);
+            }
+            this.zipfExponent = exponent;
+            return this;
+        }
+
+        /**
+         * Sets the relative share of a play type in the catalog.
+         *
+         * @param type   one of {@code tragedy}, {@code comedy}, {@code history}, {@code pastoral}
+         * @param weight the relative weight, not negative; 0 leaves the type out
+         * @return this builder
+         * @throws IllegalArgumentException if the type is unknown or the weight negative
+         */
+        public Builder typeWeight(final String type, final double weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("type weight must not be negative: " + weight);
+            }
+            typeWeights[typeIndex(type)] = weight;
+            return this;
+        }
+
+        /**
+         * Sets the audience distribution for a play type.
+         *
+         * @param type      one of {@code tragedy}, {@code comedy}, {@code history}, {@code pastoral}
+         * @param mean      the mean audience
+         * @param deviation the standard deviation, not negative
+         * @return this builder
+         * @throws IllegalArgumentException if the type is unknown or the deviation
+         *                                  negative or NaN
+         */
+        public Builder audience(final String type, final double mean, final double deviation) {
+            if (deviation < 0 || Double.isNaN(deviation)) {
+                throw new IllegalArgumentException("audience deviation must not be negative: " + deviation);
+            }
+            final int index = typeIndex(type);
+            audienceMeans[index] = mean;
+            audienceDeviations[index] = deviation;
+            return this;
+        }
+
+        /**
+         * Creates the generator.
+         *
+         * @return the generator
+         * @throws IllegalArgumentException if every type weight is 0
+         */
+        public InvoiceGenerator build() {
+            if (Arrays.stream(typeWeights).sum() <= 0) {
+                throw new IllegalArgumentException("at least one play type needs a positive weight");
+            }
+            return new InvoiceGenerator(this);
+        }
+
+        private static int typeIndex(final String type) {
+            for (int i = 0; i < TYPES.length; i++) {
+                if (TYPES[i].equals(type)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException(String.format("unknown type: %s", type));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package theater;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared invoices and play catalogs for the JMH benchmarks.
+ * <p>The small sample mirrors {@code invoices.json} / {@code plays.json} from the
+ * test resources; larger invoices repeat the same plays with varying audiences.</p>
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * Audience sizes cycle through 0..AUDIENCE_SPREAD-1 so that every branch of
+     * every calculator (below and above its threshold) is exercised.
+     */
+    private static final int AUDIENCE_SPREAD = 80;
+
+    private static final String[] SAMPLE_PLAY_IDS = {"hamlet", "as-like", "othello"};
+    private static final int[] SAMPLE_AUDIENCES = {55, 35, 40};
+
+    private BenchmarkFixtures() {
+
+    }
+
+    /**
+     * Returns the plays from {@code plays.json}.
+     *
+     * @return the mapping from play id to play
+     */
+    public static Map<String, Play> samplePlays() {
+        final Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play("Hamlet", "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        plays.put("othello", new Play("Othello", "tragedy"));
+        return plays;
+    }
+
+    /**
+     * Returns an invoice for BigCo with the given number of performances.
+     * With {@code size == 3} this is exactly the {@code invoices.json} sample.
+     *
+     * @param size the number of performances
+     * @return the invoice
+     */
+    public static Invoice sampleInvoice(final int size) {
+        final List<Performance> performances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final int slot = i % SAMPLE_PLAY_IDS.length;
+            final int audience;
+            if (i < SAMPLE_PLAY_IDS.length) {
+                audience = SAMPLE_AUDIENCES[slot];
+            }
+            else {
+                audience = i % AUDIENCE_SPREAD;
+            }
+            performances.add(new Performance(SAMPLE_PLAY_IDS[slot], audience));
+        }
+        return new Invoice("BigCo", performances);
+    }
+
+    /**
+     * Returns a one-play catalog whose single play has the given type.
+     *
+     * @param type the play type ("tragedy", "comedy", "history" or "pastoral")
+     * @return the mapping from play id to play
+     */
+    public static Map<String, Play> singleTypePlays(final String type) {
+        final Map<String, Play> plays = new HashMap<>();
+        plays.put(type, new Play(type, type));
+        return plays;
+    }
+
+    /**
+     * Returns an invoice whose performances all refer to the play built by
+     * {@link #singleTypePlays(String)}.
+     *
+     * @param type the play type
+     * @param size the number of performances
+     * @return the invoice
+     */
+    public static Invoice singleTypeInvoice(final String type, final int size) {
+        final List<Performance> performances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            performances.add(new Performance(type, i % AUDIENCE_SPREAD));
+        }
+        return new Invoice(type, performances);
+    }
+}
@@ -0,0 +1,94 @@
+package theater;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Prices a large array of what-if audience sizes with the hand-written
+ * calculators, the configured {@link PricingRule}s and {@link TabulatedPricing}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkPricingBenchmark {
+
+    private static final int MAX_AUDIENCE = 1000;
+
+    @Param({"tragedy", "comedy", "history", "pastoral"})
+    private String playType;
+
+    @Param({"1000000"})
+    private int quotes;
+
+    private PricingStrategy formula;
+    private PricingStrategy table;
+    private PricingStrategy rule;
+    private int[] audiences;
+    private int[] amounts;
+
+    /**
+     * Builds the audiences and both strategies for this trial.
+     */
+    @Setup
+    public void setUp() {
+        formula = PricingRegistry.withBuiltIns().lookup(playType);
+        table = new TabulatedPricing(formula, MAX_AUDIENCE);
+        rule = PricingRuleSet.loadDefault().getRule(playType);
+        audiences = new int[quotes];
+        for (int i = 0; i < quotes; i++) {
+            audiences[i] = (int) ((i * 2654435761L) % MAX_AUDIENCE);
+        }
+        amounts = new int[quotes];
+    }
+
+    /**
+     * One virtual call per audience through the formula.
+     *
+     * @return the priced amounts
+     */
+    @Benchmark
+    public int[] formulaPerQuote() {
+        for (int i = 0; i < audiences.length; i++) {
+            amounts[i] = formula.amountFor(audiences[i]);
+        }
+        return amounts;
+    }
+
+    /**
+     * One virtual call per audience through the configured {@link PricingRule}.
+     *
+     * @return the priced amounts
+     */
+    @Benchmark
+    public int[] rulePerQuote() {
+        for (int i = 0; i < audiences.length; i++) {
+            amounts[i] = rule.amountFor(audiences[i]);
+        }
+        return amounts;
+    }
+
+    /**
+     * One bulk call over the precomputed table.
+     *
+     * @return the priced amounts
+     */
+    @Benchmark
+    public int[] tableBulk() {
+        table.amountsFor(audiences, amounts);
+        return amounts;
+    }
+}
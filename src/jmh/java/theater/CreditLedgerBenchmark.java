@@ -0,0 +1,95 @@
+package theater;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Posting throughput of {@link CreditLedger} from several threads, with and
+ * without waiting for the posting to be durable. Waiting threads are what
+ * group commit batches together; run with {@code -t} to vary their number.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CreditLedgerBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+    private static final int MAX_CREDITS = 50;
+
+    private Path directory;
+    private CreditLedger ledger;
+    private String[] customers;
+
+    /**
+     * Opens an empty ledger in a temporary directory.
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("credit-ledger");
+        ledger = CreditLedger.open(directory);
+        customers = new String[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers[i] = "Customer " + i;
+        }
+    }
+
+    /**
+     * Prints the average group-commit size, closes the ledger and deletes its files.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        System.out.printf("%n%d postings in %d commits%n", ledger.committedPostingCount(), ledger.commitCount());
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Posts without waiting for the log write.
+     *
+     * @return the durability future
+     */
+    @Benchmark
+    public CompletableFuture<Void> post() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return ledger.post(customers[random.nextInt(CUSTOMERS)], random.nextInt(MAX_CREDITS));
+    }
+
+    /**
+     * Posts and waits until the posting is synced to disk.
+     */
+    @Benchmark
+    public void postDurably() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        ledger.post(customers[random.nextInt(CUSTOMERS)], random.nextInt(MAX_CREDITS)).join();
+    }
+}
@@ -0,0 +1,92 @@
+package theater;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parse throughput of {@link InvoiceJsonReader} against the org.json DOM
+ * approach used by the tests, on an invoice export held in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonIngestBenchmark {
+
+    @Param({"1000"})
+    private int invoices;
+
+    @Param({"100"})
+    private int performancesPerInvoice;
+
+    private byte[] json;
+
+    /**
+     * Renders a synthetic invoice export to JSON bytes.
+     *
+     * @throws IOException never, the output is in memory
+     */
+    @Setup
+    public void setUp() throws IOException {
+        final StringBuilder result = new StringBuilder();
+        InvoiceGenerator.builder()
+                .linesPerInvoice(performancesPerInvoice, performancesPerInvoice)
+                .build()
+                .writeInvoicesJson(result, invoices);
+        json = result.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams invoices one at a time.
+     *
+     * @param blackhole sink for the invoices
+     * @throws IOException never, the input is in memory
+     */
+    @Benchmark
+    public void streaming(final Blackhole blackhole) throws IOException {
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(new ByteArrayInputStream(json))) {
+            reader.forEachRemaining(blackhole::consume);
+        }
+    }
+
+    /**
+     * Parses the whole document into a tree, then converts it.
+     *
+     * @param blackhole sink for the invoices
+     */
+    @Benchmark
+    public void dom(final Blackhole blackhole) {
+        final JSONArray array = new JSONArray(new String(json, StandardCharsets.UTF_8));
+        for (final Object element : array) {
+            final JSONObject jinvoice = (JSONObject) element;
+            final List<Performance> performances = new ArrayList<>();
+            for (final Object p : jinvoice.getJSONArray("performances")) {
+                final JSONObject performance = (JSONObject) p;
+                performances.add(new Performance(performance.getString("playID"),
+                        performance.getInt("audience")));
+            }
+            blackhole.consume(new Invoice(jinvoice.getString("customer"), performances));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package theater;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of resolving each performance's play to its pricing rules from the
+ * play map on every line, as the play-map constructors do, against pricing
+ * through a {@link PlayCatalog}, on invoices that book a few popular plays
+ * over and over.
+ * <p>
+ * The gap measures the catalog as a whole: one hash lookup per line instead
+ * of two, with types resolved up front. It is not a measure of how the
+ * catalog stores its plays, since any catalog layout still costs that one
+ * lookup per line.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayBindingBenchmark {
+
+    @Param({"10", "1000"})
+    private int plays;
+
+    @Param({"10000"})
+    private int performances;
+
+    private Map<String, Play> playMap;
+    private PricingRegistry registry;
+    private PlayCatalog catalog;
+    private Invoice invoice;
+
+    /**
+     * Generates a Zipf-skewed invoice over the requested number of plays.
+     */
+    @Setup
+    public void setUp() {
+        final InvoiceGenerator generator = InvoiceGenerator.builder()
+                .plays(plays)
+                .linesPerInvoice(performances, performances)
+                .build();
+        playMap = generator.plays();
+        registry = PricingRegistry.getDefault();
+        catalog = generator.catalog();
+        invoice = generator.invoice(0);
+    }
+
+    /**
+     * Looks up the play, then the rules for its type, for every performance.
+     *
+     * @return the total amount
+     */
+    @Benchmark
+    public long resolvePerLine() {
+        long total = 0;
+        for (final Performance performance : invoice.getPerformances()) {
+            final Play play = playMap.get(performance.getPlayID());
+            total += registry.lookup(play.getType()).amountFor(performance.getAudience());
+        }
+        return total;
+    }
+
+    /**
+     * Looks up the play in the catalog and calls its pricing, for every performance.
+     *
+     * @return the total amount
+     */
+    @Benchmark
+    public long catalogPerLine() {
+        long total = 0;
+        for (final Performance performance : invoice.getPerformances()) {
+            total += catalog.lookup(performance.getPlayID()).amountFor(performance.getAudience());
+        }
+        return total;
+    }
+
+    /**
+     * Builds statement data from the play map.
+     *
+     * @return the statement data
+     */
+    @Benchmark
+    public StatementData statementDataFromMap() {
+        return new StatementData(invoice, playMap);
+    }
+
+    /**
+     * Builds statement data from the catalog.
+     *
+     * @return the statement data
+     */
+    @Benchmark
+    public StatementData statementDataFromCatalog() {
+        return new StatementData(invoice, catalog);
+    }
+}
@@ -0,0 +1,60 @@
+package theater;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Pricing cost per play type: each trial uses an invoice whose performances
+ * all go through the same {@link AbstractPerformanceCalculator} subclass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayTypeBenchmark {
+
+    @Param({"tragedy", "comedy", "history", "pastoral"})
+    private String playType;
+
+    @Param({"10000"})
+    private int performances;
+
+    private Map<String, Play> plays;
+    private Invoice invoice;
+
+    /**
+     * Builds the single-type invoice for this trial.
+     */
+    @Setup
+    public void setUp() {
+        plays = BenchmarkFixtures.singleTypePlays(playType);
+        invoice = BenchmarkFixtures.singleTypeInvoice(playType, performances);
+    }
+
+    /**
+     * Prices every performance and sums the totals.
+     *
+     * @param blackhole sink for the results
+     */
+    @Benchmark
+    public void priceAndTotal(final Blackhole blackhole) {
+        final StatementData data = new StatementData(invoice, plays);
+        blackhole.consume(data.totalAmount());
+        blackhole.consume(data.volumeCredits());
+    }
+}
@@ -0,0 +1,76 @@
+package theater;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling of {@link RevenueAggregator} with the number of worker threads,
+ * over 100,000 synthetic invoices of 1 to 1,000 performances each (about
+ * 14.5 million performances, skewed towards a few popular plays).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class RevenueAggregationBenchmark {
+
+    private static final int INVOICES = 100_000;
+    private static final int MAX_PERFORMANCES_PER_INVOICE = 1000;
+    private static final int CUSTOMERS = 5_000;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private List<Invoice> invoices;
+    private RevenueAggregator aggregator;
+    private ForkJoinPool pool;
+
+    /**
+     * Builds the invoices and a pool of the requested size.
+     */
+    @Setup
+    public void setUp() {
+        final InvoiceGenerator generator = InvoiceGenerator.builder()
+                .customers(CUSTOMERS)
+                .linesPerInvoice(1, MAX_PERFORMANCES_PER_INVOICE)
+                .build();
+        invoices = generator.invoices(INVOICES).collect(Collectors.toList());
+        aggregator = new RevenueAggregator(generator.catalog());
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Aggregates every invoice on a parallel stream inside the sized pool.
+     *
+     * @return the report
+     */
+    @Benchmark
+    public RevenueAggregator.RevenueReport aggregate() {
+        return pool.submit(() -> aggregator.aggregate(invoices.parallelStream())).join();
+    }
+}
@@ -0,0 +1,128 @@
+package theater;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * End-to-end cost of building and rendering a statement, from the
+ * 3-performance sample invoice up to one million performances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark {
+
+    @Param({"3", "1000", "100000", "1000000"})
+    private int performances;
+
+    private Map<String, Play> plays;
+    private Invoice invoice;
+    private ColumnarInvoice columnarInvoice;
+    private StatementData statementData;
+    private StatementPrinter textPrinter;
+    private StatementPrinter htmlPrinter;
+
+    /**
+     * Builds the invoice and pre-computed printers for this trial.
+     */
+    @Setup
+    public void setUp() {
+        plays = BenchmarkFixtures.samplePlays();
+        invoice = BenchmarkFixtures.sampleInvoice(performances);
+        columnarInvoice = ColumnarInvoice.from(invoice);
+        statementData = new StatementData(invoice, plays);
+        textPrinter = new StatementPrinter(invoice, plays);
+        htmlPrinter = new HTMLStatementPrinter(invoice, plays);
+    }
+
+    /**
+     * Constructs {@link StatementData}, which prices every performance.
+     *
+     * @return the statement data
+     */
+    @Benchmark
+    public StatementData buildStatementData() {
+        return new StatementData(invoice, plays);
+    }
+
+    /**
+     * Constructs {@link ColumnarStatementData} for the same invoice in columnar form.
+     *
+     * @return the statement data
+     */
+    @Benchmark
+    public ColumnarStatementData buildColumnarStatementData() {
+        return new ColumnarStatementData(columnarInvoice, plays);
+    }
+
+    /**
+     * Computes both totals on already-built statement data.
+     *
+     * @param blackhole sink for the results
+     */
+    @Benchmark
+    public void totals(final Blackhole blackhole) {
+        blackhole.consume(statementData.totalAmount());
+        blackhole.consume(statementData.volumeCredits());
+    }
+
+    /**
+     * Renders the plain-text statement.
+     *
+     * @return the statement
+     */
+    @Benchmark
+    public String plainTextStatement() {
+        return textPrinter.statement();
+    }
+
+    /**
+     * Renders the HTML statement.
+     *
+     * @return the statement
+     */
+    @Benchmark
+    public String htmlStatement() {
+        return htmlPrinter.statement();
+    }
+
+    /**
+     * Renders every format the way callers did before the fan-out: each
+     * printer builds its own statement data and traverses it.
+     *
+     * @param blackhole sink for the statements
+     */
+    @Benchmark
+    public void allFormatsSeparately(final Blackhole blackhole) {
+        for (final StatementFormat format : StatementFormat.values()) {
+            blackhole.consume(format.newPrinter(new StatementData(invoice, plays)).statement());
+        }
+    }
+
+    /**
+     * Renders every format from one statement data in a single traversal.
+     *
+     * @return the statements
+     */
+    @Benchmark
+    public Map<StatementFormat, String> allFormatsFanOut() {
+        return StatementFanOut.renderAll(new StatementData(invoice, plays), EnumSet.allOf(StatementFormat.class));
+    }
+}
@@ -0,0 +1,131 @@
+package theater;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local load test for {@link StatementServer}: keeps a fixed number of
+ * requests in flight against an in-process server and reports throughput and
+ * p50/p99 latency for each concurrency level.
+ * <pre>
+ * java -cp target/benchmarks.jar theater.StatementLoadTest [levels] [requests per level] [performances]
+ * java -cp target/benchmarks.jar theater.StatementLoadTest 1000,10000,50000 100000 10
+ * </pre>
+ * <p>
+ * Tens of thousands of concurrent requests need as many sockets: raise the
+ * open-file limit ({@code ulimit -n}) first. Results are only meaningful on
+ * Java 21+, where the server runs each request on a virtual thread.
+ * </p>
+ */
+public final class StatementLoadTest {
+
+    private static final String DEFAULT_LEVELS = "1000,10000,50000";
+    private static final int DEFAULT_REQUESTS = 100_000;
+    private static final int DEFAULT_PERFORMANCES = 10;
+    private static final int OK = 200;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private StatementLoadTest() {
+
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args concurrency levels (comma-separated), requests per level,
+     *             and performances per invoice; all optional
+     * @throws Exception if the server cannot start or the test is interrupted
+     */
+    public static void main(final String[] args) throws Exception {
+        final String levels = argument(args, 0, DEFAULT_LEVELS);
+        final int requests = Integer.parseInt(argument(args, 1, Integer.toString(DEFAULT_REQUESTS)));
+        final int performances = Integer.parseInt(argument(args, 2, Integer.toString(DEFAULT_PERFORMANCES)));
+
+        final PlayCatalog catalog = PlayCatalog.of(BenchmarkFixtures.samplePlays());
+        final String body = toJson(BenchmarkFixtures.sampleInvoice(performances));
+        final ExecutorService clientExecutor = BatchStatementRenderer.virtualThreadExecutor();
+        try (StatementServer server = new StatementServer(
+                catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            final HttpClient client = HttpClient.newBuilder().executor(clientExecutor).build();
+            final HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + server.getPort() + StatementServer.PATH + "?format=html"))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            System.out.printf("%d performances per invoice, %d requests per level%n", performances, requests);
+            System.out.printf("%12s %12s %10s %10s %8s%n", "concurrency", "req/s", "p50 ms", "p99 ms", "errors");
+            for (final String level : levels.split(",")) {
+                run(client, request, Integer.parseInt(level.trim()), requests);
+            }
+        }
+        finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static void run(final HttpClient client, final HttpRequest request, final int concurrency,
+                            final int requests) throws InterruptedException {
+        final Semaphore inFlight = new Semaphore(concurrency);
+        final CountDownLatch done = new CountDownLatch(requests);
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            final long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                if (failure != null || response.statusCode() != OK) {
+                    errors.increment();
+                }
+                else {
+                    latencies.record(System.nanoTime() - sent);
+                }
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await(1, TimeUnit.HOURS);
+        final long elapsed = System.nanoTime() - start;
+
+        final StatementMetrics.TimerSnapshot snapshot = latencies.snapshot("load");
+        System.out.printf("%12d %12.0f %10.2f %10.2f %8d%n", concurrency,
+                requests * NANOS_PER_SECOND / elapsed,
+                snapshot.getP50Nanos() / NANOS_PER_MILLI,
+                snapshot.getP99Nanos() / NANOS_PER_MILLI,
+                errors.sum());
+    }
+
+    private static String argument(final String[] args, final int index, final String fallback) {
+        if (args.length > index) {
+            return args[index];
+        }
+        return fallback;
+    }
+
+    private static String toJson(final Invoice invoice) {
+        final StringBuilder json = new StringBuilder("{\"customer\":\"").append(invoice.getCustomer())
+                .append("\",\"performances\":[");
+        final List<Performance> performances = invoice.getPerformances();
+        for (int i = 0; i < performances.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"playID\":\"").append(performances.get(i).getPlayID())
+                    .append("\",\"audience\":").append(performances.get(i).getAudience()).append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -3,6 +3,12 @@ package theater;
 /**
  * Base calculator responsible for computing the amount and volume credits
  * for a single performance and its play.
+ * <p>
+ * A calculator is bound to one performance. The pricing rules themselves are
+ * stateless {@link PricingStrategy} instances shared through a
+ * {@link PricingRegistry}; {@link #createPerformanceCalculator} binds the
+ * registered strategy for the play's type to a performance.
+ * </p>
  */
 public abstract class AbstractPerformanceCalculator {
 
@@ -38,6 +44,15 @@ public abstract class AbstractPerformanceCalculator {
         return play;
     }
 
+    /**
+     * Returns the type of the play being priced.
+     *
+     * @return the play type
+     */
+    public String getPlayType() {
+        return play.getType();
+    }
+
     /**
      * Calculates the amount (in cents) for this performance.
      *
@@ -60,8 +75,9 @@ public abstract class AbstractPerformanceCalculator {
     }
 
     /**
-     * Factory method that creates an appropriate calculator subclass
-     * based on the play's type.
+     * Factory method that creates a calculator for the given performance,
+     * using the rules registered for the play's type in the default
+     * {@link PricingRegistry}.
      *
      * @param performance the performance
      * @param play        the play
@@ -71,20 +87,36 @@ public abstract class AbstractPerformanceCalculator {
     public static AbstractPerformanceCalculator createPerformanceCalculator(
             final Performance performance,
             final Play play) {
+        final PricingStrategy pricing = PricingRegistry.getDefault().lookup(play.getType());
+        return new DelegatingCalculator(performance, play, pricing);
+    }
+
+    /**
+     * Binds a shared {@link PricingStrategy} to one performance.
+     */
+    private static final class DelegatingCalculator extends AbstractPerformanceCalculator {
 
-        switch (play.getType()) {
-            case "tragedy":
-                return new TragedyCalculator(performance, play);
-            case "comedy":
-                return new ComedyCalculator(performance, play);
-            case "history":
-                return new HistoryCalculator(performance, play);
-            case "pastoral":
-                return new PastoralCalculator(performance, play);
-            default:
-                throw new RuntimeException(
-                        String.format("unknown type: %s", play.getType()));
+        private final PricingStrategy pricing;
+
+        DelegatingCalculator(final Performance performance, final Play play,
+                             final PricingStrategy pricing) {
+            super(performance, play);
+            this.pricing = pricing;
+        }
+
+        @Override
+        public String getPlayType() {
+            return pricing.getPlayType();
+        }
+
+        @Override
+        public int getAmount() {
+            return pricing.amountFor(getPerformance().getAudience());
+        }
+
+        @Override
+        public int getVolumeCredits() {
+            return pricing.volumeCreditsFor(getPerformance().getAudience());
         }
     }
 }
-
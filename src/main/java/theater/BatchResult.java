@@ -0,0 +1,90 @@
+package theater;
+
+/**
+ * Outcome of rendering one invoice in a batch: either the statement or the
+ * exception that prevented it (for example an unknown play type).
+ */
+public final class BatchResult {
+
+    private final int index;
+    private final Invoice invoice;
+    private final String statement;
+    private final RuntimeException failure;
+
+    private BatchResult(final int index, final Invoice invoice, final String statement,
+                        final RuntimeException failure) {
+        this.index = index;
+        this.invoice = invoice;
+        this.statement = statement;
+        this.failure = failure;
+    }
+
+    /**
+     * Creates a successful result.
+     *
+     * @param index     the position of the invoice in the batch
+     * @param invoice   the invoice
+     * @param statement the rendered statement
+     * @return the result
+     */
+    public static BatchResult success(final int index, final Invoice invoice, final String statement) {
+        return new BatchResult(index, invoice, statement, null);
+    }
+
+    /**
+     * Creates a failed result.
+     *
+     * @param index   the position of the invoice in the batch
+     * @param invoice the invoice
+     * @param failure the reason rendering failed
+     * @return the result
+     */
+    public static BatchResult failure(final int index, final Invoice invoice, final RuntimeException failure) {
+        return new BatchResult(index, invoice, null, failure);
+    }
+
+    /**
+     * Returns the zero-based position of the invoice in the batch.
+     *
+     * @return the index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the invoice this result belongs to.
+     *
+     * @return the invoice
+     */
+    public Invoice getInvoice() {
+        return invoice;
+    }
+
+    /**
+     * Returns whether the statement was rendered.
+     *
+     * @return true on success
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Returns the rendered statement.
+     *
+     * @return the statement, or {@code null} if rendering failed
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * Returns the reason rendering failed.
+     *
+     * @return the failure, or {@code null} on success
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,147 @@
+package theater;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Renders statements for many invoices concurrently against a shared play map.
+ * <p>
+ * At most {@code maxInFlight} invoices are being rendered at any time, so a
+ * large or unbounded iterator of invoices does not pile up in memory. Results
+ * are delivered in the same order as the input, and an invoice that fails
+ * (for example because of an unknown play type) is reported as a failed
+ * {@link BatchResult} instead of aborting the batch.
+ * </p>
+ */
+public final class BatchStatementRenderer {
+
+    private final Map<String, Play> plays;
+    private final BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    /**
+     * Creates a batch renderer.
+     *
+     * @param plays          the mapping from play id to play, shared by all invoices
+     * @param printerFactory creates the printer for an invoice, e.g. {@code StatementPrinter::new}
+     *                       or {@code HTMLStatementPrinter::new}
+     * @param executor       runs the rendering tasks
+     * @param maxInFlight    the maximum number of invoices rendered at once
+     * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+     */
+    public BatchStatementRenderer(
+            final Map<String, Play> plays,
+            final BiFunction<Invoice, Map<String, Play>, ? extends StatementPrinter> printerFactory,
+            final Executor executor,
+            final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.plays = plays;
+        this.printerFactory = printerFactory;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Returns a fork-join pool with the given parallelism.
+     *
+     * @param parallelism the number of worker threads
+     * @return a new executor; the caller is responsible for shutting it down
+     */
+    public static ExecutorService forkJoinExecutor(final int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Returns whether the running JDK has virtual threads (Java 21+), so that
+     * {@link #virtualThreadExecutor()} starts one per task.
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch (NoSuchMethodException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per task when the
+     * running JDK supports them (Java 21+), or a cached thread pool otherwise.
+     *
+     * @return a new executor; the caller is responsible for shutting it down
+     */
+    public static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        }
+        catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException exception) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Renders every invoice and returns the results in input order.
+     *
+     * @param invoices the invoices to render
+     * @return one result per invoice
+     */
+    public List<BatchResult> renderAll(final Iterable<Invoice> invoices) {
+        final List<BatchResult> results = new ArrayList<>();
+        render(invoices.iterator(), results::add);
+        return results;
+    }
+
+    /**
+     * Renders invoices as they are pulled from the iterator and passes each
+     * result to the consumer, in input order, on the calling thread.
+     *
+     * @param invoices the invoices to render
+     * @param consumer receives the results
+     */
+    public void render(final Iterator<Invoice> invoices, final Consumer<BatchResult> consumer) {
+        final Deque<CompletableFuture<BatchResult>> inFlight = new ArrayDeque<>(maxInFlight);
+        int index = 0;
+        while (invoices.hasNext()) {
+            if (inFlight.size() == maxInFlight) {
+                consumer.accept(inFlight.removeFirst().join());
+            }
+            final int position = index;
+            final Invoice invoice = invoices.next();
+            inFlight.addLast(CompletableFuture.supplyAsync(() -> renderOne(position, invoice), executor));
+            index++;
+        }
+        while (!inFlight.isEmpty()) {
+            consumer.accept(inFlight.removeFirst().join());
+        }
+    }
+
+    private BatchResult renderOne(final int index, final Invoice invoice) {
+        try {
+            final String statement = printerFactory.apply(invoice, plays).statement();
+            return BatchResult.success(index, invoice, statement);
+        }
+        catch (RuntimeException exception) {
+            return BatchResult.failure(index, invoice, exception);
+        }
+    }
+}
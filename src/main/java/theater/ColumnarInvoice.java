@@ -0,0 +1,287 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays form of an {@link Invoice} for very large invoices.
+ * <p>
+ * Instead of one {@link Performance} object per line, each line is stored as
+ * two ints: an index into a table of play IDs and the audience size. Play IDs
+ * are interned once, however many lines refer to them.
+ * </p>
+ * <p>
+ * An invoice built against a {@link PlayCatalog} uses the catalog's handles as
+ * its play indexes, so pricing it against that catalog needs no play-ID lookups.
+ * Otherwise the invoice keeps its own table of the distinct play IDs it uses.
+ * </p>
+ */
+public final class ColumnarInvoice {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String customer;
+    private final PlayCatalog catalog;
+    /** The invoice's own play table, or {@code null} when bound to a catalog. */
+    private final String[] playIDs;
+    private final int[] playIndexes;
+    private final int[] audiences;
+
+    private ColumnarInvoice(final String customer, final PlayCatalog catalog, final String[] playIDs,
+                            final int[] playIndexes, final int[] audiences) {
+        this.customer = customer;
+        this.catalog = catalog;
+        this.playIDs = playIDs;
+        this.playIndexes = playIndexes;
+        this.audiences = audiences;
+    }
+
+    /**
+     * Converts an object-based invoice to columnar form.
+     *
+     * @param invoice the invoice to convert
+     * @return the columnar invoice
+     */
+    public static ColumnarInvoice from(final Invoice invoice) {
+        return from(invoice, null);
+    }
+
+    /**
+     * Converts an object-based invoice to columnar form, referencing plays by
+     * their handles in the given catalog.
+     *
+     * @param invoice the invoice to convert
+     * @param catalog the catalog to bind to
+     * @return the columnar invoice
+     * @throws RuntimeException if the invoice refers to a play missing from the catalog
+     */
+    public static ColumnarInvoice from(final Invoice invoice, final PlayCatalog catalog) {
+        final List<Performance> performances = invoice.getPerformances();
+        final Builder builder = new Builder(invoice.getCustomer(), catalog, performances.size());
+        for (final Performance performance : performances) {
+            builder.add(performance.getPlayID(), performance.getAudience());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Starts building a columnar invoice line by line, without creating
+     * {@link Performance} objects.
+     *
+     * @param customer the customer name
+     * @return a new builder
+     */
+    public static Builder builder(final String customer) {
+        return new Builder(customer, null, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Starts building a columnar invoice whose lines reference plays by their
+     * handles in the given catalog.
+     *
+     * @param customer the customer name
+     * @param catalog  the catalog to bind to
+     * @return a new builder
+     */
+    public static Builder builder(final String customer, final PlayCatalog catalog) {
+        return new Builder(customer, catalog, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the customer name.
+     *
+     * @return the customer name
+     */
+    public String getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Returns the catalog whose handles this invoice uses as play indexes.
+     *
+     * @return the catalog, or {@code null} if the invoice has its own play table
+     */
+    public PlayCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the number of lines.
+     *
+     * @return the number of performances
+     */
+    public int size() {
+        return audiences.length;
+    }
+
+    /**
+     * Returns the size of the play table: the number of distinct plays used by
+     * this invoice, or the catalog size if the invoice is bound to a catalog.
+     *
+     * @return the number of play IDs
+     */
+    public int getPlayCount() {
+        if (catalog != null) {
+            return catalog.size();
+        }
+        return playIDs.length;
+    }
+
+    /**
+     * Returns a distinct play ID.
+     *
+     * @param playIndex the index into the play table
+     * @return the play ID
+     */
+    public String getPlayID(final int playIndex) {
+        if (catalog != null) {
+            return catalog.getPlayID(playIndex);
+        }
+        return playIDs[playIndex];
+    }
+
+    /**
+     * Returns the play table index of a line.
+     *
+     * @param line the zero-based line index
+     * @return the index into the play table
+     */
+    public int getPlayIndex(final int line) {
+        return playIndexes[line];
+    }
+
+    /**
+     * Returns the audience size of a line.
+     *
+     * @param line the zero-based line index
+     * @return the audience size
+     */
+    public int getAudience(final int line) {
+        return audiences[line];
+    }
+
+    /**
+     * Converts back to an object-based invoice.
+     *
+     * @return the equivalent invoice
+     */
+    public Invoice toInvoice() {
+        final Performance[] performances = new Performance[audiences.length];
+        for (int line = 0; line < audiences.length; line++) {
+            performances[line] = new Performance(getPlayID(playIndexes[line]), audiences[line]);
+        }
+        return new Invoice(customer, Arrays.asList(performances));
+    }
+
+    int[] playIndexes() {
+        return playIndexes;
+    }
+
+    int[] audiences() {
+        return audiences;
+    }
+
+    /**
+     * Accumulates lines into growable primitive arrays.
+     */
+    public static final class Builder {
+
+        private final String customer;
+        private final PlayCatalog catalog;
+        private final Map<String, Integer> playIndexByID = new HashMap<>();
+        private String[] playIDs = new String[INITIAL_CAPACITY];
+        private int[] playIndexes;
+        private int[] audiences;
+        private int size;
+
+        private Builder(final String customer, final PlayCatalog catalog, final int capacity) {
+            this.customer = customer;
+            this.catalog = catalog;
+            this.playIndexes = new int[Math.max(capacity, 1)];
+            this.audiences = new int[Math.max(capacity, 1)];
+        }
+
+        /**
+         * Appends a line.
+         *
+         * @param playID   the ID of the play performed
+         * @param audience the audience size
+         * @return this builder
+         */
+        public Builder add(final String playID, final int audience) {
+            return addLine(intern(playID), audience);
+        }
+
+        /**
+         * Appends a line that references a play by its catalog handle,
+         * without any play-ID lookup.
+         *
+         * @param handle   the play's handle in the builder's catalog
+         * @param audience the audience size
+         * @return this builder
+         * @throws IllegalStateException if the builder is not bound to a catalog
+         * @throws IndexOutOfBoundsException if the handle is not in the catalog
+         */
+        public Builder add(final int handle, final int audience) {
+            if (catalog == null) {
+                throw new IllegalStateException("invoice is not bound to a play catalog");
+            }
+            if (handle < 0 || handle >= catalog.size()) {
+                throw new IndexOutOfBoundsException("unknown play handle: " + handle);
+            }
+            return addLine(handle, audience);
+        }
+
+        private Builder addLine(final int playIndex, final int audience) {
+            if (size == audiences.length) {
+                playIndexes = Arrays.copyOf(playIndexes, size * 2);
+                audiences = Arrays.copyOf(audiences, size * 2);
+            }
+            playIndexes[size] = playIndex;
+            audiences[size] = audience;
+            size++;
+            return this;
+        }
+
+        private int intern(final String playID) {
+            if (catalog != null) {
+                return catalog.handleOf(playID);
+            }
+            final Integer existing = playIndexByID.get(playID);
+            if (existing != null) {
+                return existing;
+            }
+            final int index = playIndexByID.size();
+            if (index == playIDs.length) {
+                playIDs = Arrays.copyOf(playIDs, index * 2);
+            }
+            playIDs[index] = playID;
+            playIndexByID.put(playID, index);
+            return index;
+        }
+
+        /**
+         * Returns the finished invoice.
+         *
+         * @return the columnar invoice
+         */
+        public ColumnarInvoice build() {
+            String[] table = null;
+            if (catalog == null) {
+                table = Arrays.copyOf(playIDs, playIndexByID.size());
+            }
+            return new ColumnarInvoice(customer, catalog, table,
+                    trim(playIndexes),
+                    trim(audiences));
+        }
+
+        private int[] trim(final int[] column) {
+            if (column.length == size) {
+                return column;
+            }
+            return Arrays.copyOf(column, size);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package theater;
+
+import java.util.Map;
+
+/**
+ * Priced statement data for a {@link ColumnarInvoice}, stored as primitive columns.
+ * <p>
+ * Plays and pricing strategies are resolved once per play-table entry, then every
+ * line is priced in a single loop over the invoice's arrays. Per line this
+ * holds two computed ints on top of the invoice's own two, with no objects,
+ * and renders byte-identically to {@link StatementData}.
+ * </p>
+ */
+public final class ColumnarStatementData implements StatementSource {
+
+    private final String customer;
+    private final PlayCatalog.PricedPlay[] plays;
+    private final int[] playIndexes;
+    private final int[] audiences;
+    private final int[] amounts;
+    private final int[] credits;
+    private final int totalAmount;
+    private final int volumeCredits;
+
+    /**
+     * Prices the invoice with the default {@link PricingRegistry}.
+     *
+     * @param invoice the invoice to price
+     * @param plays   the mapping from play id to play
+     */
+    public ColumnarStatementData(final ColumnarInvoice invoice, final Map<String, Play> plays) {
+        this(invoice, plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Prices the invoice.
+     *
+     * @param invoice  the invoice to price
+     * @param plays    the mapping from play id to play
+     * @param registry the pricing rules to use, keyed by play type
+     */
+    public ColumnarStatementData(final ColumnarInvoice invoice, final Map<String, Play> plays,
+                                 final PricingRegistry registry) {
+        this(invoice, bind(invoice, plays, registry));
+    }
+
+    /**
+     * Prices the invoice against a catalog. If the invoice was built against
+     * the same catalog, its play indexes are used as handles directly.
+     *
+     * @param invoice the invoice to price
+     * @param catalog the plays and their pricing rules
+     * @throws RuntimeException if the invoice refers to a play missing from the catalog
+     */
+    public ColumnarStatementData(final ColumnarInvoice invoice, final PlayCatalog catalog) {
+        this(invoice, bind(invoice, catalog));
+    }
+
+    private ColumnarStatementData(final ColumnarInvoice invoice, final PlayCatalog.PricedPlay[] plays) {
+        this.customer = invoice.getCustomer();
+        this.plays = plays;
+        this.playIndexes = invoice.playIndexes();
+        this.audiences = invoice.audiences();
+        final int size = audiences.length;
+        this.amounts = new int[size];
+        this.credits = new int[size];
+        int amountSum = 0;
+        int creditSum = 0;
+        for (int line = 0; line < size; line++) {
+            final PricingStrategy strategy = plays[playIndexes[line]].getPricing();
+            final int audience = audiences[line];
+            final int amount = strategy.amountFor(audience);
+            final int credit = strategy.volumeCreditsFor(audience);
+            amounts[line] = amount;
+            credits[line] = credit;
+            amountSum += amount;
+            creditSum += credit;
+        }
+        this.totalAmount = amountSum;
+        this.volumeCredits = creditSum;
+    }
+
+    private static PlayCatalog.PricedPlay[] bind(final ColumnarInvoice invoice, final Map<String, Play> plays,
+                                                 final PricingRegistry registry) {
+        final PlayCatalog.PricedPlay[] result = new PlayCatalog.PricedPlay[invoice.getPlayCount()];
+        for (int playIndex = 0; playIndex < result.length; playIndex++) {
+            final String playID = invoice.getPlayID(playIndex);
+            final Play play = plays.get(playID);
+            result[playIndex] = new PlayCatalog.PricedPlay(playIndex, playID, play, registry.lookup(play.getType()));
+        }
+        return result;
+    }
+
+    private static PlayCatalog.PricedPlay[] bind(final ColumnarInvoice invoice, final PlayCatalog catalog) {
+        if (invoice.getCatalog() == catalog) {
+            return catalog.pricedPlays();
+        }
+        final PlayCatalog.PricedPlay[] result = new PlayCatalog.PricedPlay[invoice.getPlayCount()];
+        for (int playIndex = 0; playIndex < result.length; playIndex++) {
+            result[playIndex] = catalog.lookup(invoice.getPlayID(playIndex));
+        }
+        return result;
+    }
+
+    @Override
+    public String getCustomer() {
+        return customer;
+    }
+
+    @Override
+    public int size() {
+        return amounts.length;
+    }
+
+    @Override
+    public String getName(final int line) {
+        return plays[playIndexes[line]].getName();
+    }
+
+    @Override
+    public int getAudience(final int line) {
+        return audiences[line];
+    }
+
+    @Override
+    public int getAmount(final int line) {
+        return amounts[line];
+    }
+
+    @Override
+    public int getVolumeCredits(final int line) {
+        return credits[line];
+    }
+
+    @Override
+    public int totalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public int volumeCredits() {
+        return volumeCredits;
+    }
+}
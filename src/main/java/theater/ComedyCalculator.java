@@ -1,35 +1,37 @@
 package theater;
 
 /**
- * Calculator implementation for 'comedy' plays.
+ * Stateless pricing rules for 'comedy' plays.
  */
-public class ComedyCalculator extends AbstractPerformanceCalculator {
+public final class ComedyCalculator implements PricingStrategy {
 
-    public ComedyCalculator(final Performance performance, final Play play) {
-        super(performance, play);
+    @Override
+    public String getPlayType() {
+        return "comedy";
     }
 
     /**
      * 4.3: 实现喜剧的 getAmount 逻辑.
      */
     @Override
-    public int getAmount() {
+    public int amountFor(final int audience) {
         int result = Constants.COMEDY_BASE_AMOUNT;
-        if (getPerformance().getAudience() > Constants.COMEDY_AUDIENCE_THRESHOLD) {
+        if (audience > Constants.COMEDY_AUDIENCE_THRESHOLD) {
             result += Constants.COMEDY_OVER_BASE_CAPACITY_AMOUNT
                     + Constants.COMEDY_OVER_BASE_CAPACITY_PER_PERSON
-                    * (getPerformance().getAudience() - Constants.COMEDY_AUDIENCE_THRESHOLD);
+                    * (audience - Constants.COMEDY_AUDIENCE_THRESHOLD);
         }
-        result += Constants.COMEDY_AMOUNT_PER_AUDIENCE * getPerformance().getAudience();
+        result += Constants.COMEDY_AMOUNT_PER_AUDIENCE * audience;
         return result;
     }
 
     /**
-     * 4.3: 重写 getVolumeCredits 以添加额外的喜剧积分.
+     * 4.3: 重写 volumeCreditsFor 以添加额外的喜剧积分.
      */
     @Override
-    public int getVolumeCredits() {
-        // 调用父类的基础积分，然后加上额外积分
-        return super.getVolumeCredits() + getPerformance().getAudience() / Constants.COMEDY_EXTRA_VOLUME_FACTOR;
+    public int volumeCreditsFor(final int audience) {
+        // 基础积分加上额外积分
+        return Math.max(audience - Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0)
+                + audience / Constants.COMEDY_EXTRA_VOLUME_FACTOR;
     }
 }
@@ -20,6 +20,11 @@ public final class Constants {
     public static final int TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON = 1000;
     // formatting constants
     public static final int PERCENT_FACTOR = 100;
+    // rendering constants
+    public static final int STREAM_BUFFER_SIZE = 8192;
+    // hashing constants (64-bit FNV-1a)
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    public static final long FNV_PRIME = 0x100000001b3L;
     // history constants
     public static final int HISTORY_BASE_AMOUNT = 20000;
     public static final int HISTORY_OVER_BASE_CAPACITY_PER_PERSON = 1000;
@@ -0,0 +1,651 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Running volume-credit balance of every customer, kept across invoices and
+ * across restarts.
+ * <p>
+ * Postings update a per-customer {@link LongAdder}, so the balances
+ * themselves take no lock and a new balance is visible immediately. Each
+ * posting is also handed to a single committer thread through a
+ * {@link LinkedBlockingQueue}, whose put lock every posting thread takes for
+ * the moment of the hand-off. The committer appends the postings to a log on
+ * disk, taking every posting that queued up while the previous write was in
+ * flight and writing and syncing them together (group commit): one
+ * {@code fsync} covers a whole batch, so throughput grows with the number of
+ * posting threads instead of being capped by the disk's sync rate. The future
+ * returned by {@link #post(String, long)} completes once the posting is
+ * durable.
+ * </p>
+ * <p>
+ * The log is split into numbered segments. {@link #checkpoint()} seals the
+ * current segment, folds the sealed segments into a snapshot of all balances
+ * and deletes them, so on {@link #open(Path) open} only the snapshot and the
+ * segments written since have to be read. Records carry a CRC, and a record
+ * torn by a crash at the end of the newest segment is dropped.
+ * </p>
+ * <p>
+ * If writing the log fails, or the committer thread fails in any other way,
+ * the pending postings fail with an {@link IOException} and the ledger
+ * rejects further postings. The balances
+ * in memory may then include postings that never reached the disk; reopen the
+ * ledger to return to the durable state.
+ * </p>
+ */
+public final class CreditLedger implements Closeable {
+
+    private static final String SNAPSHOT_FILE = "credits.snapshot";
+    private static final String SNAPSHOT_TEMP_FILE = "credits.snapshot.tmp";
+    private static final String SEGMENT_FORMAT = "credits-%08d.log";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("credits-(\\d{8})\\.log");
+
+    private static final int SNAPSHOT_MAGIC = 0x43524453;
+    /** Snapshot without customers: magic, first segment, customer count and CRC. */
+    private static final int SNAPSHOT_OVERHEAD_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    /** Record header: payload length and CRC of the payload. */
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_CUSTOMER_BYTES = 1 << 16;
+    private static final int MAX_BATCH = 4096;
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    /** Segments are rolled over at this size, so none has to be read whole into a huge buffer. */
+    private static final long MAX_SEGMENT_BYTES = 64L << 20;
+
+    /** Tells the committer to seal the current segment; see {@link #checkpoint()}. */
+    private static final String ROTATE = "rotate";
+    /** Tells the committer to finish; see {@link #close()}. */
+    private static final String STOP = "stop";
+
+    private final Path directory;
+    private final ConcurrentMap<String, LongAdder> balances = new ConcurrentHashMap<>();
+    private final BlockingQueue<Posting> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread committer;
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder committedPostings = new LongAdder();
+    /**
+     * Shared by posting threads between their closed check and their put, and
+     * taken exclusively by {@link #close()} to set the flag, so that no posting
+     * can be queued behind the stop marker.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private FileChannel segment;
+    private long segmentNumber;
+    private long segmentBytes;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private CreditLedger(final Path directory, final long segmentNumber) throws IOException {
+        this.directory = directory;
+        this.segmentNumber = segmentNumber;
+        this.segment = openSegment(segmentNumber);
+        this.committer = new Thread(this::commitLoop, "credit-ledger-committer");
+        committer.setDaemon(true);
+    }
+
+    /**
+     * Opens the ledger kept in a directory, creating it if necessary, and
+     * rebuilds the balances from the snapshot and the log segments after it.
+     *
+     * @param directory the directory holding the snapshot and the log
+     * @return the ledger, ready for postings
+     * @throws IOException if the directory cannot be read or a file is corrupt
+     */
+    public static CreditLedger open(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_TEMP_FILE));
+        final Map<String, Long> recovered = new HashMap<>();
+        final long firstSegment = readSnapshot(directory, recovered);
+
+        final TreeMap<Long, Path> segments = listSegments(directory);
+        long next = firstSegment;
+        for (final Map.Entry<Long, Path> entry : segments.entrySet()) {
+            if (entry.getKey() < firstSegment) {
+                // already folded into the snapshot by a checkpoint that crashed before deleting it
+                Files.delete(entry.getValue());
+            }
+            else {
+                replaySegment(entry.getValue(), entry.getKey().equals(segments.lastKey()), recovered);
+                next = entry.getKey() + 1;
+            }
+        }
+
+        final CreditLedger ledger = new CreditLedger(directory, next);
+        for (final Map.Entry<String, Long> entry : recovered.entrySet()) {
+            ledger.accumulator(entry.getKey()).add(entry.getValue());
+        }
+        ledger.committer.start();
+        return ledger;
+    }
+
+    /**
+     * Adds credits to a customer's balance. The balance reflects the posting
+     * as soon as this method returns; the log write happens asynchronously.
+     * Blocks while too many postings are waiting to be written.
+     *
+     * @param customer the customer name
+     * @param credits  the credits to add; negative to redeem credits
+     * @return a future completed once the posting is durable, or completed
+     *         exceptionally if writing it failed
+     * @throws IllegalStateException if the ledger is closed or failed
+     * @throws IllegalArgumentException if the customer name is longer than 65536 bytes in UTF-8
+     */
+    public CompletableFuture<Void> post(final String customer, final long credits) {
+        final byte[] name = customer.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_CUSTOMER_BYTES) {
+            throw new IllegalArgumentException("customer name too long: " + name.length + " bytes");
+        }
+        final Posting posting = new Posting(null, name, credits);
+        enqueue(posting);
+        accumulator(customer).add(credits);
+        return posting.durable;
+    }
+
+    /**
+     * Adds the volume credits of a statement to its customer's balance.
+     *
+     * @param statement the priced statement
+     * @return a future completed once the posting is durable
+     * @throws IllegalStateException if the ledger is closed or failed
+     */
+    public CompletableFuture<Void> post(final StatementSource statement) {
+        return post(statement.getCustomer(), statement.volumeCredits());
+    }
+
+    /**
+     * Returns a customer's balance.
+     *
+     * @param customer the customer name
+     * @return the balance; 0 for customers without postings
+     */
+    public long balance(final String customer) {
+        final LongAdder balance = balances.get(customer);
+        if (balance == null) {
+            return 0;
+        }
+        return balance.sum();
+    }
+
+    /**
+     * Returns every customer's balance. Postings made concurrently may or may
+     * not be included.
+     *
+     * @return an unmodifiable copy, sorted by customer
+     */
+    public Map<String, Long> balances() {
+        final Map<String, Long> result = new TreeMap<>();
+        balances.forEach((customer, balance) -> result.put(customer, balance.sum()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns the number of log writes so far; together with
+     * {@link #committedPostingCount()} this gives the average group-commit size.
+     *
+     * @return the number of synced batches
+     */
+    public long commitCount() {
+        return commits.sum();
+    }
+
+    /**
+     * Returns the number of postings written to the log so far.
+     *
+     * @return the number of durable postings
+     */
+    public long committedPostingCount() {
+        return committedPostings.sum();
+    }
+
+    /**
+     * Seals the current log segment and folds every sealed segment into a new
+     * snapshot, then deletes them. Postings continue meanwhile, into the next
+     * segment.
+     *
+     * @throws IOException if the log or the snapshot cannot be written
+     * @throws IllegalStateException if the ledger is closed or failed
+     */
+    public synchronized void checkpoint() throws IOException {
+        final Posting rotate = new Posting(ROTATE, null, 0);
+        enqueue(rotate);
+        awaitDurable(rotate.durable);
+
+        final Map<String, Long> folded = new HashMap<>();
+        final long firstSegment = readSnapshot(directory, folded);
+        final List<Path> sealed = new ArrayList<>();
+        for (final Map.Entry<Long, Path> entry : listSegments(directory).headMap(rotate.sealedBefore).entrySet()) {
+            // segments before the snapshot's first one are already in it: a previous
+            // checkpoint wrote the snapshot but failed to delete them
+            if (entry.getKey() >= firstSegment) {
+                replaySegment(entry.getValue(), false, folded);
+            }
+            sealed.add(entry.getValue());
+        }
+        writeSnapshot(directory, folded, rotate.sealedBefore);
+        for (final Path path : sealed) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Writes the postings still queued, syncs the log and releases the file.
+     *
+     * @throws IOException if the final write fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closeLock.writeLock().lock();
+            try {
+                closed = true;
+            }
+            finally {
+                closeLock.writeLock().unlock();
+            }
+            put(new Posting(STOP, null, 0));
+            try {
+                committer.join();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void enqueue(final Posting posting) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("ledger is closed");
+            }
+            if (failure != null) {
+                throw new IllegalStateException("ledger failed", failure);
+            }
+            put(posting);
+        }
+        finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void put(final Posting posting) {
+        try {
+            queue.put(posting);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while posting", exception);
+        }
+    }
+
+    private LongAdder accumulator(final String customer) {
+        final LongAdder existing = balances.get(customer);
+        if (existing != null) {
+            return existing;
+        }
+        return balances.computeIfAbsent(customer, name -> new LongAdder());
+    }
+
+    private static void awaitDurable(final CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.join();
+        }
+        catch (CompletionException exception) {
+            if (exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    private void commitLoop() {
+        final List<Posting> batch = new ArrayList<>();
+        try {
+            boolean running = true;
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                }
+                catch (InterruptedException exception) {
+                    continue;
+                }
+                queue.drainTo(batch, MAX_BATCH - 1);
+                running = commit(batch);
+                batch.clear();
+            }
+        }
+        catch (Throwable exception) {
+            failure = new IOException("credit ledger committer failed", exception);
+            fail(batch, 0, batch.size(), failure);
+            abandonQueue();
+            if (exception instanceof Error) {
+                throw (Error) exception;
+            }
+        }
+    }
+
+    /**
+     * Fails everything queued after the committer died, until no posting
+     * thread is between its checks and its put. Later postings see the
+     * failure and are rejected, so nothing, {@link #close()} included, waits
+     * on a queue that nobody takes from.
+     */
+    private void abandonQueue() {
+        final List<Posting> pending = new ArrayList<>();
+        while (true) {
+            queue.drainTo(pending);
+            fail(pending, 0, pending.size(), failure);
+            pending.clear();
+            if (closeLock.writeLock().tryLock()) {
+                try {
+                    queue.drainTo(pending);
+                    fail(pending, 0, pending.size(), failure);
+                }
+                finally {
+                    closeLock.writeLock().unlock();
+                }
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Writes one batch, handling the control markers in it, and completes its futures.
+     *
+     * @return false once the stop marker was handled
+     */
+    private boolean commit(final List<Posting> batch) {
+        int from = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            final Posting posting = batch.get(i);
+            if (posting.control != null) {
+                write(batch, from, i);
+                from = i + 1;
+                if (posting.isStop()) {
+                    // the stop marker is always the last posting ever queued
+                    closeSegment();
+                    posting.durable.complete(null);
+                    return false;
+                }
+                rotate(posting);
+            }
+        }
+        write(batch, from, batch.size());
+        return true;
+    }
+
+    private void write(final List<Posting> batch, final int from, final int to) {
+        if (from == to) {
+            return;
+        }
+        if (failure != null) {
+            fail(batch, from, to, failure);
+            return;
+        }
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            size += RECORD_HEADER_BYTES + Long.BYTES + batch.get(i).customer.length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        final CRC32 crc = new CRC32();
+        for (int i = from; i < to; i++) {
+            final Posting posting = batch.get(i);
+            final int start = buffer.position();
+            buffer.putInt(Long.BYTES + posting.customer.length).putInt(0)
+                    .putLong(posting.credits).put(posting.customer);
+            crc.reset();
+            crc.update(buffer.array(), start + RECORD_HEADER_BYTES, buffer.position() - start - RECORD_HEADER_BYTES);
+            buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+        }
+        catch (IOException exception) {
+            failure = exception;
+            fail(batch, from, to, exception);
+            return;
+        }
+        commits.increment();
+        committedPostings.add(to - from);
+        for (int i = from; i < to; i++) {
+            batch.get(i).durable.complete(null);
+        }
+        segmentBytes += size;
+        if (segmentBytes >= MAX_SEGMENT_BYTES) {
+            try {
+                nextSegment();
+            }
+            catch (IOException exception) {
+                failure = exception;
+            }
+        }
+    }
+
+    private void rotate(final Posting marker) {
+        if (failure == null) {
+            try {
+                nextSegment();
+            }
+            catch (IOException exception) {
+                failure = exception;
+            }
+        }
+        if (failure != null) {
+            marker.durable.completeExceptionally(failure);
+            return;
+        }
+        marker.sealedBefore = segmentNumber;
+        marker.durable.complete(null);
+    }
+
+    private void nextSegment() throws IOException {
+        segment.close();
+        segmentNumber++;
+        segment = openSegment(segmentNumber);
+        segmentBytes = 0;
+    }
+
+    private static void fail(final List<Posting> batch, final int from, final int to, final Exception cause) {
+        for (int i = from; i < to; i++) {
+            batch.get(i).durable.completeExceptionally(cause);
+        }
+    }
+
+    private FileChannel openSegment(final long number) throws IOException {
+        return FileChannel.open(directory.resolve(String.format(SEGMENT_FORMAT, number)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeSegment() {
+        try {
+            segment.close();
+        }
+        catch (IOException exception) {
+            if (failure == null) {
+                failure = exception;
+            }
+        }
+    }
+
+    private static TreeMap<Long, Path> listSegments(final Path directory) throws IOException {
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                final Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return segments;
+    }
+
+    /**
+     * Adds every record of a segment to the balances.
+     *
+     * @param lenient whether a damaged tail is a crash to recover from rather than corruption
+     */
+    private static void replaySegment(final Path path, final boolean lenient, final Map<String, Long> into)
+            throws IOException {
+        final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        final CRC32 crc = new CRC32();
+        while (data.hasRemaining()) {
+            final int start = data.position();
+            final boolean intact = data.remaining() >= RECORD_HEADER_BYTES
+                    && isRecord(data, data.getInt(start), data.getInt(start + Integer.BYTES), crc);
+            if (!intact) {
+                if (!lenient) {
+                    throw new IOException(String.format("corrupt credit log %s at byte %d", path, start));
+                }
+                // torn write at the end of the newest segment: keep what was fully written
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                }
+                return;
+            }
+            final int length = data.getInt();
+            data.getInt();
+            final long credits = data.getLong();
+            final String customer = new String(data.array(), data.position(), length - Long.BYTES,
+                    StandardCharsets.UTF_8);
+            data.position(data.position() + length - Long.BYTES);
+            into.merge(customer, credits, Long::sum);
+        }
+    }
+
+    private static boolean isRecord(final ByteBuffer data, final int length, final int checksum, final CRC32 crc) {
+        final int payload = data.position() + RECORD_HEADER_BYTES;
+        if (length < Long.BYTES || length > data.limit() - payload) {
+            return false;
+        }
+        crc.reset();
+        crc.update(data.array(), payload, length);
+        return (int) crc.getValue() == checksum;
+    }
+
+    /**
+     * Loads the snapshot, if any, into the map.
+     *
+     * @return the number of the first log segment not covered by the snapshot
+     */
+    private static long readSnapshot(final Path directory, final Map<String, Long> into) throws IOException {
+        final Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.limit() < SNAPSHOT_OVERHEAD_BYTES) {
+            throw new IOException("corrupt credit snapshot " + path);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, data.limit() - Integer.BYTES);
+        if (data.getInt() != SNAPSHOT_MAGIC
+                || data.getInt(data.limit() - Integer.BYTES) != (int) crc.getValue()) {
+            throw new IOException("corrupt credit snapshot " + path);
+        }
+        final long firstSegment = data.getLong();
+        final int customers = data.getInt();
+        for (int i = 0; i < customers; i++) {
+            final byte[] name = new byte[data.getInt()];
+            data.get(name);
+            into.merge(new String(name, StandardCharsets.UTF_8), data.getLong(), Long::sum);
+        }
+        return firstSegment;
+    }
+
+    /**
+     * Replaces the snapshot atomically, so a crash leaves either the old or the new one.
+     */
+    private static void writeSnapshot(final Path directory, final Map<String, Long> balances,
+                                      final long firstSegment) throws IOException {
+        final List<byte[]> names = new ArrayList<>(balances.size());
+        int size = SNAPSHOT_OVERHEAD_BYTES;
+        for (final String customer : balances.keySet()) {
+            final byte[] name = customer.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += Integer.BYTES + name.length + Long.BYTES;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(firstSegment).putInt(balances.size());
+        int index = 0;
+        for (final long balance : balances.values()) {
+            final byte[] name = names.get(index++);
+            buffer.putInt(name.length).put(name).putLong(balance);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        final Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * A posting, or a control marker for the committer, waiting in the queue.
+     */
+    private static final class Posting {
+        private final String control;
+        private final byte[] customer;
+        private final long credits;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+        /** For a rotate marker: the first segment that was not sealed. */
+        private long sealedBefore;
+
+        Posting(final String control, final byte[] customer, final long credits) {
+            this.control = control;
+            this.customer = customer;
+            this.credits = credits;
+        }
+
+        boolean isStop() {
+            return STOP.equals(control);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package theater;
+
+import java.io.IOException;
+
+/**
+ * Statement printer that renders the invoice as CSV for spreadsheet import,
+ * one record per performance with the amount in cents.
+ * Fields are quoted as RFC 4180 requires and records end with CRLF.
+ */
+public class CsvStatementPrinter extends StatementPrinter {
+
+    private static final StatementTemplate HEADER = StatementTemplate.csv("customer,play,seats,amount_cents\n");
+    private static final StatementTemplate LINE = StatementTemplate.csv(
+            "{customer},{name},{seats},{amountCents}\n");
+
+    /**
+     * Creates a CSV statement printer for statement data that has already been priced.
+     *
+     * @param statementData the prepared statement data
+     */
+    public CsvStatementPrinter(final StatementSource statementData) {
+        super(statementData);
+    }
+
+    @Override
+    protected String getFormatName() {
+        return "csv";
+    }
+
+    @Override
+    protected void renderHeader(final Appendable out) throws IOException {
+        HEADER.render(out, getStatementSource());
+    }
+
+    @Override
+    protected void renderLine(final Appendable out, final int line) throws IOException {
+        LINE.render(out, getStatementSource(), line);
+    }
+
+    @Override
+    protected void renderFooter(final Appendable out) throws IOException {
+        // totals are left to the spreadsheet, so every record has the same shape
+    }
+}
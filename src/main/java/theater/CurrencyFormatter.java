@@ -0,0 +1,151 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Formats amounts in cents as currency strings using integer arithmetic only.
+ * <p>
+ * Unlike {@link java.text.NumberFormat}, instances are immutable, so they can be
+ * shared between threads without locking, and digits are appended straight into
+ * the caller's {@link StringBuilder} or {@link Appendable} without intermediate
+ * objects. The output matches {@code NumberFormat.getCurrencyInstance(locale)}
+ * for each supported locale.
+ * </p>
+ */
+public final class CurrencyFormatter {
+
+    /** US dollars, e.g. {@code $1,730.00}. */
+    public static final CurrencyFormatter US = new CurrencyFormatter("$", "", ',', '.');
+
+    /** Canadian dollars (English), e.g. {@code $1,730.00}. */
+    public static final CurrencyFormatter CANADA = new CurrencyFormatter("$", "", ',', '.');
+
+    /** Pounds sterling, e.g. {@code £1,730.00}. */
+    public static final CurrencyFormatter UK = new CurrencyFormatter("\u00a3", "", ',', '.');
+
+    /** Euros (German conventions), e.g. {@code 1.730,00 €}. */
+    public static final CurrencyFormatter GERMANY = new CurrencyFormatter("", "\u00a0\u20ac", '.', ',');
+
+    /** Euros (French conventions), e.g. {@code 1 730,00 €}. */
+    public static final CurrencyFormatter FRANCE = new CurrencyFormatter("", "\u00a0\u20ac", '\u202f', ',');
+
+    private static final Map<Locale, CurrencyFormatter> BY_LOCALE = Map.of(
+            Locale.US, US,
+            Locale.CANADA, CANADA,
+            Locale.UK, UK,
+            Locale.GERMANY, GERMANY,
+            Locale.FRANCE, FRANCE);
+
+    private static final int RADIX = 10;
+    private static final int GROUP_SIZE = 3;
+    private static final int MAX_DIGITS = 19;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS];
+
+    static {
+        long power = 1;
+        for (int i = 0; i < MAX_DIGITS; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= RADIX;
+        }
+    }
+
+    private final String prefix;
+    private final String suffix;
+    private final char groupingSeparator;
+    private final char decimalSeparator;
+
+    private CurrencyFormatter(final String prefix, final String suffix,
+                              final char groupingSeparator, final char decimalSeparator) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.groupingSeparator = groupingSeparator;
+        this.decimalSeparator = decimalSeparator;
+    }
+
+    /**
+     * Returns the formatter for the given locale.
+     *
+     * @param locale one of the supported locales (US, Canada, UK, Germany, France)
+     * @return the shared formatter for that locale
+     * @throws IllegalArgumentException if the locale is not supported
+     */
+    public static CurrencyFormatter forLocale(final Locale locale) {
+        final CurrencyFormatter formatter = BY_LOCALE.get(locale);
+        if (formatter == null) {
+            throw new IllegalArgumentException(
+                    String.format("unsupported currency locale: %s", locale));
+        }
+        return formatter;
+    }
+
+    /**
+     * Formats an amount in cents as a new string.
+     *
+     * @param cents the amount in cents
+     * @return the formatted currency string
+     */
+    public String format(final long cents) {
+        return appendTo(new StringBuilder(), cents).toString();
+    }
+
+    /**
+     * Appends an amount in cents to the given builder.
+     *
+     * @param result the builder to append to
+     * @param cents  the amount in cents
+     * @return {@code result}, for chaining
+     */
+    public StringBuilder appendTo(final StringBuilder result, final long cents) {
+        try {
+            appendTo((Appendable) result, cents);
+        }
+        catch (IOException exception) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(exception);
+        }
+        return result;
+    }
+
+    /**
+     * Appends an amount in cents to the given output.
+     *
+     * @param out   the output to append to
+     * @param cents the amount in cents
+     * @throws IOException if the output fails
+     */
+    public void appendTo(final Appendable out, final long cents) throws IOException {
+        // Work with non-positive values so that Long.MIN_VALUE needs no special case.
+        final long negative;
+        if (cents < 0) {
+            out.append('-');
+            negative = cents;
+        }
+        else {
+            negative = -cents;
+        }
+        out.append(prefix);
+        appendGrouped(out, negative / Constants.PERCENT_FACTOR);
+        out.append(decimalSeparator);
+        final int fraction = (int) -(negative % Constants.PERCENT_FACTOR);
+        out.append((char) ('0' + fraction / RADIX));
+        out.append((char) ('0' + fraction % RADIX));
+        out.append(suffix);
+    }
+
+    private void appendGrouped(final Appendable out, final long negativeUnits) throws IOException {
+        int digits = 1;
+        while (digits < MAX_DIGITS && negativeUnits / POWERS_OF_TEN[digits] != 0) {
+            digits++;
+        }
+        for (int remaining = digits; remaining > 0; remaining--) {
+            final int digit = (int) -(negativeUnits / POWERS_OF_TEN[remaining - 1] % RADIX);
+            out.append((char) ('0' + digit));
+            if (remaining > 1 && (remaining - 1) % GROUP_SIZE == 0) {
+                out.append(groupingSeparator);
+            }
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package theater;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
  * Statement printer that renders the invoice as HTML instead of plain text.
+ * Customer and play names are HTML-escaped.
  */
 public class HTMLStatementPrinter extends StatementPrinter {
 
+    private static final StatementTemplate HEADER = StatementTemplate.html(
+            "<h1>Statement for {customer}</h1>\n"
+            + "<table>\n"
+            + " <caption>Statement for {customer}</caption>\n"
+            + " <tr><th>play</th><th>seats</th><th>cost</th></tr>\n");
+    private static final StatementTemplate LINE = StatementTemplate.html(
+            " <tr><td>{name}</td><td>{seats}</td><td>{amount}</td></tr>\n");
+    private static final StatementTemplate FOOTER = StatementTemplate.html(
+            "</table>\n"
+            + "<p>Amount owed is <em>{total}</em></p>\n"
+            + "<p>You earned <em>{credits}</em> credits</p>\n");
+
     /**
      * Creates an HTML statement printer for the given invoice and plays.
      *
@@ -18,38 +32,41 @@ public class HTMLStatementPrinter extends StatementPrinter {
     }
 
     /**
-     * Returns the HTML representation of this printer's invoice.
+     * Creates an HTML statement printer for the given invoice, pricing it against a play catalog.
+     *
+     * @param invoice the invoice to print
+     * @param catalog the plays and their pricing rules
+     */
+    public HTMLStatementPrinter(final Invoice invoice, final PlayCatalog catalog) {
+        super(new StatementData(invoice, catalog));
+    }
+
+    /**
+     * Creates an HTML statement printer for statement data that has already been priced.
      *
-     * @return the formatted HTML statement
+     * @param statementData the prepared statement data
      */
+    public HTMLStatementPrinter(final StatementSource statementData) {
+        super(statementData);
+    }
+
     @Override
-    public String statement() {
-        final StatementData data = getStatementData();
-
-        final StringBuilder result = new StringBuilder(
-                String.format("<h1>Statement for %s</h1>%n", data.getCustomer()));
-
-        result.append("<table>").append(System.lineSeparator());
-        result.append(String.format(" <caption>Statement for %s</caption>%n",
-                data.getCustomer()));
-        result.append(" <tr><th>play</th><th>seats</th><th>cost</th></tr>")
-                .append(System.lineSeparator());
-
-        for (PerformanceData perfData : data.getPerformances()) {
-            result.append(String.format(
-                    " <tr><td>%s</td><td>%s</td><td>%s</td></tr>%n",
-                    perfData.getName(),
-                    perfData.getAudience(),
-                    usd(perfData.getAmount())));
-        }
-        result.append("</table>").append(System.lineSeparator());
-
-        result.append(String.format("<p>Amount owed is <em>%s</em></p>%n",
-                usd(data.totalAmount())));
-        result.append(String.format("<p>You earned <em>%s</em> credits</p>%n",
-                data.volumeCredits()));
-
-        return result.toString();
+    protected String getFormatName() {
+        return "html";
     }
-}
 
+    @Override
+    protected void renderHeader(final Appendable out) throws IOException {
+        HEADER.render(out, getStatementSource());
+    }
+
+    @Override
+    protected void renderLine(final Appendable out, final int line) throws IOException {
+        LINE.render(out, getStatementSource(), line);
+    }
+
+    @Override
+    protected void renderFooter(final Appendable out) throws IOException {
+        FOOTER.render(out, getStatementSource());
+    }
+}
@@ -1,27 +1,22 @@
 package theater;
 
 /**
- * Calculator for history plays.
+ * Stateless pricing rules for history plays.
  */
-public class HistoryCalculator extends AbstractPerformanceCalculator {
+public final class HistoryCalculator implements PricingStrategy {
 
-    /**
-     * Constructs a calculator for a history play.
-     *
-     * @param performance the performance data
-     * @param play        the play
-     */
-    public HistoryCalculator(final Performance performance, final Play play) {
-        super(performance, play);
+    @Override
+    public String getPlayType() {
+        return "history";
     }
 
     @Override
-    public int getAmount() {
+    public int amountFor(final int audience) {
         int result = Constants.HISTORY_BASE_AMOUNT;
 
-        if (getPerformance().getAudience() > Constants.HISTORY_AUDIENCE_THRESHOLD) {
+        if (audience > Constants.HISTORY_AUDIENCE_THRESHOLD) {
             result += Constants.HISTORY_OVER_BASE_CAPACITY_PER_PERSON
-                    * (getPerformance().getAudience()
+                    * (audience
                     - Constants.HISTORY_AUDIENCE_THRESHOLD);
         }
 
@@ -29,9 +24,9 @@ public class HistoryCalculator extends AbstractPerformanceCalculator {
     }
 
     @Override
-    public int getVolumeCredits() {
+    public int volumeCreditsFor(final int audience) {
         return Math.max(
-                getPerformance().getAudience() - Constants.HISTORY_VOLUME_CREDIT_THRESHOLD,
+                audience - Constants.HISTORY_VOLUME_CREDIT_THRESHOLD,
                 0);
     }
 }
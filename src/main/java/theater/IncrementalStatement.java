@@ -0,0 +1,501 @@
+package theater;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A statement for an open invoice that performances are added to, removed
+ * from and corrected over time.
+ * <p>
+ * Each change prices only the affected performance and adjusts the running
+ * totals, so it costs O(1) however long the invoice is. Every change bumps
+ * the {@link #getVersion() version}; callers can take a {@link #snapshot()}
+ * and render a fresh statement with any printer.
+ * </p>
+ * <p>
+ * Callers that keep a rendered statement and re-render only the lines that
+ * changed can ask for a journal of the most recent changes when creating the
+ * statement. The journal is a ring of fixed capacity, so memory stays bounded
+ * however long the invoice stays open; {@link #changesSince(long)} fails once
+ * the changes asked for have been overwritten, and the caller then renders a
+ * fresh snapshot instead. Each recorded change carries the position of its
+ * line, which costs O(log n) per change to track. The positions are kept in
+ * an index over the lines still present, which is renumbered once removed
+ * lines have left it half empty, so it too stays within a small multiple of
+ * the number of lines however many have come and gone.
+ * </p>
+ * <p>
+ * All methods are synchronized, so any number of threads may append to the
+ * same invoice concurrently.
+ * </p>
+ */
+public final class IncrementalStatement {
+
+    private static final int INITIAL_LINE_CAPACITY = 16;
+    /** Largest Fenwick tree, the biggest power-of-two array length. */
+    private static final int MAX_LINE_CAPACITY = 1 << 30;
+
+    private final String customer;
+    private final PlayCatalog catalog;
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+    private final Change[] journal;
+    /**
+     * Fenwick tree over line slots counting the lines still present; null
+     * without a journal. Slots follow statement order and are handed out from
+     * {@code nextSlot}; removed lines leave gaps until the next renumbering.
+     */
+    private int[] liveLines;
+    private int nextSlot;
+    private long version;
+    private long nextLineID;
+    private int totalAmount;
+    private int volumeCredits;
+
+    /**
+     * Creates an empty statement that does not record its changes.
+     *
+     * @param customer the customer name
+     * @param catalog  the plays and their pricing rules
+     */
+    public IncrementalStatement(final String customer, final PlayCatalog catalog) {
+        this(customer, catalog, 0);
+    }
+
+    /**
+     * Creates an empty statement that keeps the most recent changes for
+     * {@link #changesSince(long)}.
+     *
+     * @param customer        the customer name
+     * @param catalog         the plays and their pricing rules
+     * @param journalCapacity the number of changes kept; 0 keeps none
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public IncrementalStatement(final String customer, final PlayCatalog catalog, final int journalCapacity) {
+        if (journalCapacity < 0) {
+            throw new IllegalArgumentException("journal capacity must not be negative: " + journalCapacity);
+        }
+        this.customer = customer;
+        this.catalog = catalog;
+        this.journal = new Change[journalCapacity];
+        if (journalCapacity > 0) {
+            this.liveLines = new int[INITIAL_LINE_CAPACITY];
+        }
+    }
+
+    /**
+     * Creates a statement holding the performances of an existing invoice.
+     *
+     * @param invoice the invoice to start from
+     * @param catalog the plays and their pricing rules
+     * @return the statement
+     */
+    public static IncrementalStatement of(final Invoice invoice, final PlayCatalog catalog) {
+        final IncrementalStatement statement = new IncrementalStatement(invoice.getCustomer(), catalog);
+        for (final Performance performance : invoice.getPerformances()) {
+            statement.add(performance);
+        }
+        return statement;
+    }
+
+    /**
+     * Returns the customer name.
+     *
+     * @return the customer name
+     */
+    public String getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Adds a performance at the end of the statement.
+     *
+     * @param performance the performance to add
+     * @return the ID of the new line, used to remove or correct it later
+     * @throws RuntimeException if the play is not in the catalog
+     */
+    public synchronized long add(final Performance performance) {
+        final Line line = price(nextLineID, performance);
+        nextLineID++;
+        final int position = lines.size();
+        if (liveLines != null) {
+            line.slot = takeSlot();
+            markLive(line, 1);
+        }
+        lines.put(line.id, line);
+        totalAmount += line.amount;
+        volumeCredits += line.credits;
+        record(Change.Kind.ADDED, line, position);
+        return line.id;
+    }
+
+    /**
+     * Removes a line.
+     *
+     * @param lineID the ID returned by {@link #add(Performance)}
+     * @return false if there was no such line
+     */
+    public synchronized boolean remove(final long lineID) {
+        final Line line = lines.remove(lineID);
+        if (line == null) {
+            return false;
+        }
+        markLive(line, -1);
+        totalAmount -= line.amount;
+        volumeCredits -= line.credits;
+        record(Change.Kind.REMOVED, line, positionOf(line));
+        return true;
+    }
+
+    /**
+     * Replaces the performance of a line, keeping its position.
+     *
+     * @param lineID      the ID returned by {@link #add(Performance)}
+     * @param performance the corrected performance
+     * @return false if there was no such line
+     * @throws RuntimeException if the play is not in the catalog
+     */
+    public synchronized boolean correct(final long lineID, final Performance performance) {
+        final Line previous = lines.get(lineID);
+        if (previous == null) {
+            return false;
+        }
+        final Line line = price(lineID, performance);
+        line.slot = previous.slot;
+        lines.put(lineID, line);
+        totalAmount += line.amount - previous.amount;
+        volumeCredits += line.credits - previous.credits;
+        record(Change.Kind.CORRECTED, line, positionOf(line));
+        return true;
+    }
+
+    /**
+     * Returns the number of lines.
+     *
+     * @return the number of performances
+     */
+    public synchronized int size() {
+        return lines.size();
+    }
+
+    /**
+     * Returns the running total amount.
+     *
+     * @return the total amount owed in cents
+     */
+    public synchronized int totalAmount() {
+        return totalAmount;
+    }
+
+    /**
+     * Returns the running total volume credits.
+     *
+     * @return the total volume credits earned
+     */
+    public synchronized int volumeCredits() {
+        return volumeCredits;
+    }
+
+    /**
+     * Returns the current version: the number of changes made so far.
+     *
+     * @return the version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the changes made after the given version, oldest first.
+     *
+     * @param since a version previously returned by {@link #getVersion()}
+     * @return the changes
+     * @throws IllegalArgumentException if some of those changes are no longer
+     *                                  in the journal; render a {@link #snapshot()} instead
+     */
+    public synchronized List<Change> changesSince(final long since) {
+        final long oldest = Math.max(0, version - journal.length);
+        if (since < oldest) {
+            throw new IllegalArgumentException("changes before version " + oldest + " are no longer kept");
+        }
+        final List<Change> changes = new ArrayList<>();
+        for (long next = since + 1; next <= version; next++) {
+            changes.add(journal[(int) ((next - 1) % journal.length)]);
+        }
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Returns an immutable copy of the current statement, ready to render with
+     * {@link StatementPrinter#StatementPrinter(StatementSource)} or any other printer.
+     *
+     * @return the snapshot
+     */
+    public synchronized StatementSource snapshot() {
+        return new Snapshot(customer, lines.values(), totalAmount, volumeCredits);
+    }
+
+    private Line price(final long lineID, final Performance performance) {
+        final PlayCatalog.PricedPlay play = catalog.lookup(performance.getPlayID());
+        final int audience = performance.getAudience();
+        return new Line(lineID, play.getName(), audience, play.amountFor(audience), play.volumeCreditsFor(audience));
+    }
+
+    private void record(final Change.Kind kind, final Line line, final int position) {
+        version++;
+        if (journal.length > 0) {
+            journal[(int) ((version - 1) % journal.length)] = new Change(version, kind, line, position);
+        }
+    }
+
+    /**
+     * Returns the slot for a line added at the end, renumbering the lines
+     * present first when the tree has no slot left.
+     */
+    private int takeSlot() {
+        if (nextSlot + 1 >= liveLines.length) {
+            renumberLiveLines();
+        }
+        return nextSlot++;
+    }
+
+    private void markLive(final Line line, final int delta) {
+        if (liveLines == null) {
+            return;
+        }
+        for (int index = line.slot + 1; index < liveLines.length; index += index & -index) {
+            liveLines[index] += delta;
+        }
+    }
+
+    /**
+     * Gives the lines present consecutive slots in statement order and
+     * rebuilds the Fenwick tree in linear time, sized to at least twice their
+     * number plus one. At least as many adds as there are lines then pass
+     * before the next renumbering, so its cost is O(1) per add, and the tree
+     * shrinks again after lines are removed.
+     *
+     * @throws IllegalStateException if the lines no longer fit in an array
+     */
+    private void renumberLiveLines() {
+        final long needed = 2L * (lines.size() + 1);
+        int size = INITIAL_LINE_CAPACITY;
+        while (size <= needed) {
+            if (size == MAX_LINE_CAPACITY) {
+                throw new IllegalStateException("too many lines to track positions: " + lines.size());
+            }
+            size *= 2;
+        }
+        final int[] tree = new int[size];
+        int slot = 0;
+        for (final Line line : lines.values()) {
+            line.slot = slot++;
+            tree[slot] = 1;
+        }
+        for (int i = 1; i < size; i++) {
+            final int parent = i + (i & -i);
+            if (parent < size) {
+                tree[parent] += tree[i];
+            }
+        }
+        liveLines = tree;
+        nextSlot = slot;
+    }
+
+    /**
+     * Returns the number of lines present before the given line, i.e. its
+     * position in the statement; -1 when no journal is kept.
+     */
+    private int positionOf(final Line line) {
+        if (liveLines == null) {
+            return -1;
+        }
+        int result = 0;
+        for (int index = line.slot; index > 0; index -= index & -index) {
+            result += liveLines[index];
+        }
+        return result;
+    }
+
+    /**
+     * One priced line of the statement.
+     */
+    private static final class Line {
+        private final long id;
+        private final String name;
+        private final int audience;
+        private final int amount;
+        private final int credits;
+        /** Position in the Fenwick tree; renumbered as lines come and go. */
+        private int slot;
+
+        Line(final long id, final String name, final int audience, final int amount, final int credits) {
+            this.id = id;
+            this.name = name;
+            this.audience = audience;
+            this.amount = amount;
+            this.credits = credits;
+        }
+    }
+
+    /**
+     * A recorded change to one line.
+     */
+    public static final class Change {
+
+        /**
+         * What happened to the line.
+         */
+        public enum Kind {
+            ADDED, REMOVED, CORRECTED
+        }
+
+        private final long version;
+        private final Kind kind;
+        private final Line line;
+        private final int position;
+
+        private Change(final long version, final Kind kind, final Line line, final int position) {
+            this.version = version;
+            this.kind = kind;
+            this.line = line;
+            this.position = position;
+        }
+
+        /**
+         * Returns the statement version this change produced.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns what happened to the line.
+         *
+         * @return the kind of change
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the position of the line in the statement, counting from
+         * zero: where it now is for added and corrected lines, and where it
+         * was for removed ones. Applying the changes in order to a list of
+         * rendered lines keeps it in step with the statement.
+         *
+         * @return the line position
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the ID of the changed line.
+         *
+         * @return the line ID
+         */
+        public long getLineID() {
+            return line.id;
+        }
+
+        /**
+         * Returns the play name of the line (before removal, for removed lines).
+         *
+         * @return the play name
+         */
+        public String getName() {
+            return line.name;
+        }
+
+        /**
+         * Returns the audience size of the line.
+         *
+         * @return the audience size
+         */
+        public int getAudience() {
+            return line.audience;
+        }
+
+        /**
+         * Returns the amount of the line.
+         *
+         * @return the amount in cents
+         */
+        public int getAmount() {
+            return line.amount;
+        }
+
+        /**
+         * Returns the volume credits of the line.
+         *
+         * @return the volume credits
+         */
+        public int getVolumeCredits() {
+            return line.credits;
+        }
+    }
+
+    /**
+     * Immutable copy of the lines and totals at one version.
+     */
+    private static final class Snapshot implements StatementSource {
+        private final String customer;
+        private final Line[] lines;
+        private final int totalAmount;
+        private final int volumeCredits;
+
+        Snapshot(final String customer, final Collection<Line> lines,
+                 final int totalAmount, final int volumeCredits) {
+            this.customer = customer;
+            this.lines = lines.toArray(new Line[0]);
+            this.totalAmount = totalAmount;
+            this.volumeCredits = volumeCredits;
+        }
+
+        @Override
+        public String getCustomer() {
+            return customer;
+        }
+
+        @Override
+        public int size() {
+            return lines.length;
+        }
+
+        @Override
+        public String getName(final int line) {
+            return lines[line].name;
+        }
+
+        @Override
+        public int getAudience(final int line) {
+            return lines[line].audience;
+        }
+
+        @Override
+        public int getAmount(final int line) {
+            return lines[line].amount;
+        }
+
+        @Override
+        public int getVolumeCredits(final int line) {
+            return lines[line].credits;
+        }
+
+        @Override
+        public int totalAmount() {
+            return totalAmount;
+        }
+
+        @Override
+        public int volumeCredits() {
+            return volumeCredits;
+        }
+    }
+}
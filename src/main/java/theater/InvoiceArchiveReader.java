@@ -0,0 +1,381 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads an archive written by {@link InvoiceArchiveWriter} through a read-only
+ * memory mapping.
+ * <p>
+ * Invoices are located in O(1) through the offset index, and a customer's
+ * invoice through the customer hash table stored in the archive, probed in
+ * the mapping itself, so opening an archive costs the same however many
+ * invoices it holds. Invoices can be priced straight from the mapped bytes
+ * without creating {@link Performance} objects.
+ * All reads use absolute offsets, so one reader can be shared between threads.
+ * Archives are limited to 2 GiB, the largest region a single mapping can cover.
+ * </p>
+ */
+public final class InvoiceArchiveReader implements Closeable {
+
+    /** Handle recorded for a dictionary play that the catalog does not contain. */
+    private static final int MISSING = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long indexOffset;
+    private final long customersOffset;
+    private final int invoiceCount;
+    private final int slotCount;
+    private final String[] playIDs;
+
+    private volatile Resolution resolution;
+
+    /**
+     * Opens and maps an archive.
+     *
+     * @param path the archive file
+     * @throws IOException if the file cannot be read or is not a valid archive
+     */
+    public InvoiceArchiveReader(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("archive larger than 2 GiB: " + path);
+            }
+            if (size < InvoiceArchiveWriter.HEADER_SIZE + InvoiceArchiveWriter.TRAILER_SIZE) {
+                throw new IOException("not an invoice archive: " + path);
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int trailer = (int) size - InvoiceArchiveWriter.TRAILER_SIZE;
+            if (buffer.getInt(0) != InvoiceArchiveWriter.MAGIC
+                    || buffer.getInt((int) size - Integer.BYTES) != InvoiceArchiveWriter.MAGIC) {
+                throw new IOException("not an invoice archive: " + path);
+            }
+            if (buffer.getInt(Integer.BYTES) != InvoiceArchiveWriter.VERSION) {
+                throw new IOException("unsupported archive version: " + buffer.getInt(Integer.BYTES));
+            }
+            final long playsOffset = buffer.getLong(trailer);
+            this.indexOffset = buffer.getLong(trailer + Long.BYTES);
+            this.customersOffset = buffer.getLong(trailer + 2 * Long.BYTES);
+            final int counts = trailer + 3 * Long.BYTES;
+            this.invoiceCount = buffer.getInt(counts);
+            this.playIDs = new String[buffer.getInt(counts + Integer.BYTES)];
+            this.slotCount = buffer.getInt(counts + 2 * Integer.BYTES);
+            if (Integer.bitCount(slotCount) != 1 || slotCount <= invoiceCount
+                    || customersOffset + (long) slotCount * InvoiceArchiveWriter.SLOT_SIZE > trailer) {
+                throw new IOException("corrupt customer table in " + path);
+            }
+
+            final Cursor cursor = new Cursor((int) playsOffset);
+            for (int i = 0; i < playIDs.length; i++) {
+                playIDs[i] = cursor.readString();
+            }
+        }
+        catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the number of invoices in the archive.
+     *
+     * @return the number of invoices
+     */
+    public int size() {
+        return invoiceCount;
+    }
+
+    /**
+     * Returns the position of a customer's first invoice, probing the
+     * archive's customer table. Only slots with a matching hash have their
+     * record's customer name compared, byte for byte. Use
+     * {@link #indexesOf(String)} for customers with several invoices.
+     *
+     * @param customer the customer name
+     * @return the index of the customer's first invoice, or -1 if the customer has no invoice
+     */
+    public int indexOf(final String customer) {
+        final int[] found = probe(customer, 1);
+        if (found.length == 0) {
+            return -1;
+        }
+        return found[0];
+    }
+
+    /**
+     * Returns the positions of all of a customer's invoices, probing the
+     * archive's customer table.
+     *
+     * @param customer the customer name
+     * @return the invoice indexes in archive order; empty if the customer has no invoice
+     */
+    public int[] indexesOf(final String customer) {
+        return probe(customer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Follows the customer's probe sequence up to the first empty slot. Every
+     * invoice has a slot and invoices were inserted in order, so matches come
+     * out in ascending order.
+     */
+    private int[] probe(final String customer, final int limit) {
+        final byte[] name = customer.getBytes(StandardCharsets.UTF_8);
+        final int hash = InvoiceArchiveWriter.customerHash(name);
+        final int mask = slotCount - 1;
+        int[] found = new int[1];
+        int count = 0;
+        int slot = hash & mask;
+        for (int probe = 0; probe < slotCount && count < limit; probe++) {
+            final int at = (int) customersOffset + slot * InvoiceArchiveWriter.SLOT_SIZE;
+            final int entry = buffer.getInt(at + Integer.BYTES);
+            if (entry == 0) {
+                break;
+            }
+            if (buffer.getInt(at) == hash && customerEquals(entry - 1, name)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = entry - 1;
+            }
+            slot = slot + 1 & mask;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Returns the customer of an invoice.
+     *
+     * @param invoiceIndex the invoice index
+     * @return the customer name
+     */
+    public String getCustomer(final int invoiceIndex) {
+        return new Cursor(recordOffset(invoiceIndex)).readString();
+    }
+
+    /**
+     * Materializes an invoice as objects.
+     *
+     * @param invoiceIndex the invoice index
+     * @return the invoice
+     */
+    public Invoice readInvoice(final int invoiceIndex) {
+        final Cursor cursor = new Cursor(recordOffset(invoiceIndex));
+        final String customer = cursor.readString();
+        final int lines = cursor.readVarint();
+        final List<Performance> performances = new ArrayList<>(lines);
+        for (int line = 0; line < lines; line++) {
+            final String playID = playIDs[cursor.readVarint()];
+            performances.add(new Performance(playID, cursor.readZigzag()));
+        }
+        return new Invoice(customer, performances);
+    }
+
+    /**
+     * Reads an invoice into columnar form, referencing plays by their handles
+     * in the given catalog.
+     *
+     * @param invoiceIndex the invoice index
+     * @param catalog      the catalog to bind to
+     * @return the columnar invoice
+     * @throws RuntimeException if the invoice refers to a play missing from the catalog
+     */
+    public ColumnarInvoice readColumnar(final int invoiceIndex, final PlayCatalog catalog) {
+        final int[] handles = handlesFor(catalog);
+        final Cursor cursor = new Cursor(recordOffset(invoiceIndex));
+        final ColumnarInvoice.Builder builder = ColumnarInvoice.builder(cursor.readString(), catalog);
+        final int lines = cursor.readVarint();
+        for (int line = 0; line < lines; line++) {
+            final int play = cursor.readVarint();
+            if (handles[play] == MISSING) {
+                throw unknownPlay(play);
+            }
+            builder.add(handles[play], cursor.readZigzag());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Prices an invoice straight from the mapped bytes.
+     *
+     * @param invoiceIndex the invoice index
+     * @param catalog      the plays and their pricing rules
+     * @return the total amount in cents
+     * @throws RuntimeException if the invoice refers to a play missing from the catalog
+     */
+    public long totalAmount(final int invoiceIndex, final PlayCatalog catalog) {
+        final PricingStrategy[] pricing = pricingFor(catalog);
+        final Cursor cursor = new Cursor(recordOffset(invoiceIndex));
+        cursor.skipString();
+        final int lines = cursor.readVarint();
+        long result = 0;
+        for (int line = 0; line < lines; line++) {
+            result += strategy(pricing, cursor.readVarint()).amountFor(cursor.readZigzag());
+        }
+        return result;
+    }
+
+    /**
+     * Computes the volume credits of an invoice straight from the mapped bytes.
+     *
+     * @param invoiceIndex the invoice index
+     * @param catalog      the plays and their pricing rules
+     * @return the total volume credits
+     * @throws RuntimeException if the invoice refers to a play missing from the catalog
+     */
+    public long volumeCredits(final int invoiceIndex, final PlayCatalog catalog) {
+        final PricingStrategy[] pricing = pricingFor(catalog);
+        final Cursor cursor = new Cursor(recordOffset(invoiceIndex));
+        cursor.skipString();
+        final int lines = cursor.readVarint();
+        long result = 0;
+        for (int line = 0; line < lines; line++) {
+            result += strategy(pricing, cursor.readVarint()).volumeCreditsFor(cursor.readZigzag());
+        }
+        return result;
+    }
+
+    /**
+     * Closes the file channel. The mapping itself is released by the garbage
+     * collector once this reader is unreachable.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean customerEquals(final int invoiceIndex, final byte[] name) {
+        final Cursor cursor = new Cursor(recordOffset(invoiceIndex));
+        if (cursor.readVarint() != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(cursor.offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int recordOffset(final int invoiceIndex) {
+        if (invoiceIndex < 0 || invoiceIndex >= invoiceCount) {
+            throw new IndexOutOfBoundsException("invoice index " + invoiceIndex + " of " + invoiceCount);
+        }
+        return (int) buffer.getLong((int) indexOffset + invoiceIndex * Long.BYTES);
+    }
+
+    private PricingStrategy strategy(final PricingStrategy[] pricing, final int play) {
+        final PricingStrategy strategy = pricing[play];
+        if (strategy == null) {
+            throw unknownPlay(play);
+        }
+        return strategy;
+    }
+
+    private RuntimeException unknownPlay(final int play) {
+        return new RuntimeException(String.format("unknown play: %s", playIDs[play]));
+    }
+
+    private int[] handlesFor(final PlayCatalog catalog) {
+        return resolve(catalog).handles;
+    }
+
+    private PricingStrategy[] pricingFor(final PlayCatalog catalog) {
+        return resolve(catalog).pricing;
+    }
+
+    /**
+     * Maps the archive's play dictionary onto a catalog. The result for the
+     * most recently used catalog is kept, so this runs once per catalog.
+     * Plays the catalog lacks are recorded as {@link #MISSING}, with no
+     * pricing, so only invoices that actually perform them fail.
+     */
+    private Resolution resolve(final PlayCatalog catalog) {
+        final Resolution current = resolution;
+        if (current != null && current.catalog == catalog) {
+            return current;
+        }
+        final int[] handles = new int[playIDs.length];
+        final PricingStrategy[] pricing = new PricingStrategy[playIDs.length];
+        for (int i = 0; i < playIDs.length; i++) {
+            handles[i] = MISSING;
+            if (catalog.contains(playIDs[i])) {
+                handles[i] = catalog.handleOf(playIDs[i]);
+                pricing[i] = catalog.getPricing(handles[i]);
+            }
+        }
+        final Resolution resolved = new Resolution(catalog, handles, pricing);
+        resolution = resolved;
+        return resolved;
+    }
+
+    /**
+     * The archive's play dictionary mapped onto one catalog.
+     */
+    private static final class Resolution {
+        private final PlayCatalog catalog;
+        private final int[] handles;
+        private final PricingStrategy[] pricing;
+
+        Resolution(final PlayCatalog catalog, final int[] handles, final PricingStrategy[] pricing) {
+            this.catalog = catalog;
+            this.handles = handles;
+            this.pricing = pricing;
+        }
+    }
+
+    /**
+     * Sequential decoder over the mapped buffer using absolute reads.
+     */
+    private final class Cursor {
+        private int offset;
+
+        Cursor(final int offset) {
+            this.offset = offset;
+        }
+
+        int readVarint() {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = buffer.get(offset++);
+                result |= (b & InvoiceArchiveWriter.VARINT_PAYLOAD) << shift;
+                shift += InvoiceArchiveWriter.VARINT_SHIFT;
+            }
+            while ((b & InvoiceArchiveWriter.VARINT_CONTINUE) != 0);
+            return result;
+        }
+
+        int readZigzag() {
+            final int value = readVarint();
+            return value >>> 1 ^ -(value & 1);
+        }
+
+        String readString() {
+            final int length = readVarint();
+            final ByteBuffer slice = buffer.duplicate();
+            slice.position(offset).limit(offset + length);
+            offset += length;
+            return StandardCharsets.UTF_8.decode(slice).toString();
+        }
+
+        void skipString() {
+            final int length = readVarint();
+            offset += length;
+        }
+    }
+}
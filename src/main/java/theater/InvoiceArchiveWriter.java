@@ -0,0 +1,226 @@
+package theater;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes invoices to a compact binary archive that {@link InvoiceArchiveReader}
+ * can memory-map.
+ * <p>
+ * Layout (all fixed-width numbers big-endian):
+ * </p>
+ * <pre>
+ * header   magic:int version:int
+ * records  one per invoice: customer:string lines:varint (play:varint audience:zigzag-varint)*
+ * plays    playCount strings, the play-ID dictionary referenced by the records
+ * index    invoiceCount longs, the file offset of each record
+ * customers slotCount slots of (hash:int invoice:int), the customer hash table
+ * trailer  playsOffset:long indexOffset:long customersOffset:long
+ *          invoiceCount:int playCount:int slotCount:int magic:int
+ * </pre>
+ * <p>
+ * Strings are a varint byte length followed by UTF-8 bytes. Records are
+ * streamed to disk as they are appended; only the play dictionary, the offset
+ * index and one hash per invoice are kept in memory until {@link #close()}.
+ * </p>
+ * <p>
+ * The customer table is open-addressed with linear probing. It has a power of
+ * two number of slots, at least twice the number of invoices, so every probe
+ * sequence ends at an empty slot. A slot holds the {@link #customerHash hash}
+ * of a customer name and the invoice index plus one; zero marks an empty
+ * slot. Invoices are inserted in order, so the first match along a probe
+ * sequence is the customer's first invoice.
+ * </p>
+ */
+public final class InvoiceArchiveWriter implements Closeable {
+
+    static final int MAGIC = 0x54484941;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int TRAILER_SIZE = 3 * Long.BYTES + 4 * Integer.BYTES;
+    static final int SLOT_SIZE = 2 * Integer.BYTES;
+    static final int VARINT_SHIFT = 7;
+    static final int VARINT_PAYLOAD = 0x7f;
+    static final int VARINT_CONTINUE = 0x80;
+
+    private static final int BYTE_MASK = 0xff;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    /** Customer table slots per invoice, keeping the load factor at or below one half. */
+    private static final int SLOTS_PER_INVOICE = 2;
+
+    private final OutputStream out;
+    private final Map<String, Integer> playIndexByID = new HashMap<>();
+    private final List<String> playIDs = new ArrayList<>();
+    private long[] offsets = new long[INITIAL_INDEX_CAPACITY];
+    private int[] customerHashes = new int[INITIAL_INDEX_CAPACITY];
+    private int invoiceCount;
+    private long position;
+
+    /**
+     * Creates (or truncates) an archive file.
+     *
+     * @param path the archive file
+     * @throws IOException if the file cannot be created
+     */
+    public InvoiceArchiveWriter(final Path path) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(path), Constants.STREAM_BUFFER_SIZE);
+        writeInt(MAGIC);
+        writeInt(VERSION);
+    }
+
+    /**
+     * Appends an invoice.
+     *
+     * @param invoice the invoice to store
+     * @throws IOException if writing fails
+     */
+    public void append(final Invoice invoice) throws IOException {
+        if (invoiceCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, invoiceCount * 2);
+            customerHashes = Arrays.copyOf(customerHashes, invoiceCount * 2);
+        }
+        final byte[] customer = invoice.getCustomer().getBytes(StandardCharsets.UTF_8);
+        customerHashes[invoiceCount] = customerHash(customer);
+        offsets[invoiceCount++] = position;
+        writeBytes(customer);
+        writeVarint(invoice.getPerformances().size());
+        for (final Performance performance : invoice.getPerformances()) {
+            writeVarint(intern(performance.getPlayID()));
+            writeVarint(zigzag(performance.getAudience()));
+        }
+    }
+
+    /**
+     * Writes the play dictionary, the offset index, the customer table and
+     * the trailer, then closes the file.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            final long playsOffset = position;
+            for (final String playID : playIDs) {
+                writeString(playID);
+            }
+            final long indexOffset = position;
+            for (int i = 0; i < invoiceCount; i++) {
+                writeLong(offsets[i]);
+            }
+            final long customersOffset = position;
+            final int[] slots = customerSlots();
+            for (final int slot : slots) {
+                writeInt(slot);
+            }
+            writeLong(playsOffset);
+            writeLong(indexOffset);
+            writeLong(customersOffset);
+            writeInt(invoiceCount);
+            writeInt(playIDs.size());
+            writeInt(slots.length / 2);
+            writeInt(MAGIC);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Hashes a customer name for the customer table: 64-bit FNV-1a over its
+     * UTF-8 bytes, folded to 32 bits. Fixed here because it is part of the
+     * file format.
+     *
+     * @param utf8 the customer name in UTF-8
+     * @return the hash
+     */
+    static int customerHash(final byte[] utf8) {
+        long hash = Constants.FNV_OFFSET_BASIS;
+        for (final byte b : utf8) {
+            hash ^= b & BYTE_MASK;
+            hash *= Constants.FNV_PRIME;
+        }
+        return (int) (hash ^ hash >>> Integer.SIZE);
+    }
+
+    /**
+     * Builds the customer table as pairs of ints: the hash, then the invoice
+     * index plus one.
+     */
+    private int[] customerSlots() {
+        int slotCount = 1;
+        while (slotCount < invoiceCount * SLOTS_PER_INVOICE) {
+            slotCount <<= 1;
+        }
+        final int[] slots = new int[slotCount * 2];
+        final int mask = slotCount - 1;
+        for (int i = 0; i < invoiceCount; i++) {
+            int slot = customerHashes[i] & mask;
+            while (slots[slot * 2 + 1] != 0) {
+                slot = slot + 1 & mask;
+            }
+            slots[slot * 2] = customerHashes[i];
+            slots[slot * 2 + 1] = i + 1;
+        }
+        return slots;
+    }
+
+    private int intern(final String playID) {
+        final Integer existing = playIndexByID.get(playID);
+        if (existing != null) {
+            return existing;
+        }
+        final int index = playIDs.size();
+        playIDs.add(playID);
+        playIndexByID.put(playID, index);
+        return index;
+    }
+
+    private static int zigzag(final int value) {
+        return value << 1 ^ value >> (Integer.SIZE - 1);
+    }
+
+    private void writeString(final String value) throws IOException {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(final byte[] bytes) throws IOException {
+        writeVarint(bytes.length);
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private void writeVarint(final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~VARINT_PAYLOAD) != 0) {
+            out.write(remaining & VARINT_PAYLOAD | VARINT_CONTINUE);
+            remaining >>>= VARINT_SHIFT;
+            position++;
+        }
+        out.write(remaining);
+        position++;
+    }
+
+    private void writeInt(final int value) throws IOException {
+        for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            out.write(value >>> shift & BYTE_MASK);
+        }
+        position += Integer.BYTES;
+    }
+
+    private void writeLong(final long value) throws IOException {
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            out.write((int) (value >>> shift) & BYTE_MASK);
+        }
+        position += Long.BYTES;
+    }
+}
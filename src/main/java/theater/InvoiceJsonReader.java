@@ -0,0 +1,176 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads invoices from JSON incrementally, in the format of {@code invoices.json}.
+ * <p>
+ * The input is either an array of invoice objects or a single invoice object.
+ * Each {@link Invoice} is returned as soon as its closing brace is read, and
+ * nothing else of the document is kept in memory, so arbitrarily large exports
+ * can be processed with flat memory use. Unknown properties are ignored.
+ * </p>
+ * <p>
+ * Every invoice must have a {@code customer} and every performance a
+ * {@code playID} and an {@code audience}, and nothing but whitespace may
+ * follow the array or object. Malformed input is reported by
+ * {@link #hasNext()} and {@link #next()} as an {@link UncheckedIOException}.
+ * </p>
+ */
+public final class InvoiceJsonReader implements Iterator<Invoice>, Closeable {
+
+    private final JsonReader json;
+    private boolean started;
+    private boolean array;
+    private boolean finished;
+
+    /**
+     * Creates a reader over UTF-8 encoded JSON.
+     *
+     * @param in the JSON input
+     */
+    public InvoiceJsonReader(final InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a reader over JSON text.
+     *
+     * @param in the JSON input
+     */
+    public InvoiceJsonReader(final Reader in) {
+        this.json = new JsonReader(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (!started) {
+                started = true;
+                final JsonReader.Token first = json.peek();
+                array = first == JsonReader.Token.BEGIN_ARRAY;
+                if (array) {
+                    json.beginArray();
+                }
+                else if (first != JsonReader.Token.BEGIN_OBJECT) {
+                    throw json.syntaxError("expected an invoice or an array of invoices");
+                }
+            }
+            if (finished) {
+                return false;
+            }
+            final boolean more;
+            if (array) {
+                more = json.hasNext();
+                if (!more) {
+                    json.endArray();
+                }
+            }
+            else {
+                more = json.peek() == JsonReader.Token.BEGIN_OBJECT;
+            }
+            if (!more) {
+                json.endDocument();
+                finished = true;
+            }
+            return more;
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public Invoice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final StatementEvents.Ingest event = new StatementEvents.Ingest();
+        event.begin();
+        final Invoice invoice;
+        try {
+            invoice = readInvoice();
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        if (event.shouldCommit()) {
+            event.customer = invoice.getCustomer();
+            event.performanceCount = invoice.getPerformances().size();
+            event.commit();
+        }
+        return invoice;
+    }
+
+    @Override
+    public void close() throws IOException {
+        json.close();
+    }
+
+    private Invoice readInvoice() throws IOException {
+        String customer = null;
+        List<Performance> performances = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            final String name = json.nextName();
+            if ("customer".equals(name)) {
+                customer = json.nextString();
+            }
+            else if ("performances".equals(name)) {
+                performances = readPerformances();
+            }
+            else {
+                json.skipValue();
+            }
+        }
+        if (customer == null) {
+            throw json.syntaxError("invoice has no customer");
+        }
+        json.endObject();
+        return new Invoice(customer, performances);
+    }
+
+    private List<Performance> readPerformances() throws IOException {
+        final List<Performance> performances = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            String playID = null;
+            int audience = 0;
+            boolean hasAudience = false;
+            json.beginObject();
+            while (json.hasNext()) {
+                final String name = json.nextName();
+                if ("playID".equals(name)) {
+                    playID = json.nextString();
+                }
+                else if ("audience".equals(name)) {
+                    audience = json.nextInt();
+                    hasAudience = true;
+                }
+                else {
+                    json.skipValue();
+                }
+            }
+            if (playID == null) {
+                throw json.syntaxError("performance has no playID");
+            }
+            if (!hasAudience) {
+                throw json.syntaxError("performance has no audience");
+            }
+            json.endObject();
+            performances.add(new Performance(playID, audience));
+        }
+        json.endArray();
+        return performances;
+    }
+}
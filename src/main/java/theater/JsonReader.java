@@ -0,0 +1,469 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal pull parser for JSON documents.
+ * <p>
+ * Tokens are read on demand from a {@link Reader} through a fixed-size buffer,
+ * so memory use does not depend on the size of the document. Only the subset of
+ * the API needed by the invoice and play readers is provided.
+ * </p>
+ */
+final class JsonReader implements Closeable {
+
+    /**
+     * Kinds of tokens returned by {@link #peek()}.
+     */
+    enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private static final int INITIAL_DEPTH = 16;
+    private static final int HEX_DIGITS = 4;
+    private static final int HEX_RADIX = 16;
+    private static final int DECIMAL_RADIX = 10;
+
+    private final Reader in;
+    private final char[] buffer = new char[Constants.STREAM_BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private int line = 1;
+
+    private int[] stack = new int[INITIAL_DEPTH];
+    private int depth = 1;
+    private Token peeked;
+
+    private final StringBuilder scratch = new StringBuilder();
+
+    /**
+     * Creates a parser reading from the given reader.
+     *
+     * @param in the JSON text
+     */
+    JsonReader(final Reader in) {
+        this.in = in;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the kind of the next token without consuming it.
+     *
+     * @return the next token
+     * @throws IOException if reading fails or the JSON is malformed
+     */
+    Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        final int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                peeked = readValueToken();
+                break;
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("trailing content after document");
+                }
+                peeked = Token.END_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                peeked = peekInArray(scope);
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                peeked = peekInObject(scope);
+                break;
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                peeked = readValueToken();
+                break;
+            default:
+                throw new IllegalStateException("corrupt parser state: " + scope);
+        }
+        return peeked;
+    }
+
+    private Token peekInArray(final int scope) throws IOException {
+        final int c = nextNonWhitespace();
+        if (c == ']') {
+            return Token.END_ARRAY;
+        }
+        if (c == -1) {
+            throw syntaxError("unterminated array");
+        }
+        if (scope == NONEMPTY_ARRAY) {
+            if (c != ',') {
+                throw syntaxError("expected ',' or ']'");
+            }
+        }
+        else {
+            pos--;
+        }
+        stack[depth - 1] = NONEMPTY_ARRAY;
+        return readValueToken();
+    }
+
+    private Token peekInObject(final int scope) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return Token.END_OBJECT;
+        }
+        if (scope == NONEMPTY_OBJECT) {
+            if (c != ',') {
+                throw syntaxError("expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+        }
+        if (c != '"') {
+            throw syntaxError("expected a quoted name");
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        return Token.NAME;
+    }
+
+    private Token readValueToken() throws IOException {
+        final int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                pos--;
+                return Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return Token.NULL;
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntaxError("unexpected character");
+        }
+    }
+
+    /**
+     * Returns whether the current array or object has more elements.
+     *
+     * @return true if another element follows
+     * @throws IOException if reading fails or the JSON is malformed
+     */
+    boolean hasNext() throws IOException {
+        final Token token = peek();
+        return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException if reading fails or the next token is not '['
+     */
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException if reading fails or the next token is not ']'
+     */
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException if reading fails or the next token is not '{'
+     */
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException if reading fails or the next token is not '}'
+     */
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * Consumes a property name.
+     *
+     * @return the name
+     * @throws IOException if reading fails or the next token is not a name
+     */
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        return readQuoted();
+    }
+
+    /**
+     * Consumes a string value.
+     *
+     * @return the string
+     * @throws IOException if reading fails or the next token is not a string
+     */
+    String nextString() throws IOException {
+        expect(Token.STRING);
+        return readQuoted();
+    }
+
+    /**
+     * Consumes an integer value.
+     *
+     * @return the value
+     * @throws IOException if reading fails or the next token is not an int
+     */
+    int nextInt() throws IOException {
+        expect(Token.NUMBER);
+        final boolean negative = peekChar() == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        int c = peekChar();
+        while (c >= '0' && c <= '9') {
+            value = value * DECIMAL_RADIX + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw syntaxError("number out of int range");
+            }
+            pos++;
+            digits++;
+            c = peekChar();
+        }
+        if (digits == 0 || c == '.' || c == 'e' || c == 'E') {
+            throw syntaxError("expected an integer");
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw syntaxError("number out of int range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Consumes the end of the document, failing if anything but whitespace follows.
+     *
+     * @throws IOException if reading fails or the top-level value is not complete
+     */
+    void endDocument() throws IOException {
+        expect(Token.END_DOCUMENT);
+    }
+
+    /**
+     * Consumes and discards the next value, including nested arrays and objects.
+     *
+     * @throws IOException if reading fails or the JSON is malformed
+     */
+    void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case STRING:
+                    nextString();
+                    break;
+                case NUMBER:
+                    peeked = null;
+                    skipNumber();
+                    break;
+                case BOOLEAN:
+                case NULL:
+                    peeked = null;
+                    skipLiteral();
+                    break;
+                default:
+                    throw syntaxError("unexpected end of document");
+            }
+        }
+        while (nesting > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(final Token expected) throws IOException {
+        final Token actual = peek();
+        if (actual != expected) {
+            throw syntaxError("expected " + expected + " but was " + actual);
+        }
+        peeked = null;
+    }
+
+    private void push(final int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private String readQuoted() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            final int c = nextChar();
+            if (c == '"') {
+                return scratch.toString();
+            }
+            if (c == '\\') {
+                scratch.append(readEscape());
+            }
+            else if (c == -1 || c == '\n') {
+                throw syntaxError("unterminated string");
+            }
+            else {
+                scratch.append((char) c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        final int c = nextChar();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < HEX_DIGITS; i++) {
+                    final int digit = Character.digit(nextChar(), HEX_RADIX);
+                    if (digit < 0) {
+                        throw syntaxError("invalid unicode escape");
+                    }
+                    value = value * HEX_RADIX + digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("invalid escape sequence");
+        }
+    }
+
+    private void skipNumber() throws IOException {
+        int c = peekChar();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || c >= '0' && c <= '9') {
+            pos++;
+            c = peekChar();
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        scratch.setLength(0);
+        int c = peekChar();
+        while (c >= 'a' && c <= 'z') {
+            scratch.append((char) c);
+            pos++;
+            c = peekChar();
+        }
+        final String literal = scratch.toString();
+        if (!"true".equals(literal) && !"false".equals(literal) && !"null".equals(literal)) {
+            throw syntaxError("invalid literal");
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = nextChar();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            c = nextChar();
+        }
+        return c;
+    }
+
+    private int peekChar() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private int nextChar() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        final char c = buffer[pos++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        final int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Creates the exception reported for malformed input at the current line.
+     *
+     * @param message what is wrong with the input
+     * @return the exception, for the caller to throw
+     */
+    IOException syntaxError(final String message) {
+        return new IOException(String.format("malformed JSON at line %d: %s", line, message));
+    }
+}
@@ -0,0 +1,57 @@
+package theater;
+
+import java.io.IOException;
+
+/**
+ * Statement printer that renders the invoice as a JSON document, with
+ * amounts in cents:
+ * <pre>
+ * {"customer":"BigCo","performances":[
+ *   {"play":"Hamlet","seats":55,"amount":65000}
+ * ],"totalAmount":65000,"volumeCredits":25}
+ * </pre>
+ */
+public class JsonStatementPrinter extends StatementPrinter {
+
+    private static final StatementTemplate HEADER = StatementTemplate.json(
+            "{{\"customer\":\"{customer}\",\"performances\":[\n");
+    private static final StatementTemplate LINE = StatementTemplate.json(
+            "  {{\"play\":\"{name}\",\"seats\":{seats},\"amount\":{amountCents}}");
+    private static final StatementTemplate SEPARATOR = StatementTemplate.json(",\n");
+    private static final StatementTemplate FOOTER = StatementTemplate.json(
+            "\n],\"totalAmount\":{totalCents},\"volumeCredits\":{credits}}\n");
+
+    /**
+     * Creates a JSON statement printer for statement data that has already been priced.
+     *
+     * @param statementData the prepared statement data
+     */
+    public JsonStatementPrinter(final StatementSource statementData) {
+        super(statementData);
+    }
+
+    @Override
+    protected String getFormatName() {
+        return "json";
+    }
+
+    @Override
+    protected void renderHeader(final Appendable out) throws IOException {
+        HEADER.render(out, getStatementSource());
+    }
+
+    @Override
+    protected void renderLine(final Appendable out, final int line) throws IOException {
+        LINE.render(out, getStatementSource(), line);
+    }
+
+    @Override
+    protected void renderLineSeparator(final Appendable out) throws IOException {
+        SEPARATOR.render(out, getStatementSource());
+    }
+
+    @Override
+    protected void renderFooter(final Appendable out) throws IOException {
+        FOOTER.render(out, getStatementSource());
+    }
+}
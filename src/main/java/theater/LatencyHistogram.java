@@ -0,0 +1,125 @@
+package theater;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets in the style of
+ * HdrHistogram.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} nanoseconds get a bucket each; above that,
+ * every power of two is split into {@value #SUB_BUCKETS} equal sub-buckets, so
+ * any recorded value is reported within 12.5% using a fixed 488-slot array.
+ * Recording is three {@link LongAdder} updates. Every bucket is its own adder,
+ * so threads that time the same operation, and therefore land in the same
+ * bucket, spread over striped cells instead of contending on one slot; the
+ * cells are summed on read.
+ * </p>
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = Long.SIZE - 2;
+    private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one measurement.
+     *
+     * @param nanos the latency in nanoseconds; negative values count as zero
+     */
+    void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        totalNanos.add(value);
+    }
+
+    /**
+     * Returns a consistent-enough copy of the current state. Measurements
+     * recorded concurrently may or may not be included.
+     *
+     * @param name the name to report the snapshot under
+     * @return the snapshot
+     */
+    StatementMetrics.TimerSnapshot snapshot(final String name) {
+        final long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        int highest = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = buckets[i].sum();
+            total += copy[i];
+            if (copy[i] != 0) {
+                highest = i;
+            }
+        }
+        return new StatementMetrics.TimerSnapshot(name, total, totalNanos.sum(),
+                percentile(copy, total, StatementMetrics.P50),
+                percentile(copy, total, StatementMetrics.P90),
+                percentile(copy, total, StatementMetrics.P99),
+                upperBound(highest));
+    }
+
+    /**
+     * Returns the number of measurements recorded.
+     *
+     * @return the count
+     */
+    long count() {
+        return count.sum();
+    }
+
+    /**
+     * Discards every measurement.
+     */
+    void reset() {
+        for (final LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+    }
+
+    private static long percentile(final long[] counts, final long total, final double percent) {
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(total * percent / Constants.PERCENT_FACTOR));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long sub = bucket % SUB_BUCKETS;
+        final long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + sub + 1) * width - 1;
+    }
+}
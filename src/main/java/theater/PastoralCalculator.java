@@ -1,27 +1,22 @@
 package theater;
 
 /**
- * Calculator for pastoral plays.
+ * Stateless pricing rules for pastoral plays.
  */
-public class PastoralCalculator extends AbstractPerformanceCalculator {
+public final class PastoralCalculator implements PricingStrategy {
 
-    /**
-     * Constructs a calculator for a pastoral play.
-     *
-     * @param performance the performance data
-     * @param play        the play
-     */
-    public PastoralCalculator(final Performance performance, final Play play) {
-        super(performance, play);
+    @Override
+    public String getPlayType() {
+        return "pastoral";
     }
 
     @Override
-    public int getAmount() {
+    public int amountFor(final int audience) {
         int result = Constants.PASTORAL_BASE_AMOUNT;
 
-        if (getPerformance().getAudience() > Constants.PASTORAL_AUDIENCE_THRESHOLD) {
+        if (audience > Constants.PASTORAL_AUDIENCE_THRESHOLD) {
             result += Constants.PASTORAL_OVER_BASE_CAPACITY_PER_PERSON
-                    * (getPerformance().getAudience()
+                    * (audience
                     - Constants.PASTORAL_AUDIENCE_THRESHOLD);
         }
 
@@ -29,14 +24,13 @@ public class PastoralCalculator extends AbstractPerformanceCalculator {
     }
 
     @Override
-    public int getVolumeCredits() {
+    public int volumeCreditsFor(final int audience) {
         // 按作业给的公式：
         // Math.max(audience - 20, 0) + audience / 2
         final int baseCredits = Math.max(
-                getPerformance().getAudience() - Constants.PASTORAL_VOLUME_CREDIT_THRESHOLD,
+                audience - Constants.PASTORAL_VOLUME_CREDIT_THRESHOLD,
                 0);
-        final int bonus = getPerformance().getAudience() / 2;
+        final int bonus = audience / 2;
         return baseCredits + bonus;
     }
 }
-
@@ -2,20 +2,18 @@ package theater;
 
 /**
  * Calculated data for a single performance.
- * This class serves as a data holder and delegates calculation responsibilities
- * to an internal AbstractPerformanceCalculator instance.
+ * The amount and volume credits are computed once, by the calculator passed to
+ * the constructor, and stored so that repeated reads cost nothing.
  */
 public class PerformanceData {
 
     private final String name;
     private final int audience;
-
-    // 4.1: 存储计算器实例
-    private final AbstractPerformanceCalculator calculator;
+    private final int amount;
+    private final int volumeCredits;
 
     /**
-     * Constructs a PerformanceData object and stores the calculator instance.
-     * Calculations are delegated to the provided calculator instance.
+     * Constructs a PerformanceData object, running the calculator exactly once.
      * @param performance the raw performance data.
      * @param play the associated play information.
      * @param calculator the specialized calculator instance for this performance type.
@@ -27,13 +25,30 @@ public class PerformanceData {
         this.name = play.getName();
         this.audience = performance.getAudience();
 
-        // 4.1: 存储计算器实例
-        this.calculator = calculator;
+        final long start = StatementMetrics.get().start();
+        this.amount = calculator.getAmount();
+        this.volumeCredits = calculator.getVolumeCredits();
+        StatementMetrics.get().recordPricing(calculator.getPlayType(), start);
+    }
 
-        // 4.2: 删除了 amount 和 volumeCredits 字段及其计算逻辑
+    /**
+     * Constructs a PerformanceData object priced by a shared, stateless strategy.
+     * @param performance the raw performance data.
+     * @param play the associated play information.
+     * @param pricing the pricing rules for the play's type.
+     */
+    public PerformanceData(final Performance performance,
+                           final Play play,
+                           final PricingStrategy pricing) {
+        this.name = play.getName();
+        this.audience = performance.getAudience();
+        final long start = StatementMetrics.get().start();
+        this.amount = pricing.amountFor(audience);
+        this.volumeCredits = pricing.volumeCreditsFor(audience);
+        StatementMetrics.get().recordPricing(pricing.getPlayType(), start);
     }
 
-    /* ===================== Getters (委托给计算器) ===================== */
+    /* ===================== Getters ===================== */
 
     public String getName() {
         return name;
@@ -44,18 +59,18 @@ public class PerformanceData {
     }
 
     /**
-     * 将计算职责委托给 calculator 实例.
+     * Returns the amount computed at construction.
      * @return the calculated amount.
      */
     public int getAmount() {
-        return calculator.getAmount();
+        return amount;
     }
 
     /**
-     * 将计算职责委托给 calculator 实例.
+     * Returns the volume credits computed at construction.
      * @return the earned credits.
      */
     public int getVolumeCredits() {
-        return calculator.getVolumeCredits();
+        return volumeCredits;
     }
 }
@@ -0,0 +1,303 @@
+package theater;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable, compact catalog of plays addressed by dense integer handles.
+ * <p>
+ * Each play is bound once, when the catalog is built, to a {@link PricedPlay}
+ * carrying its ID, the play and its pricing strategy. The priced plays are
+ * held in a single array indexed by handle, which the play-ID map points
+ * into, so pricing a performance takes a single lookup and a direct call.
+ * Every play type is checked against the {@link PricingRegistry} up front,
+ * so an unknown type fails here rather than halfway through an invoice.
+ * Handles are assigned in play-ID order, so two catalogs built from the same
+ * plays agree on every handle, and on {@link #getVersion()} as long as they
+ * are priced by the same rules.
+ * </p>
+ */
+public final class PlayCatalog {
+
+    private final Map<String, PricedPlay> bound;
+    private final PricedPlay[] plays;
+    private final long version;
+
+    private PlayCatalog(final Map<String, Play> sortedPlays, final PricingRegistry registry) {
+        this.bound = new HashMap<>(sortedPlays.size() * 2);
+        this.plays = new PricedPlay[sortedPlays.size()];
+
+        int handle = 0;
+        for (final Map.Entry<String, Play> entry : sortedPlays.entrySet()) {
+            final Play play = entry.getValue();
+            plays[handle] = new PricedPlay(handle, entry.getKey(), play, registry.lookup(play.getType()));
+            bound.put(entry.getKey(), plays[handle]);
+            handle++;
+        }
+        this.version = contentHash();
+    }
+
+    private long contentHash() {
+        long hash = Constants.FNV_OFFSET_BASIS;
+        for (final PricedPlay play : plays) {
+            hash = fnv(fnv(fnv(hash, play.getPlayID()), play.getName()), play.getType());
+            hash = (hash ^ play.getPricing().fingerprint()) * Constants.FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long fnv(final long hash, final String value) {
+        long result = hash;
+        for (int i = 0; i < value.length(); i++) {
+            result = (result ^ value.charAt(i)) * Constants.FNV_PRIME;
+        }
+        // separator, so that ("ab", "c") and ("a", "bc") differ
+        return (result ^ Character.MAX_VALUE) * Constants.FNV_PRIME;
+    }
+
+    /**
+     * Builds a catalog priced by the default {@link PricingRegistry}.
+     *
+     * @param plays the mapping from play id to play
+     * @return the catalog
+     * @throws RuntimeException if a play has an unknown type
+     */
+    public static PlayCatalog of(final Map<String, Play> plays) {
+        return of(plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Builds a catalog priced by the given registry.
+     *
+     * @param plays    the mapping from play id to play
+     * @param registry the pricing rules, keyed by play type
+     * @return the catalog
+     * @throws RuntimeException if a play has an unknown type
+     */
+    public static PlayCatalog of(final Map<String, Play> plays, final PricingRegistry registry) {
+        return new PlayCatalog(new TreeMap<>(plays), registry);
+    }
+
+    /**
+     * Returns a hash of every play's ID, name and type and of the
+     * {@link PricingStrategy#fingerprint() fingerprint} of its pricing. It
+     * changes whenever any play is added, removed or modified, or its prices
+     * change, so it can key caches of rendered statements.
+     *
+     * @return the catalog version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of plays.
+     *
+     * @return the number of plays
+     */
+    public int size() {
+        return plays.length;
+    }
+
+    /**
+     * Returns whether the catalog contains a play.
+     *
+     * @param playID the play ID
+     * @return true if the play is known
+     */
+    public boolean contains(final String playID) {
+        return bound.containsKey(playID);
+    }
+
+    /**
+     * Returns the handle of a play.
+     *
+     * @param playID the play ID
+     * @return the play's handle, between 0 and {@code size() - 1}
+     * @throws RuntimeException if the play is unknown
+     */
+    public int handleOf(final String playID) {
+        return lookup(playID).handle;
+    }
+
+    /**
+     * Returns a play bound to its pricing rules.
+     *
+     * @param playID the play ID
+     * @return the priced play
+     * @throws RuntimeException if the play is unknown
+     */
+    public PricedPlay lookup(final String playID) {
+        final PricedPlay play = bound.get(playID);
+        if (play == null) {
+            throw new RuntimeException(String.format("unknown play: %s", playID));
+        }
+        return play;
+    }
+
+    /**
+     * Returns the ID of a play.
+     *
+     * @param handle the play's handle
+     * @return the play ID
+     */
+    public String getPlayID(final int handle) {
+        return plays[handle].getPlayID();
+    }
+
+    /**
+     * Returns a play.
+     *
+     * @param handle the play's handle
+     * @return the play
+     */
+    public Play getPlay(final int handle) {
+        return plays[handle].getPlay();
+    }
+
+    /**
+     * Returns the name of a play.
+     *
+     * @param handle the play's handle
+     * @return the play name
+     */
+    public String getName(final int handle) {
+        return plays[handle].getName();
+    }
+
+    /**
+     * Returns the type of a play.
+     *
+     * @param handle the play's handle
+     * @return the play type
+     */
+    public String getType(final int handle) {
+        return plays[handle].getType();
+    }
+
+    /**
+     * Returns the pricing rules of a play, resolved when the catalog was built.
+     *
+     * @param handle the play's handle
+     * @return the pricing strategy
+     */
+    public PricingStrategy getPricing(final int handle) {
+        return plays[handle].getPricing();
+    }
+
+    /**
+     * Returns the catalog as a play map, in handle order.
+     *
+     * @return an unmodifiable mapping from play id to play
+     */
+    public Map<String, Play> asMap() {
+        final Map<String, Play> result = new LinkedHashMap<>();
+        for (final PricedPlay play : plays) {
+            result.put(play.getPlayID(), play.getPlay());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    PricedPlay[] pricedPlays() {
+        return plays;
+    }
+
+    /**
+     * A play bound to the pricing rules of its type, resolved once when the
+     * catalog was built.
+     * <p>
+     * {@link ColumnarStatementData} also binds the plays of a map-based
+     * invoice this way; the handle is then the invoice's play-table index.
+     * </p>
+     */
+    public static final class PricedPlay {
+        private final int handle;
+        private final String playID;
+        private final Play play;
+        private final PricingStrategy pricing;
+
+        PricedPlay(final int handle, final String playID, final Play play, final PricingStrategy pricing) {
+            this.handle = handle;
+            this.playID = playID;
+            this.play = play;
+            this.pricing = pricing;
+        }
+
+        /**
+         * Returns the play's handle in its catalog.
+         *
+         * @return the handle
+         */
+        public int getHandle() {
+            return handle;
+        }
+
+        /**
+         * Returns the play ID.
+         *
+         * @return the play ID
+         */
+        public String getPlayID() {
+            return playID;
+        }
+
+        /**
+         * Returns the play.
+         *
+         * @return the play
+         */
+        public Play getPlay() {
+            return play;
+        }
+
+        /**
+         * Returns the play name.
+         *
+         * @return the play name
+         */
+        public String getName() {
+            return play.getName();
+        }
+
+        /**
+         * Returns the play type.
+         *
+         * @return the play type
+         */
+        public String getType() {
+            return play.getType();
+        }
+
+        /**
+         * Returns the pricing rules of the play's type.
+         *
+         * @return the pricing strategy
+         */
+        public PricingStrategy getPricing() {
+            return pricing;
+        }
+
+        /**
+         * Calculates the amount for a performance of this play.
+         *
+         * @param audience the audience size
+         * @return the amount in cents
+         */
+        public int amountFor(final int audience) {
+            return pricing.amountFor(audience);
+        }
+
+        /**
+         * Calculates the volume credits for a performance of this play.
+         *
+         * @param audience the audience size
+         * @return the volume credits
+         */
+        public int volumeCreditsFor(final int audience) {
+            return pricing.volumeCreditsFor(audience);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package theater;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the play map from JSON in the format of {@code plays.json}:
+ * an object from play ID to {@code {"name": ..., "type": ...}}.
+ * Both properties are required, and nothing but whitespace may follow the object.
+ */
+public final class PlayJsonReader {
+
+    private PlayJsonReader() {
+
+    }
+
+    /**
+     * Reads plays from UTF-8 encoded JSON.
+     *
+     * @param in the JSON input
+     * @return the mapping from play id to play
+     * @throws IOException if reading fails or the JSON is malformed
+     */
+    public static Map<String, Play> read(final InputStream in) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads plays from JSON text.
+     *
+     * @param in the JSON input
+     * @return the mapping from play id to play
+     * @throws IOException if reading fails or the JSON is malformed
+     */
+    public static Map<String, Play> read(final Reader in) throws IOException {
+        final JsonReader json = new JsonReader(in);
+        final Map<String, Play> plays = new HashMap<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            final String playID = json.nextName();
+            String name = null;
+            String type = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                final String property = json.nextName();
+                if ("name".equals(property)) {
+                    name = json.nextString();
+                }
+                else if ("type".equals(property)) {
+                    type = json.nextString();
+                }
+                else {
+                    json.skipValue();
+                }
+            }
+            if (name == null || type == null) {
+                throw json.syntaxError("play " + playID + " needs a name and a type");
+            }
+            json.endObject();
+            plays.put(playID, new Play(name, type));
+        }
+        json.endObject();
+        json.endDocument();
+        return plays;
+    }
+}
@@ -0,0 +1,141 @@
+package theater;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of {@link PricingStrategy} instances keyed by play type.
+ * <p>
+ * The default registry contains the rules bundled in
+ * {@value PricingRuleSet#DEFAULT_RESOURCE}, which price the four built-in play
+ * types exactly like the calculator classes, plus any strategies found
+ * through {@link ServiceLoader}. Further types can be added with
+ * {@link #register(PricingStrategy)} at startup; rules that change while the
+ * application runs belong in a {@link ReloadablePricing}.
+ * </p>
+ */
+public final class PricingRegistry {
+
+    private final ConcurrentMap<String, PricingStrategy> strategies = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty registry.
+     */
+    public PricingRegistry() {
+
+    }
+
+    /**
+     * Returns the process-wide registry, created on first use.
+     *
+     * @return the default registry
+     */
+    public static PricingRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a registry containing only the built-in play types.
+     *
+     * @return a new registry
+     */
+    public static PricingRegistry withBuiltIns() {
+        final PricingRegistry registry = new PricingRegistry();
+        registry.register(new TragedyCalculator());
+        registry.register(new ComedyCalculator());
+        registry.register(new HistoryCalculator());
+        registry.register(new PastoralCalculator());
+        return registry;
+    }
+
+    /**
+     * Creates a registry whose strategies are the ones currently registered
+     * here, each backed by lookup tables for audiences up to {@code maxAudience}.
+     * Results are identical; only the evaluation cost changes.
+     *
+     * @param maxAudience the largest audience held in the tables
+     * @return a new registry
+     */
+    public PricingRegistry tabulated(final int maxAudience) {
+        final PricingRegistry registry = new PricingRegistry();
+        for (final PricingStrategy strategy : strategies.values()) {
+            registry.register(new TabulatedPricing(strategy, maxAudience));
+        }
+        return registry;
+    }
+
+    /**
+     * Registers a strategy, replacing any existing one for the same play type.
+     *
+     * @param strategy the strategy to register
+     */
+    public void register(final PricingStrategy strategy) {
+        strategies.put(strategy.getPlayType(), strategy);
+    }
+
+    /**
+     * Returns whether a strategy is registered for the given play type.
+     *
+     * @param playType the play type
+     * @return true if the type can be priced
+     */
+    public boolean supports(final String playType) {
+        return strategies.containsKey(playType);
+    }
+
+    /**
+     * Returns the registered play types.
+     *
+     * @return an unmodifiable view of the play types
+     */
+    public Set<String> getPlayTypes() {
+        return Collections.unmodifiableSet(strategies.keySet());
+    }
+
+    /**
+     * Returns the strategy for the given play type.
+     *
+     * @param playType the play type
+     * @return the shared strategy
+     * @throws RuntimeException if the play type is unknown
+     */
+    public PricingStrategy lookup(final String playType) {
+        final PricingStrategy strategy = strategies.get(playType);
+        if (strategy == null) {
+            throw new RuntimeException(String.format("unknown type: %s", playType));
+        }
+        return strategy;
+    }
+
+    /**
+     * Checks up front that every play can be priced, so that an unknown type
+     * fails before any invoice is processed.
+     *
+     * @param plays the plays to check
+     * @throws RuntimeException naming the first unknown play type
+     */
+    public void validate(final Collection<Play> plays) {
+        for (final Play play : plays) {
+            lookup(play.getType());
+        }
+    }
+
+    /**
+     * Lazily initialised default registry.
+     */
+    private static final class DefaultHolder {
+        private static final PricingRegistry INSTANCE = createDefault();
+
+        private static PricingRegistry createDefault() {
+            final PricingRegistry registry = PricingRuleSet.loadDefault().toRegistry();
+            for (final PricingStrategy strategy : ServiceLoader.load(PricingStrategy.class)) {
+                registry.register(strategy);
+            }
+            return registry;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package theater;
+
+import java.util.Objects;
+
+/**
+ * Pricing rules for one play type, given as data instead of code.
+ * <p>
+ * Every built-in calculator is a special case of the same two formulas:
+ * </p>
+ * <pre>
+ * amount  = base + perSeat * audience
+ *           + (audience &gt; threshold ? overBase + overPerSeat * (audience - threshold) : 0)
+ * credits = max(audience - creditThreshold, 0)
+ *           + (creditDivisor &gt; 0 ? audience / creditDivisor : 0)
+ * </pre>
+ * <p>
+ * The constructor compiles the coefficients into a cheaper equivalent form:
+ * the amount becomes one multiply-add on each side of the threshold, and a
+ * power-of-two credit divisor becomes a shift. Evaluation is branch-light
+ * integer arithmetic with no allocation.
+ * </p>
+ */
+public final class PricingRule implements PricingStrategy {
+
+    private final String playType;
+    private final int base;
+    private final int perSeat;
+    private final int threshold;
+    private final int overBase;
+    private final int overPerSeat;
+    private final int creditThreshold;
+    private final int creditDivisor;
+
+    // the amount formula folded into one linear piece on each side of the threshold
+    private final int aboveBase;
+    private final int aboveRate;
+    // one bonus credit per 2^creditShift seats, or -1 if the divisor is not a power of two
+    private final int creditShift;
+
+    /**
+     * Creates a rule.
+     *
+     * @param playType        the play type priced by this rule
+     * @param base            the flat amount, in cents
+     * @param perSeat         the amount per audience member, in cents
+     * @param threshold       the audience size above which the surcharge applies
+     * @param overBase        the flat surcharge above the threshold, in cents
+     * @param overPerSeat     the surcharge per audience member above the threshold, in cents
+     * @param creditThreshold the audience size above which each seat earns a credit
+     * @param creditDivisor   one bonus credit per this many seats, or 0 for no bonus
+     * @throws IllegalArgumentException if a threshold or the divisor is negative
+     */
+    public PricingRule(final String playType, final int base, final int perSeat, final int threshold,
+                       final int overBase, final int overPerSeat, final int creditThreshold,
+                       final int creditDivisor) {
+        if (threshold < 0 || creditThreshold < 0 || creditDivisor < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "invalid pricing rule for %s: thresholds and divisor must not be negative", playType));
+        }
+        this.playType = playType;
+        this.base = base;
+        this.perSeat = perSeat;
+        this.threshold = threshold;
+        this.overBase = overBase;
+        this.overPerSeat = overPerSeat;
+        this.creditThreshold = creditThreshold;
+        this.creditDivisor = creditDivisor;
+        // int arithmetic wraps consistently, so folding cannot change any result
+        this.aboveBase = base + overBase - overPerSeat * threshold;
+        this.aboveRate = perSeat + overPerSeat;
+        if (creditDivisor > 0 && Integer.bitCount(creditDivisor) == 1) {
+            this.creditShift = Integer.numberOfTrailingZeros(creditDivisor);
+        }
+        else {
+            this.creditShift = -1;
+        }
+    }
+
+    @Override
+    public String getPlayType() {
+        return playType;
+    }
+
+    @Override
+    public int amountFor(final int audience) {
+        if (audience > threshold) {
+            return aboveBase + aboveRate * audience;
+        }
+        return base + perSeat * audience;
+    }
+
+    @Override
+    public int volumeCreditsFor(final int audience) {
+        int result = Math.max(audience - creditThreshold, 0);
+        if (creditShift >= 0) {
+            // division rounding toward zero, as '/' does, without an idiv
+            result += (audience + (audience >> (Integer.SIZE - 1) & creditDivisor - 1)) >> creditShift;
+        }
+        else if (creditDivisor > 0) {
+            result += audience / creditDivisor;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the play type and every coefficient.
+     *
+     * @return the fingerprint
+     */
+    @Override
+    public long fingerprint() {
+        long hash = Constants.FNV_OFFSET_BASIS;
+        for (int i = 0; i < playType.length(); i++) {
+            hash = (hash ^ playType.charAt(i)) * Constants.FNV_PRIME;
+        }
+        final int[] coefficients = {base, perSeat, threshold, overBase, overPerSeat, creditThreshold, creditDivisor};
+        for (final int coefficient : coefficients) {
+            hash = (hash ^ coefficient) * Constants.FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof PricingRule)) {
+            return false;
+        }
+        final PricingRule rule = (PricingRule) other;
+        return playType.equals(rule.playType)
+                && base == rule.base
+                && perSeat == rule.perSeat
+                && threshold == rule.threshold
+                && overBase == rule.overBase
+                && overPerSeat == rule.overPerSeat
+                && creditThreshold == rule.creditThreshold
+                && creditDivisor == rule.creditDivisor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playType, base, perSeat, threshold, overBase, overPerSeat,
+                creditThreshold, creditDivisor);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: base=%d perSeat=%d threshold=%d overBase=%d overPerSeat=%d"
+                        + " creditThreshold=%d creditDivisor=%d",
+                playType, base, perSeat, threshold, overBase, overPerSeat, creditThreshold, creditDivisor);
+    }
+}
@@ -0,0 +1,180 @@
+package theater;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable set of {@link PricingRule}s, one per play type, loaded from a
+ * properties file such as the bundled {@code theater/pricing.properties}.
+ * <p>
+ * Keys have the form {@code <play type>.<field>}, where the field is one of
+ * {@code base}, {@code perSeat}, {@code threshold}, {@code overBase},
+ * {@code overPerSeat}, {@code creditThreshold} and {@code creditDivisor};
+ * omitted fields are 0. A file is parsed and validated completely before a
+ * rule set is returned, so a bad edit never yields a half-loaded set.
+ * </p>
+ */
+public final class PricingRuleSet {
+
+    /** Classpath location of the default rules. */
+    public static final String DEFAULT_RESOURCE = "theater/pricing.properties";
+
+    private static final String[] FIELDS = {
+        "base", "perSeat", "threshold", "overBase", "overPerSeat", "creditThreshold", "creditDivisor"};
+
+    private final Map<String, PricingRule> rules;
+
+    private PricingRuleSet(final Map<String, PricingRule> rules) {
+        this.rules = Collections.unmodifiableMap(rules);
+    }
+
+    /**
+     * Loads the rules bundled with the application, which reproduce the
+     * built-in calculators exactly.
+     *
+     * @return the default rule set
+     * @throws IllegalStateException if the resource is missing or invalid
+     */
+    public static PricingRuleSet loadDefault() {
+        try (InputStream in = PricingRuleSet.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("missing pricing rules: " + DEFAULT_RESOURCE);
+            }
+            return load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Loads rules from a file.
+     *
+     * @param file the properties file, in UTF-8
+     * @return the rule set
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a key or value is invalid
+     */
+    public static PricingRuleSet load(final Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Loads rules in properties format.
+     *
+     * @param reader the rules
+     * @return the rule set
+     * @throws IOException if reading fails
+     * @throws IllegalArgumentException if a key or value is invalid
+     */
+    public static PricingRuleSet load(final Reader reader) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(reader);
+        return of(properties);
+    }
+
+    /**
+     * Builds rules from already-loaded properties.
+     *
+     * @param properties the rules
+     * @return the rule set
+     * @throws IllegalArgumentException if a key or value is invalid
+     */
+    public static PricingRuleSet of(final Properties properties) {
+        final Map<String, int[]> values = new TreeMap<>();
+        for (final String key : properties.stringPropertyNames()) {
+            final int dot = key.lastIndexOf('.');
+            final int field = fieldIndex(key.substring(dot + 1));
+            if (dot <= 0 || field < 0) {
+                throw new IllegalArgumentException(String.format("invalid pricing key: %s", key));
+            }
+            final String value = properties.getProperty(key).trim();
+            try {
+                values.computeIfAbsent(key.substring(0, dot), type -> new int[FIELDS.length])[field] =
+                        Integer.parseInt(value);
+            }
+            catch (NumberFormatException exception) {
+                throw new IllegalArgumentException(String.format("invalid pricing value for %s: %s", key, value),
+                        exception);
+            }
+        }
+        final Map<String, PricingRule> rules = new HashMap<>();
+        for (final Map.Entry<String, int[]> entry : values.entrySet()) {
+            final int[] v = entry.getValue();
+            int i = 0;
+            rules.put(entry.getKey(),
+                    new PricingRule(entry.getKey(), v[i++], v[i++], v[i++], v[i++], v[i++], v[i++], v[i]));
+        }
+        return new PricingRuleSet(rules);
+    }
+
+    private static int fieldIndex(final String name) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the play types that have rules.
+     *
+     * @return an unmodifiable set of play types
+     */
+    public Set<String> getPlayTypes() {
+        return rules.keySet();
+    }
+
+    /**
+     * Returns the rule for a play type.
+     *
+     * @param playType the play type
+     * @return the rule
+     * @throws RuntimeException if the play type has no rule
+     */
+    public PricingRule getRule(final String playType) {
+        final PricingRule rule = rules.get(playType);
+        if (rule == null) {
+            throw new RuntimeException(String.format("unknown type: %s", playType));
+        }
+        return rule;
+    }
+
+    /**
+     * Creates a registry pricing every play type with these rules.
+     *
+     * @return a new registry
+     */
+    public PricingRegistry toRegistry() {
+        final PricingRegistry registry = new PricingRegistry();
+        for (final PricingRule rule : rules.values()) {
+            registry.register(rule);
+        }
+        return registry;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof PricingRuleSet && rules.equals(((PricingRuleSet) other).rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return rules.hashCode();
+    }
+}
@@ -0,0 +1,81 @@
+package theater;
+
+/**
+ * Stateless pricing rules for one play type.
+ * <p>
+ * Implementations must not keep per-performance state, so a single instance
+ * can be shared by every statement and every thread. Strategies are looked up
+ * by {@link #getPlayType()} in a {@link PricingRegistry}; additional types can
+ * be contributed through {@link java.util.ServiceLoader} by listing the
+ * implementation in {@code META-INF/services/theater.PricingStrategy}.
+ * </p>
+ */
+public interface PricingStrategy {
+
+    /**
+     * Returns the play type these rules apply to, e.g. "tragedy".
+     *
+     * @return the play type
+     */
+    String getPlayType();
+
+    /**
+     * Calculates the amount (in cents) for a performance with the given audience.
+     *
+     * @param audience the audience size
+     * @return the amount in cents
+     */
+    int amountFor(int audience);
+
+    /**
+     * Calculates the volume credits for a performance with the given audience.
+     *
+     * @param audience the audience size
+     * @return the volume credits
+     */
+    int volumeCreditsFor(int audience);
+
+    /**
+     * Identifies the prices these rules charge. A {@link PlayCatalog} mixes it
+     * into its {@link PlayCatalog#getVersion() version}, so when the prices
+     * change, caches keyed by that version stop serving old statements.
+     * <p>
+     * The default identifies the implementation class, which is enough for
+     * rules fixed in code. Strategies whose prices are data, or can otherwise
+     * change while the class stays the same, must override it so that
+     * different prices give different fingerprints; wrappers return the
+     * fingerprint of the strategy they wrap.
+     * </p>
+     *
+     * @return the fingerprint
+     */
+    default long fingerprint() {
+        return getClass().getName().hashCode();
+    }
+
+    /**
+     * Calculates the amounts for many audiences in one call.
+     *
+     * @param audiences the audience sizes
+     * @param amounts   receives the amount in cents for each audience; must be at
+     *                  least as long as {@code audiences}
+     */
+    default void amountsFor(final int[] audiences, final int[] amounts) {
+        for (int i = 0; i < audiences.length; i++) {
+            amounts[i] = amountFor(audiences[i]);
+        }
+    }
+
+    /**
+     * Calculates the volume credits for many audiences in one call.
+     *
+     * @param audiences the audience sizes
+     * @param credits   receives the volume credits for each audience; must be at
+     *                  least as long as {@code audiences}
+     */
+    default void volumeCreditsFor(final int[] audiences, final int[] credits) {
+        for (int i = 0; i < audiences.length; i++) {
+            credits[i] = volumeCreditsFor(audiences[i]);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package theater;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the live {@link PricingRuleSet} and replaces it atomically.
+ * <p>
+ * Statements capture the rules once, when their {@link PlayCatalog} or
+ * {@link PricingRegistry} is built from {@link #catalog(Map)} or
+ * {@link #registry()}, and keep using them to the end. A reload therefore
+ * never blocks or disturbs statements in flight: they finish with the old
+ * prices, and every statement started afterwards sees the new ones.
+ * </p>
+ */
+public final class ReloadablePricing {
+
+    private final AtomicReference<Generation> current;
+
+    /**
+     * Creates a holder starting with the given rules.
+     *
+     * @param rules the initial rules
+     */
+    public ReloadablePricing(final PricingRuleSet rules) {
+        this.current = new AtomicReference<>(new Generation(rules));
+    }
+
+    /**
+     * Creates a holder starting with the bundled default rules.
+     *
+     * @return the holder
+     */
+    public static ReloadablePricing withDefaults() {
+        return new ReloadablePricing(PricingRuleSet.loadDefault());
+    }
+
+    /**
+     * Returns the live rules.
+     *
+     * @return the current rule set
+     */
+    public PricingRuleSet rules() {
+        return current.get().rules;
+    }
+
+    /**
+     * Returns a registry pricing with the live rules. The registry is shared
+     * by all callers until the next swap and must not be modified.
+     *
+     * @return the current registry
+     */
+    public PricingRegistry registry() {
+        return current.get().registry;
+    }
+
+    /**
+     * Builds a catalog bound to the live rules.
+     *
+     * @param plays the mapping from play id to play
+     * @return the catalog
+     * @throws RuntimeException if a play has a type with no rule
+     */
+    public PlayCatalog catalog(final Map<String, Play> plays) {
+        return PlayCatalog.of(plays, registry());
+    }
+
+    /**
+     * Replaces the live rules.
+     *
+     * @param rules the new rules
+     * @return the rules that were replaced
+     */
+    public PricingRuleSet swap(final PricingRuleSet rules) {
+        return current.getAndSet(new Generation(rules)).rules;
+    }
+
+    /**
+     * Loads rules from a file and makes them live. If the file cannot be read
+     * or is invalid, the live rules are left unchanged.
+     *
+     * @param file the properties file
+     * @return the rules that were replaced
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is invalid
+     */
+    public PricingRuleSet reload(final Path file) throws IOException {
+        return swap(PricingRuleSet.load(file));
+    }
+
+    /**
+     * The current rules together with the registry built from them, so that
+     * readers never see one without the other.
+     */
+    private static final class Generation {
+        private final PricingRuleSet rules;
+        private final PricingRegistry registry;
+
+        Generation(final PricingRuleSet rules) {
+            this.rules = rules;
+            this.registry = rules.toRegistry();
+        }
+    }
+}
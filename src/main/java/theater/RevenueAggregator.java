@@ -0,0 +1,270 @@
+package theater;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Totals revenue and volume credits per play, play type and customer across
+ * any number of invoices, without rendering statements.
+ * <p>
+ * Performances are priced by the catalog's {@link PricingStrategy}s, exactly
+ * as {@link StatementData} prices them, but every sum is a {@code long}, so
+ * totals over millions of invoices cannot overflow.
+ * </p>
+ * <p>
+ * Aggregation is a {@link Collector}: on a parallel stream each worker fills
+ * its own accumulator and the accumulators are added together at the end, so
+ * threads never contend on shared counters and throughput grows with the
+ * number of cores.
+ * </p>
+ */
+public final class RevenueAggregator {
+
+    private final PlayCatalog catalog;
+
+    /**
+     * Creates an aggregator.
+     *
+     * @param catalog the plays and their pricing rules
+     */
+    public RevenueAggregator(final PlayCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Aggregates a collection of invoices in parallel on the common fork-join pool.
+     *
+     * @param invoices the invoices
+     * @return the totals
+     * @throws RuntimeException if an invoice refers to a play missing from the catalog
+     */
+    public RevenueReport aggregate(final Collection<Invoice> invoices) {
+        return aggregate(invoices.parallelStream());
+    }
+
+    /**
+     * Aggregates a stream of invoices, in parallel if the stream is parallel.
+     *
+     * @param invoices the invoices
+     * @return the totals
+     * @throws RuntimeException if an invoice refers to a play missing from the catalog
+     */
+    public RevenueReport aggregate(final Stream<Invoice> invoices) {
+        return invoices.collect(collector());
+    }
+
+    /**
+     * Returns a collector that aggregates invoices into a report.
+     *
+     * @return the collector
+     */
+    public Collector<Invoice, ?, RevenueReport> collector() {
+        final Supplier<Accumulator> supplier = () -> new Accumulator(catalog.size());
+        final BiConsumer<Accumulator, Invoice> accumulator = this::accumulate;
+        final BinaryOperator<Accumulator> combiner = Accumulator::merge;
+        final Function<Accumulator, RevenueReport> finisher = this::finish;
+        return Collector.of(supplier, accumulator, combiner, finisher, Collector.Characteristics.UNORDERED);
+    }
+
+    private void accumulate(final Accumulator totals, final Invoice invoice) {
+        long amount = 0;
+        long credits = 0;
+        int count = 0;
+        for (final Performance performance : invoice.getPerformances()) {
+            final PlayCatalog.PricedPlay play = catalog.lookup(performance.getPlayID());
+            final int handle = play.getHandle();
+            final int audience = performance.getAudience();
+            final int lineAmount = play.amountFor(audience);
+            final int lineCredits = play.volumeCreditsFor(audience);
+            totals.amounts[handle] += lineAmount;
+            totals.credits[handle] += lineCredits;
+            totals.performances[handle]++;
+            amount += lineAmount;
+            credits += lineCredits;
+            count++;
+        }
+        final long[] customer = totals.byCustomer.computeIfAbsent(
+                invoice.getCustomer(), name -> new long[Totals.FIELDS]);
+        customer[Totals.AMOUNT] += amount;
+        customer[Totals.CREDITS] += credits;
+        customer[Totals.PERFORMANCES] += count;
+    }
+
+    private RevenueReport finish(final Accumulator totals) {
+        final Map<String, Totals> byPlay = new TreeMap<>();
+        final Map<String, long[]> byType = new TreeMap<>();
+        for (int handle = 0; handle < catalog.size(); handle++) {
+            if (totals.performances[handle] == 0) {
+                continue;
+            }
+            byPlay.put(catalog.getPlayID(handle),
+                    new Totals(totals.amounts[handle], totals.credits[handle], totals.performances[handle]));
+            final long[] type = byType.computeIfAbsent(catalog.getType(handle), name -> new long[Totals.FIELDS]);
+            type[Totals.AMOUNT] += totals.amounts[handle];
+            type[Totals.CREDITS] += totals.credits[handle];
+            type[Totals.PERFORMANCES] += totals.performances[handle];
+        }
+        return new RevenueReport(byPlay, toTotals(byType), toTotals(totals.byCustomer));
+    }
+
+    private static Map<String, Totals> toTotals(final Map<String, long[]> sums) {
+        final Map<String, Totals> result = new TreeMap<>();
+        for (final Map.Entry<String, long[]> entry : sums.entrySet()) {
+            final long[] sum = entry.getValue();
+            result.put(entry.getKey(), new Totals(sum[Totals.AMOUNT], sum[Totals.CREDITS], sum[Totals.PERFORMANCES]));
+        }
+        return result;
+    }
+
+    /**
+     * Per-worker running sums: one slot per catalog handle plus a map of
+     * customer sums.
+     */
+    private static final class Accumulator {
+        private final long[] amounts;
+        private final long[] credits;
+        private final long[] performances;
+        private final Map<String, long[]> byCustomer = new HashMap<>();
+
+        Accumulator(final int plays) {
+            this.amounts = new long[plays];
+            this.credits = new long[plays];
+            this.performances = new long[plays];
+        }
+
+        Accumulator merge(final Accumulator other) {
+            for (int handle = 0; handle < amounts.length; handle++) {
+                amounts[handle] += other.amounts[handle];
+                credits[handle] += other.credits[handle];
+                performances[handle] += other.performances[handle];
+            }
+            for (final Map.Entry<String, long[]> entry : other.byCustomer.entrySet()) {
+                final long[] mine = byCustomer.putIfAbsent(entry.getKey(), entry.getValue());
+                if (mine != null) {
+                    for (int field = 0; field < Totals.FIELDS; field++) {
+                        mine[field] += entry.getValue()[field];
+                    }
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Amount, credits and performance count for one play, type or customer.
+     */
+    public static final class Totals {
+        static final int AMOUNT = 0;
+        static final int CREDITS = 1;
+        static final int PERFORMANCES = 2;
+        static final int FIELDS = 3;
+
+        private final long amount;
+        private final long volumeCredits;
+        private final long performanceCount;
+
+        Totals(final long amount, final long volumeCredits, final long performanceCount) {
+            this.amount = amount;
+            this.volumeCredits = volumeCredits;
+            this.performanceCount = performanceCount;
+        }
+
+        /**
+         * Returns the revenue.
+         *
+         * @return the amount in cents
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * Returns the volume credits earned.
+         *
+         * @return the credits
+         */
+        public long getVolumeCredits() {
+            return volumeCredits;
+        }
+
+        /**
+         * Returns the number of performances.
+         *
+         * @return the count
+         */
+        public long getPerformanceCount() {
+            return performanceCount;
+        }
+    }
+
+    /**
+     * The result of an aggregation. Maps are sorted by key and unmodifiable.
+     */
+    public static final class RevenueReport {
+        private final Map<String, Totals> byPlay;
+        private final Map<String, Totals> byType;
+        private final Map<String, Totals> byCustomer;
+        private final Totals total;
+
+        RevenueReport(final Map<String, Totals> byPlay, final Map<String, Totals> byType,
+                      final Map<String, Totals> byCustomer) {
+            this.byPlay = Collections.unmodifiableMap(byPlay);
+            this.byType = Collections.unmodifiableMap(byType);
+            this.byCustomer = Collections.unmodifiableMap(byCustomer);
+            long amount = 0;
+            long credits = 0;
+            long count = 0;
+            for (final Totals totals : byType.values()) {
+                amount += totals.amount;
+                credits += totals.volumeCredits;
+                count += totals.performanceCount;
+            }
+            this.total = new Totals(amount, credits, count);
+        }
+
+        /**
+         * Returns the totals over every invoice.
+         *
+         * @return the grand totals
+         */
+        public Totals getTotal() {
+            return total;
+        }
+
+        /**
+         * Returns the totals per play.
+         *
+         * @return the totals keyed by play ID, for plays that were performed
+         */
+        public Map<String, Totals> getByPlay() {
+            return byPlay;
+        }
+
+        /**
+         * Returns the totals per play type.
+         *
+         * @return the totals keyed by type, for types that were performed
+         */
+        public Map<String, Totals> getByType() {
+            return byType;
+        }
+
+        /**
+         * Returns the totals per customer.
+         *
+         * @return the totals keyed by customer name
+         */
+        public Map<String, Totals> getByCustomer() {
+            return byCustomer;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package theater;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of rendered statements.
+ * <p>
+ * Entries are keyed by the content of the {@link Invoice} (its customer and
+ * every play ID and audience), the {@link PlayCatalog#getVersion() catalog
+ * version} and the output format, so a statement is only reused when
+ * everything it was rendered from is unchanged. Keys hold a copy of the
+ * invoice's lines: the hash only narrows the lookup, and a hit is confirmed
+ * by comparing the lines exactly, so two invoices whose hashes collide never
+ * share a statement.
+ * Editing any play produces a catalog with a new version, which misses every
+ * older entry; {@link #retainCatalogVersion(long)} then drops those entries
+ * eagerly instead of waiting for them to age out.
+ * </p>
+ * <p>
+ * The cache holds at most {@code maxBytes} of statement text, evicting the
+ * least recently used entries first. When several threads miss on the same
+ * key at once, only one renders the statement and the others wait for it.
+ * </p>
+ */
+public final class StatementCache {
+
+    /** Approximate fixed heap cost of one entry besides its characters. */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    /** Approximate heap cost of one invoice line held by a key: an audience and a play ID reference. */
+    private static final int KEY_LINE_BYTES = Integer.BYTES * 2;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final ConcurrentMap<Key, CompletableFuture<String>> loading = new ConcurrentHashMap<>();
+    private long sizeBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxBytes the budget for cached statements, in bytes of heap
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     */
+    public StatementCache(final long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the rendered statement, rendering and caching it on a miss.
+     *
+     * @param invoice the invoice
+     * @param catalog the plays and their pricing rules
+     * @param format  the output format
+     * @return the statement
+     * @throws RuntimeException if rendering fails, e.g. for an unknown play; a
+     *                          thread that waited for another's rendering gets
+     *                          the same exception
+     */
+    public String statement(final Invoice invoice, final PlayCatalog catalog, final StatementFormat format) {
+        final Key key = new Key(invoice, catalog.getVersion(), format);
+        final String cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        final CompletableFuture<String> mine = new CompletableFuture<>();
+        final CompletableFuture<String> theirs = loading.putIfAbsent(key, mine);
+        if (theirs != null) {
+            hits.increment();
+            return await(theirs);
+        }
+        try {
+            // another thread may have finished loading between lookup() and putIfAbsent()
+            String statement = lookup(key);
+            if (statement == null) {
+                misses.increment();
+                statement = format.newPrinter(new StatementData(invoice, catalog)).statement();
+                store(key, statement);
+            }
+            else {
+                hits.increment();
+            }
+            mine.complete(statement);
+            return statement;
+        }
+        catch (RuntimeException | Error exception) {
+            mine.completeExceptionally(exception);
+            throw exception;
+        }
+        finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    private static String await(final CompletableFuture<String> loading) {
+        try {
+            return loading.join();
+        }
+        catch (CompletionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Drops every entry rendered against a catalog version other than the
+     * given one, typically right after the catalog was rebuilt.
+     *
+     * @param catalogVersion the version to keep
+     */
+    public synchronized void retainCatalogVersion(final long catalogVersion) {
+        final Iterator<Map.Entry<Key, String>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, String> entry = iterator.next();
+            if (entry.getKey().catalogVersion != catalogVersion) {
+                sizeBytes -= weigh(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    /**
+     * Returns the number of cached statements.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the approximate heap used by cached statements.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Returns the number of requests served from the cache, including those
+     * that waited for another thread's rendering.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of requests that rendered a statement.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries evicted to stay within the byte budget.
+     *
+     * @return the eviction count
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private synchronized String lookup(final Key key) {
+        return entries.get(key);
+    }
+
+    private synchronized void store(final Key key, final String statement) {
+        final long weight = weigh(key, statement);
+        if (weight > maxBytes) {
+            return;
+        }
+        final String previous = entries.put(key, statement);
+        if (previous != null) {
+            sizeBytes -= weigh(key, previous);
+        }
+        sizeBytes += weight;
+        final Iterator<Map.Entry<Key, String>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes) {
+            final Map.Entry<Key, String> entry = eldest.next();
+            sizeBytes -= weigh(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long weigh(final Key key, final String statement) {
+        return (long) statement.length() * Character.BYTES + key.weigh() + ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Cache key: a copy of the invoice's content, the catalog version and the
+     * format, with an FNV-1a hash of all of them computed once.
+     */
+    private static final class Key {
+        private final String customer;
+        private final String[] playIDs;
+        private final int[] audiences;
+        private final long catalogVersion;
+        private final StatementFormat format;
+        private final int hash;
+
+        Key(final Invoice invoice, final long catalogVersion, final StatementFormat format) {
+            final List<Performance> performances = invoice.getPerformances();
+            this.customer = invoice.getCustomer();
+            this.playIDs = new String[performances.size()];
+            this.audiences = new int[performances.size()];
+            this.catalogVersion = catalogVersion;
+            this.format = format;
+
+            long result = mix(Constants.FNV_OFFSET_BASIS, customer);
+            for (int i = 0; i < playIDs.length; i++) {
+                final Performance performance = performances.get(i);
+                playIDs[i] = performance.getPlayID();
+                audiences[i] = performance.getAudience();
+                result = mix(result, playIDs[i]);
+                result = (result ^ audiences[i]) * Constants.FNV_PRIME;
+            }
+            result = (result ^ catalogVersion) * Constants.FNV_PRIME;
+            result = (result ^ format.ordinal()) * Constants.FNV_PRIME;
+            this.hash = Long.hashCode(result);
+        }
+
+        long weigh() {
+            return (long) customer.length() * Character.BYTES + (long) audiences.length * KEY_LINE_BYTES;
+        }
+
+        private static long mix(final long hash, final String value) {
+            long result = hash;
+            for (int i = 0; i < value.length(); i++) {
+                result = (result ^ value.charAt(i)) * Constants.FNV_PRIME;
+            }
+            return (result ^ Character.MAX_VALUE) * Constants.FNV_PRIME;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return hash == key.hash
+                    && catalogVersion == key.catalogVersion
+                    && format == key.format
+                    && customer.equals(key.customer)
+                    && Arrays.equals(audiences, key.audiences)
+                    && Arrays.equals(playIDs, key.playIDs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
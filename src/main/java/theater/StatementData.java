@@ -6,46 +6,152 @@ import java.util.Map;
 
 /**
  * Holds all calculated data for a statement (customer, performances, totals).
+ * Every performance is priced once, during construction, and the totals are
+ * accumulated in the same pass.
  */
-public class StatementData {
+public class StatementData implements StatementSource {
     // 3.1: 删除了未使用的 TYPE_TRAGEDY 和 TYPE_COMEDY 常量
 
     private final String customer;
     private final List<PerformanceData> performances = new ArrayList<>();
     private final Map<String, Play> plays;
+    private final PricingRegistry registry;
+    private final int totalAmount;
+    private final int volumeCredits;
 
+    /**
+     * Prices every performance of the invoice with the default
+     * {@link PricingRegistry} and accumulates the totals.
+     * @param invoice the invoice to price
+     * @param plays the mapping from play id to play
+     */
     public StatementData(final Invoice invoice, final Map<String, Play> plays) {
+        this(invoice, plays, PricingRegistry.getDefault());
+    }
+
+    /**
+     * Prices every performance of the invoice and accumulates the totals.
+     * @param invoice the invoice to price
+     * @param plays the mapping from play id to play
+     * @param registry the pricing rules to use, keyed by play type
+     */
+    public StatementData(final Invoice invoice, final Map<String, Play> plays,
+                         final PricingRegistry registry) {
+        final long start = StatementMetrics.get().start();
+        final StatementEvents.Build event = new StatementEvents.Build();
+        event.begin();
         this.customer = invoice.getCustomer();
         this.plays = plays;
+        this.registry = registry;
 
+        int amountSum = 0;
+        int creditSum = 0;
+        int line = 0;
         // 3.1: 在构造函数里完成 performance 级别的计算
         for (final Performance performance : invoice.getPerformances()) {
+            final StatementEvents.Pricing sample = beginPricingSample(line++);
             // 4.1: 调用 createPerformanceData 辅助方法
-            this.performances.add(createPerformanceData(performance));
+            final PerformanceData perfData = createPerformanceData(performance);
+            if (sample != null) {
+                endPricingSample(sample, plays.get(performance.getPlayID()).getType(), perfData.getAudience());
+            }
+            this.performances.add(perfData);
+            amountSum += perfData.getAmount();
+            creditSum += perfData.getVolumeCredits();
         }
+        this.totalAmount = amountSum;
+        this.volumeCredits = creditSum;
+        StatementMetrics.get().recordBuild(start);
+        commitBuild(event);
     }
 
     /**
-     * 4.1: 辅助方法，使用 Factory Method 创建计算器并实例化 PerformanceData。
+     * Prices every performance of the invoice against a prebuilt catalog, whose
+     * play types were already resolved to pricing strategies.
+     * @param invoice the invoice to price
+     * @param catalog the plays and their pricing rules
+     * @throws RuntimeException if the invoice refers to a play missing from the catalog
+     */
+    public StatementData(final Invoice invoice, final PlayCatalog catalog) {
+        final long start = StatementMetrics.get().start();
+        final StatementEvents.Build event = new StatementEvents.Build();
+        event.begin();
+        this.customer = invoice.getCustomer();
+        this.plays = null;
+        this.registry = null;
+
+        int amountSum = 0;
+        int creditSum = 0;
+        int line = 0;
+        for (final Performance performance : invoice.getPerformances()) {
+            final StatementEvents.Pricing sample = beginPricingSample(line++);
+            final PlayCatalog.PricedPlay play = catalog.lookup(performance.getPlayID());
+            final PerformanceData perfData = new PerformanceData(performance, play.getPlay(), play.getPricing());
+            if (sample != null) {
+                endPricingSample(sample, play.getType(), perfData.getAudience());
+            }
+            this.performances.add(perfData);
+            amountSum += perfData.getAmount();
+            creditSum += perfData.getVolumeCredits();
+        }
+        this.totalAmount = amountSum;
+        this.volumeCredits = creditSum;
+        StatementMetrics.get().recordBuild(start);
+        commitBuild(event);
+    }
+
+    private void commitBuild(final StatementEvents.Build event) {
+        if (event.shouldCommit()) {
+            event.customer = customer;
+            event.performanceCount = performances.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts a JFR pricing event for every
+     * {@value StatementEvents#PRICING_SAMPLE_INTERVAL}th performance.
+     * @param line the index of the performance in the invoice
+     * @return the started event, or {@code null} if this performance is not sampled
+     */
+    private static StatementEvents.Pricing beginPricingSample(final int line) {
+        if (line % StatementEvents.PRICING_SAMPLE_INTERVAL != 0) {
+            return null;
+        }
+        final StatementEvents.Pricing event = new StatementEvents.Pricing();
+        event.begin();
+        return event;
+    }
+
+    private static void endPricingSample(final StatementEvents.Pricing event, final String playType,
+                                         final int audience) {
+        if (event.shouldCommit()) {
+            event.playType = playType;
+            event.audience = audience;
+            event.commit();
+        }
+    }
+
+    /**
+     * 4.1: 辅助方法，查找共享的 PricingStrategy 并实例化 PerformanceData。
      * @param performance the performance data to be processed.
-     * @return a new PerformanceData instance with an associated calculator.
+     * @return a new PerformanceData instance priced by the play type's strategy.
      */
     private PerformanceData createPerformanceData(final Performance performance) {
         // 4.1: 获取 Play 实例
         final Play play = this.plays.get(performance.getPlayID());
 
-        // 4.1: 使用 Factory Method 创建计算器
-        final AbstractPerformanceCalculator calculator =
-                AbstractPerformanceCalculator.createPerformanceCalculator(performance, play);
+        // shared, stateless rules: nothing is allocated per performance here
+        final PricingStrategy pricing = registry.lookup(play.getType());
 
-        // 4.1: 使用计算器创建 PerformanceData (PerformanceData 构造函数需要计算器)
-        return new PerformanceData(performance, play, calculator);
+        return new PerformanceData(performance, play, pricing);
     }
 
     /**
      * Returns the customer name.
      * @return the customer name
      */
+    @Override
     public String getCustomer() {
         return customer;
     }
@@ -54,27 +160,46 @@ public class StatementData {
         return performances;
     }
 
+    @Override
+    public int size() {
+        return performances.size();
+    }
+
+    @Override
+    public String getName(final int line) {
+        return performances.get(line).getName();
+    }
+
+    @Override
+    public int getAudience(final int line) {
+        return performances.get(line).getAudience();
+    }
+
+    @Override
+    public int getAmount(final int line) {
+        return performances.get(line).getAmount();
+    }
+
+    @Override
+    public int getVolumeCredits(final int line) {
+        return performances.get(line).getVolumeCredits();
+    }
+
     /**
-     * Calculates the total amount owed for all performances.
+     * Returns the total amount owed for all performances.
      * @return the total amount owed in cents
      */
+    @Override
     public int totalAmount() {
-        int result = 0;
-        for (final PerformanceData perfData : performances) {
-            result += perfData.getAmount();
-        }
-        return result;
+        return totalAmount;
     }
 
     /**
-     * Calculates the total volume credits earned for all performances.
+     * Returns the total volume credits earned for all performances.
      * @return the total volume credits earned
      */
+    @Override
     public int volumeCredits() {
-        int result = 0;
-        for (final PerformanceData perfData : performances) {
-            result += perfData.getVolumeCredits();
-        }
-        return result;
+        return volumeCredits;
     }
 }
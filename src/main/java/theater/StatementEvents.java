@@ -0,0 +1,103 @@
+package theater;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for statement generation.
+ * <p>
+ * The events are only written while a recording has them enabled; otherwise
+ * creating, beginning and committing one is optimised away by the JIT. They
+ * are grouped under the "Theater" category, so a recording can be sliced by
+ * customer, invoice size, play type and output format.
+ * </p>
+ */
+final class StatementEvents {
+
+    /** Price one performance in this many, starting with the first of each invoice. */
+    static final int PRICING_SAMPLE_INTERVAL = 1024;
+
+    /** Size reported to JFR when the output's encoding is not known. */
+    static final long UNKNOWN_SIZE = -1;
+
+    private static final String CATEGORY = "Theater";
+
+    private StatementEvents() {
+    }
+
+    /**
+     * Reading one invoice from JSON.
+     */
+    @Name("theater.InvoiceIngest")
+    @Label("Invoice Ingest")
+    @Category(CATEGORY)
+    @Description("Parses one invoice from JSON")
+    static final class Ingest extends Event {
+        @Label("Customer")
+        String customer;
+
+        @Label("Performances")
+        int performanceCount;
+    }
+
+    /**
+     * Pricing every performance of one invoice.
+     */
+    @Name("theater.StatementBuild")
+    @Label("Statement Build")
+    @Category(CATEGORY)
+    @Description("Prices every performance of an invoice and accumulates the totals")
+    static final class Build extends Event {
+        @Label("Customer")
+        String customer;
+
+        @Label("Performances")
+        int performanceCount;
+    }
+
+    /**
+     * Pricing one performance, sampled.
+     */
+    @Name("theater.Pricing")
+    @Label("Performance Pricing")
+    @Category(CATEGORY)
+    @Description("Prices one performance; only one in " + PRICING_SAMPLE_INTERVAL + " is recorded")
+    static final class Pricing extends Event {
+        @Label("Play Type")
+        String playType;
+
+        @Label("Audience")
+        int audience;
+    }
+
+    /**
+     * Rendering one statement.
+     */
+    @Name("theater.StatementRender")
+    @Label("Statement Render")
+    @Category(CATEGORY)
+    @Description("Renders one statement")
+    static final class Render extends Event {
+        @Label("Customer")
+        String customer;
+
+        @Label("Performances")
+        int performanceCount;
+
+        @Label("Format")
+        String format;
+
+        @Label("Size")
+        @Description("Encoded size of the output, or -1 when rendering into a caller's Appendable")
+        @DataAmount(DataAmount.BYTES)
+        long size;
+
+        @Label("Outputs")
+        @Description("Number of formats rendered in the same pass; the duration covers all of them")
+        int outputs;
+    }
+}
@@ -0,0 +1,174 @@
+package theater;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders one statement in several formats in a single pass.
+ * <p>
+ * The invoice is priced once, and the statement data is traversed once,
+ * each line item being handed to every format's printer in turn, instead of
+ * building and traversing the statement data once per format.
+ * </p>
+ * <pre>
+ * new StatementFanOut(new StatementData(invoice, catalog))
+ *         .to(StatementFormat.TEXT, textOut)
+ *         .to(StatementFormat.CSV, csvOut)
+ *         .render();
+ * </pre>
+ */
+public final class StatementFanOut {
+
+    private final StatementSource data;
+    private final List<StatementPrinter> printers = new ArrayList<>();
+    private final List<Appendable> outputs = new ArrayList<>();
+
+    /**
+     * Creates a fan-out for statement data that has already been priced.
+     *
+     * @param data the prepared statement data
+     */
+    public StatementFanOut(final StatementSource data) {
+        this.data = data;
+    }
+
+    /**
+     * Renders the statement in every given format.
+     *
+     * @param data    the prepared statement data
+     * @param formats the formats to render
+     * @return the statements, keyed by format
+     */
+    public static Map<StatementFormat, String> renderAll(final StatementSource data,
+                                                         final Set<StatementFormat> formats) {
+        final StatementFanOut fanOut = new StatementFanOut(data);
+        final Map<StatementFormat, StringBuilder> builders = new EnumMap<>(StatementFormat.class);
+        for (final StatementFormat format : formats) {
+            final StringBuilder builder = new StringBuilder();
+            builders.put(format, builder);
+            fanOut.to(format, builder);
+        }
+        try {
+            fanOut.render();
+        }
+        catch (IOException exception) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(exception);
+        }
+        final Map<StatementFormat, String> statements = new EnumMap<>(StatementFormat.class);
+        for (final Map.Entry<StatementFormat, StringBuilder> entry : builders.entrySet()) {
+            statements.put(entry.getKey(), entry.getValue().toString());
+        }
+        return statements;
+    }
+
+    /**
+     * Adds an output.
+     *
+     * @param format the format to render in
+     * @param out    the output to render into
+     * @return this fan-out, for chaining
+     */
+    public StatementFanOut to(final StatementFormat format, final Appendable out) {
+        return to(format.newPrinter(data), out);
+    }
+
+    /**
+     * Adds an output rendered by a custom printer, which should have been
+     * created for the same statement data.
+     *
+     * @param printer the printer whose rendering hooks are used
+     * @param out     the output to render into
+     * @return this fan-out, for chaining
+     */
+    public StatementFanOut to(final StatementPrinter printer, final Appendable out) {
+        printers.add(printer);
+        outputs.add(out);
+        return this;
+    }
+
+    /**
+     * Renders the statement into every output.
+     * <p>
+     * While {@link StatementMetrics} is enabled, the time spent in each
+     * output's printer is measured separately and recorded under that output's
+     * format. One {@code theater.StatementRender} event is written per output;
+     * its duration covers the whole shared pass, and its {@code outputs} field
+     * says how many formats the pass rendered.
+     * </p>
+     *
+     * @throws IOException if an output fails
+     */
+    public void render() throws IOException {
+        final StatementEvents.Render[] events = beginRenderEvents();
+        final boolean timed = StatementMetrics.get().isEnabled();
+        final int sinks = printers.size();
+        final long[] nanos = new long[sinks];
+
+        for (int sink = 0; sink < sinks; sink++) {
+            final long start = clock(timed);
+            printers.get(sink).renderHeader(outputs.get(sink));
+            nanos[sink] += clock(timed) - start;
+        }
+
+        final int size = data.size();
+        for (int line = 0; line < size; line++) {
+            for (int sink = 0; sink < sinks; sink++) {
+                final long start = clock(timed);
+                final StatementPrinter printer = printers.get(sink);
+                final Appendable out = outputs.get(sink);
+                if (line > 0) {
+                    printer.renderLineSeparator(out);
+                }
+                printer.renderLine(out, line);
+                nanos[sink] += clock(timed) - start;
+            }
+        }
+
+        for (int sink = 0; sink < sinks; sink++) {
+            final long start = clock(timed);
+            printers.get(sink).renderFooter(outputs.get(sink));
+            nanos[sink] += clock(timed) - start;
+        }
+
+        for (int sink = 0; sink < sinks; sink++) {
+            if (timed) {
+                StatementMetrics.get().recordRenderingNanos(printers.get(sink).getFormatName(), nanos[sink]);
+            }
+            commitRenderEvent(events[sink], printers.get(sink));
+        }
+    }
+
+    private StatementEvents.Render[] beginRenderEvents() {
+        final StatementEvents.Render[] events = new StatementEvents.Render[printers.size()];
+        for (int sink = 0; sink < events.length; sink++) {
+            events[sink] = new StatementEvents.Render();
+            events[sink].begin();
+        }
+        return events;
+    }
+
+    private void commitRenderEvent(final StatementEvents.Render event, final StatementPrinter printer) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.customer = data.getCustomer();
+            event.performanceCount = data.size();
+            event.format = printer.getFormatName();
+            event.size = StatementEvents.UNKNOWN_SIZE;
+            event.outputs = printers.size();
+            event.commit();
+        }
+    }
+
+    private static long clock(final boolean timed) {
+        if (timed) {
+            return System.nanoTime();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package theater;
+
+import java.util.function.Function;
+
+/**
+ * The output formats a statement can be rendered in.
+ */
+public enum StatementFormat {
+
+    /** Plain text, as rendered by {@link StatementPrinter}. */
+    TEXT("text/plain", "txt", StatementPrinter::new),
+
+    /** HTML, as rendered by {@link HTMLStatementPrinter}. */
+    HTML("text/html", "html", HTMLStatementPrinter::new),
+
+    /** CSV, one record per performance, as rendered by {@link CsvStatementPrinter}. */
+    CSV("text/csv", "csv", CsvStatementPrinter::new),
+
+    /** JSON, as rendered by {@link JsonStatementPrinter}. */
+    JSON("application/json", "json", JsonStatementPrinter::new);
+
+    private final String contentType;
+    private final String fileExtension;
+    private final Function<StatementSource, StatementPrinter> printerFactory;
+
+    StatementFormat(final String contentType, final String fileExtension,
+                    final Function<StatementSource, StatementPrinter> printerFactory) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+        this.printerFactory = printerFactory;
+    }
+
+    /**
+     * Returns the MIME type of this format.
+     *
+     * @return the content type, without charset
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the usual file name extension of this format.
+     *
+     * @return the extension, without the dot
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Creates a printer that renders the given data in this format.
+     *
+     * @param data the priced statement data
+     * @return the printer
+     */
+    public StatementPrinter newPrinter(final StatementSource data) {
+        return printerFactory.apply(data);
+    }
+}
@@ -0,0 +1,297 @@
+package theater;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Counters and latency histograms for statement building, pricing and
+ * rendering, tagged by play type and output format.
+ * <p>
+ * Instrumentation is off by default and can be switched at runtime, through
+ * {@link #setEnabled(boolean)} or over JMX once {@link #registerMBean()} was
+ * called. While it is off every hook costs one volatile read: {@link #start()}
+ * returns {@code 0} without reading the clock, and the {@code record} methods
+ * ignore a zero start time.
+ * </p>
+ * <p>
+ * Timers are named {@code build}, {@code pricing.<play type>} and
+ * {@code render.<format>}. Each keeps a count, the total time and a
+ * {@link LatencyHistogram} for percentiles.
+ * </p>
+ */
+public final class StatementMetrics implements StatementMetricsMXBean {
+
+    /** JMX name the metrics are registered under. */
+    public static final String OBJECT_NAME = "theater:type=StatementMetrics";
+
+    static final double P50 = 50;
+    static final double P90 = 90;
+    static final double P99 = 99;
+
+    private static final StatementMetrics INSTANCE = new StatementMetrics();
+
+    private volatile boolean enabled;
+    private final LatencyHistogram build = new LatencyHistogram();
+    private final ConcurrentMap<String, LatencyHistogram> pricing = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> rendering = new ConcurrentHashMap<>();
+
+    private StatementMetrics() {
+    }
+
+    /**
+     * Returns the process-wide metrics that the statement classes report to.
+     *
+     * @return the shared instance
+     */
+    public static StatementMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server. Calling it again
+     * has no effect.
+     *
+     * @throws IllegalStateException if registration fails
+     */
+    public synchronized void registerMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        }
+        catch (JMException exception) {
+            throw new IllegalStateException("could not register " + OBJECT_NAME, exception);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start time to pass to a {@code record} method, or {@code 0}
+     *         if instrumentation is off
+     */
+    public long start() {
+        if (!enabled) {
+            return 0;
+        }
+        // never return the "disabled" marker for a real start time
+        return System.nanoTime() | 1;
+    }
+
+    /**
+     * Records the construction of one statement's data.
+     *
+     * @param start the value returned by {@link #start()}
+     */
+    public void recordBuild(final long start) {
+        if (start != 0) {
+            build.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the pricing of one performance.
+     *
+     * @param playType the play type that was priced
+     * @param start    the value returned by {@link #start()}
+     */
+    public void recordPricing(final String playType, final long start) {
+        if (start != 0) {
+            final long elapsed = System.nanoTime() - start;
+            pricing.computeIfAbsent(playType, type -> new LatencyHistogram()).record(elapsed);
+        }
+    }
+
+    /**
+     * Records the rendering of one statement.
+     *
+     * @param format the output format, e.g. {@code text} or {@code html}
+     * @param start  the value returned by {@link #start()}
+     */
+    public void recordRendering(final String format, final long start) {
+        if (start != 0) {
+            final long elapsed = System.nanoTime() - start;
+            recordRenderingNanos(format, elapsed);
+        }
+    }
+
+    /**
+     * Records the rendering of one statement whose time was measured by the
+     * caller, e.g. one output of a {@link StatementFanOut}.
+     *
+     * @param format the output format, e.g. {@code text} or {@code html}
+     * @param nanos  the time spent rendering, in nanoseconds
+     */
+    public void recordRenderingNanos(final String format, final long nanos) {
+        if (enabled) {
+            rendering.computeIfAbsent(format, name -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    /**
+     * Returns a snapshot of one timer.
+     *
+     * @param name the timer name, e.g. {@code pricing.tragedy}
+     * @return the snapshot, or {@code null} if nothing was recorded under that name
+     */
+    public TimerSnapshot getTimer(final String name) {
+        for (final TimerSnapshot timer : getTimers()) {
+            if (timer.getName().equals(name)) {
+                return timer;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<TimerSnapshot> getTimers() {
+        final List<TimerSnapshot> timers = new ArrayList<>();
+        if (build.count() > 0) {
+            timers.add(build.snapshot("build"));
+        }
+        addAll(timers, "pricing.", pricing);
+        addAll(timers, "render.", rendering);
+        timers.sort((left, right) -> left.getName().compareTo(right.getName()));
+        return timers;
+    }
+
+    private static void addAll(final List<TimerSnapshot> timers, final String prefix,
+                               final Map<String, LatencyHistogram> histograms) {
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            timers.add(entry.getValue().snapshot(prefix + entry.getKey()));
+        }
+    }
+
+    @Override
+    public void reset() {
+        build.reset();
+        pricing.values().forEach(LatencyHistogram::reset);
+        rendering.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Point-in-time view of one timer. Latencies are in nanoseconds;
+     * percentiles are bucket upper bounds, accurate to within 12.5%.
+     */
+    public static final class TimerSnapshot {
+        private final String name;
+        private final long count;
+        private final long totalNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        TimerSnapshot(final String name, final long count, final long totalNanos,
+                      final long p50Nanos, final long p90Nanos, final long p99Nanos, final long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Rebuilds a snapshot from its JMX form, for MXBean proxies.
+         *
+         * @param data the composite data
+         * @return the snapshot
+         */
+        public static TimerSnapshot from(final CompositeData data) {
+            return new TimerSnapshot((String) data.get("name"), (Long) data.get("count"),
+                    (Long) data.get("totalNanos"), (Long) data.get("p50Nanos"), (Long) data.get("p90Nanos"),
+                    (Long) data.get("p99Nanos"), (Long) data.get("maxNanos"));
+        }
+
+        /**
+         * Returns the timer name.
+         *
+         * @return e.g. {@code build}, {@code pricing.comedy} or {@code render.html}
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns how many operations were timed.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the time spent in all timed operations.
+         *
+         * @return the total in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Returns the median latency.
+         *
+         * @return the 50th percentile in nanoseconds
+         */
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        /**
+         * Returns the 90th percentile latency.
+         *
+         * @return the 90th percentile in nanoseconds
+         */
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        /**
+         * Returns the 99th percentile latency.
+         *
+         * @return the 99th percentile in nanoseconds
+         */
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        /**
+         * Returns the highest latency.
+         *
+         * @return the maximum in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d p50=%dns p90=%dns p99=%dns max=%dns",
+                    name, count, p50Nanos, p90Nanos, p99Nanos, maxNanos);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package theater;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link StatementMetrics}, registered as
+ * {@value StatementMetrics#OBJECT_NAME} by {@link StatementMetrics#registerMBean()}.
+ */
+public interface StatementMetricsMXBean {
+
+    /**
+     * Returns whether measurements are being recorded.
+     *
+     * @return true if instrumentation is on
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns instrumentation on or off.
+     *
+     * @param enabled true to start recording, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns a snapshot of every timer.
+     *
+     * @return the snapshots, ordered by name
+     */
+    List<StatementMetrics.TimerSnapshot> getTimers();
+
+    /**
+     * Discards every measurement recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,693 @@
+package theater;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch job that turns a JSON invoice export into one statement file per
+ * invoice, running ingestion, pricing, rendering and writing concurrently.
+ * <p>
+ * Each stage runs on its own threads and hands work to the next through a
+ * bounded queue. A stage that gets ahead blocks on the full queue until its
+ * consumer catches up, so at most a few queues' worth of invoices are in
+ * memory, and a slow disk slows the writers down without holding up the
+ * parsing, pricing and rendering of the invoices behind them.
+ * </p>
+ * <p>
+ * Ingestion is single-threaded because the JSON is read in order; the other
+ * stages have a configurable number of threads. Statement files are named
+ * after the position of the invoice in the export, e.g. {@code 00000042.txt}.
+ * An invoice that cannot be priced, for example because of an unknown play,
+ * is reported in {@link Report#getFailures()} and the batch goes on; malformed
+ * JSON, a failed write or an {@link Error} in any stage aborts the whole run,
+ * and {@link #run(InputStream)} rethrows it.
+ * </p>
+ * <p>
+ * At the end of the input every stage finishes the work already queued for it
+ * before the next stage is told to stop, so nothing in flight is lost;
+ * {@link #stop()} ends a run early in the same way. {@link #stats()} reports
+ * per-stage throughput, busy time, time blocked on a full queue and queue
+ * depth while the pipeline runs, which shows where the bottleneck is.
+ * </p>
+ */
+public final class StatementPipeline {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_WRITING_THREADS = 2;
+    private static final int INITIAL_STATEMENT_BYTES = 1024;
+    private static final String FILE_NAME_FORMAT = "%08d.%s";
+
+    /** End-of-input marker; each worker of a stage takes one from its queue and exits. */
+    private static final Work END = new Work(-1, null);
+
+    private final PlayCatalog catalog;
+    private final StatementFormat format;
+    private final Path outputDirectory;
+    private final Stage ingesting;
+    private final Stage pricing;
+    private final Stage rendering;
+    private final Stage writing;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicReference<Throwable> fatal = new AtomicReference<>();
+    private final Queue<BatchResult> failures = new ConcurrentLinkedQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean stopping;
+    private volatile long startNanos;
+
+    private StatementPipeline(final Builder builder) {
+        this.catalog = builder.catalog;
+        this.format = builder.format;
+        this.outputDirectory = builder.outputDirectory;
+        this.ingesting = new Stage("ingest", 1, 0);
+        this.pricing = new Stage("price", builder.pricingThreads, builder.queueCapacity);
+        this.rendering = new Stage("render", builder.renderingThreads, builder.queueCapacity);
+        this.writing = new Stage("write", builder.writingThreads, builder.queueCapacity);
+    }
+
+    /**
+     * Returns a builder for a pipeline with one pricing thread, a rendering
+     * thread per processor, two writing threads and queues of 256 invoices.
+     *
+     * @param catalog         the plays and their pricing rules
+     * @param outputDirectory the directory the statement files are written to
+     * @return a new builder
+     */
+    public static Builder builder(final PlayCatalog catalog, final Path outputDirectory) {
+        return new Builder(catalog, outputDirectory);
+    }
+
+    /**
+     * Processes every invoice in the export and waits until all statements
+     * are written. A pipeline runs only once; the input stream is not closed.
+     *
+     * @param json the UTF-8 JSON export, in the format of {@code invoices.json}
+     * @return the outcome of the run
+     * @throws IOException          if the JSON is malformed or a statement cannot be written
+     * @throws InterruptedException if the calling thread is interrupted; the run is then aborted
+     * @throws IllegalStateException if the pipeline was already run
+     */
+    public Report run(final InputStream json) throws IOException, InterruptedException {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("a pipeline runs only once");
+        }
+        Files.createDirectories(outputDirectory);
+        startNanos = System.nanoTime();
+        synchronized (workers) {
+            workers.add(newWorker(ingesting, 0, () -> ingest(json)));
+            startWorkers(pricing, rendering, this::price);
+            startWorkers(rendering, writing, this::render);
+            startWorkers(writing, null, this::write);
+            for (final Thread worker : workers) {
+                worker.start();
+            }
+        }
+        try {
+            for (final Thread worker : workers) {
+                worker.join();
+            }
+        }
+        catch (InterruptedException exception) {
+            abort(exception);
+            throw exception;
+        }
+        rethrowFatal();
+        return new Report(writing.processed.sum(), new ArrayList<>(failures),
+                System.nanoTime() - startNanos, stats());
+    }
+
+    /**
+     * Stops reading new invoices. The invoices already read are still priced,
+     * rendered and written before {@link #run(InputStream)} returns.
+     */
+    public void stop() {
+        stopping = true;
+    }
+
+    /**
+     * Returns the current statistics of each stage, in pipeline order. May be
+     * called from any thread while the pipeline runs.
+     *
+     * @return one snapshot per stage
+     */
+    public List<StageStats> stats() {
+        final long now = System.nanoTime();
+        final List<StageStats> result = new ArrayList<>();
+        for (final Stage stage : new Stage[] {ingesting, pricing, rendering, writing}) {
+            result.add(stage.snapshot(startNanos, now));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private void startWorkers(final Stage stage, final Stage next, final Step step) {
+        for (int i = 0; i < stage.threads; i++) {
+            workers.add(newWorker(stage, i, () -> work(stage, next, step)));
+        }
+    }
+
+    private static Thread newWorker(final Stage stage, final int number, final Runnable body) {
+        final Thread thread = new Thread(body, "statement-pipeline-" + stage.name + "-" + number);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void ingest(final InputStream json) {
+        final InvoiceJsonReader reader = new InvoiceJsonReader(json);
+        try {
+            int index = 0;
+            while (!stopping) {
+                final long begin = System.nanoTime();
+                if (!reader.hasNext()) {
+                    break;
+                }
+                final Work work = new Work(index, reader.next());
+                ingesting.busyNanos.add(System.nanoTime() - begin);
+                ingesting.processed.increment();
+                send(ingesting, pricing, work);
+                index++;
+            }
+        }
+        catch (InterruptedException exception) {
+            // aborted by another stage
+        }
+        catch (Throwable exception) {
+            // anything else, Errors included, aborts the run instead of silently losing this stage
+            abort(exception);
+        }
+        finally {
+            finish(ingesting, pricing);
+        }
+    }
+
+    private void work(final Stage stage, final Stage next, final Step step) {
+        try {
+            Work work = stage.queue.take();
+            while (work != END) {
+                final long begin = System.nanoTime();
+                final boolean forward = step.process(work);
+                stage.busyNanos.add(System.nanoTime() - begin);
+                stage.processed.increment();
+                if (forward && next != null) {
+                    send(stage, next, work);
+                }
+                work = stage.queue.take();
+            }
+        }
+        catch (InterruptedException exception) {
+            // aborted by another stage
+        }
+        catch (Throwable exception) {
+            abort(exception);
+        }
+        finally {
+            finish(stage, next);
+        }
+    }
+
+    private boolean price(final Work work) {
+        try {
+            work.data = new StatementData(work.invoice, catalog);
+            return true;
+        }
+        catch (RuntimeException exception) {
+            failures.add(BatchResult.failure(work.index, work.invoice, exception));
+            pricing.failed.increment();
+            return false;
+        }
+    }
+
+    private boolean render(final Work work) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_STATEMENT_BYTES);
+        format.newPrinter(work.data).writeTo(out, StandardCharsets.UTF_8);
+        work.statement = out.toByteArray();
+        work.invoice = null;
+        work.data = null;
+        return true;
+    }
+
+    private boolean write(final Work work) throws IOException {
+        final String fileName = String.format(FILE_NAME_FORMAT, work.index, format.getFileExtension());
+        Files.write(outputDirectory.resolve(fileName), work.statement);
+        work.statement = null;
+        return true;
+    }
+
+    /**
+     * Hands work to the next stage, blocking while its queue is full and
+     * charging the wait to the sending stage as backpressure.
+     */
+    private static void send(final Stage from, final Stage to, final Work work) throws InterruptedException {
+        if (!to.queue.offer(work)) {
+            final long begin = System.nanoTime();
+            to.queue.put(work);
+            from.backpressureNanos.add(System.nanoTime() - begin);
+        }
+        to.maxQueueDepth.accumulateAndGet(to.queue.size(), Math::max);
+    }
+
+    /**
+     * Called by each worker of a stage as it exits; the last one tells every
+     * worker of the next stage that no more work is coming.
+     */
+    private void finish(final Stage stage, final Stage next) {
+        if (stage.active.decrementAndGet() > 0) {
+            return;
+        }
+        stage.finishNanos = System.nanoTime();
+        if (next == null || fatal.get() != null) {
+            return;
+        }
+        try {
+            for (int i = 0; i < next.threads; i++) {
+                next.queue.put(END);
+            }
+        }
+        catch (InterruptedException exception) {
+            // aborted by another stage
+        }
+    }
+
+    private void abort(final Throwable failure) {
+        if (!fatal.compareAndSet(null, failure)) {
+            return;
+        }
+        synchronized (workers) {
+            for (final Thread worker : workers) {
+                if (worker != Thread.currentThread()) {
+                    worker.interrupt();
+                }
+            }
+        }
+    }
+
+    private void rethrowFatal() throws IOException {
+        final Throwable failure = fatal.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * One step of a stage, applied to each invoice in turn.
+     */
+    @FunctionalInterface
+    private interface Step {
+
+        /**
+         * Processes one invoice.
+         *
+         * @param work the invoice and what earlier stages made of it
+         * @return true to pass it to the next stage
+         * @throws IOException if the step fails for good
+         */
+        boolean process(Work work) throws IOException;
+    }
+
+    /**
+     * An invoice on its way through the pipeline.
+     */
+    private static final class Work {
+        private final int index;
+        private Invoice invoice;
+        private StatementSource data;
+        private byte[] statement;
+
+        Work(final int index, final Invoice invoice) {
+            this.index = index;
+            this.invoice = invoice;
+        }
+    }
+
+    /**
+     * A stage's input queue, threads and counters.
+     */
+    private static final class Stage {
+        private final String name;
+        private final int threads;
+        private final int capacity;
+        private final BlockingQueue<Work> queue;
+        private final AtomicInteger active;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder backpressureNanos = new LongAdder();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private volatile long finishNanos;
+
+        Stage(final String name, final int threads, final int capacity) {
+            this.name = name;
+            this.threads = threads;
+            this.capacity = capacity;
+            this.active = new AtomicInteger(threads);
+            if (capacity > 0) {
+                this.queue = new ArrayBlockingQueue<>(capacity);
+            }
+            else {
+                this.queue = null;
+            }
+        }
+
+        StageStats snapshot(final long start, final long now) {
+            long end = finishNanos;
+            if (end == 0) {
+                end = now;
+            }
+            int depth = 0;
+            if (queue != null) {
+                depth = queue.size();
+            }
+            return new StageStats(name, threads, processed.sum(), failed.sum(), busyNanos.sum(),
+                    backpressureNanos.sum(), depth, maxQueueDepth.get(), capacity, Math.max(0, end - start));
+        }
+    }
+
+    /**
+     * Settings for a {@link StatementPipeline}.
+     */
+    public static final class Builder {
+        private final PlayCatalog catalog;
+        private final Path outputDirectory;
+        private StatementFormat format = StatementFormat.TEXT;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private int pricingThreads = 1;
+        private int renderingThreads = Runtime.getRuntime().availableProcessors();
+        private int writingThreads = DEFAULT_WRITING_THREADS;
+
+        private Builder(final PlayCatalog catalog, final Path outputDirectory) {
+            this.catalog = catalog;
+            this.outputDirectory = outputDirectory;
+        }
+
+        /**
+         * Sets the format of the statement files.
+         *
+         * @param statementFormat the format, {@link StatementFormat#TEXT} by default
+         * @return this builder
+         */
+        public Builder format(final StatementFormat statementFormat) {
+            this.format = statementFormat;
+            return this;
+        }
+
+        /**
+         * Sets how many invoices may wait in front of each stage.
+         *
+         * @param capacity the queue capacity, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if {@code capacity} is not positive
+         */
+        public Builder queueCapacity(final int capacity) {
+            this.queueCapacity = positive("queue capacity", capacity);
+            return this;
+        }
+
+        /**
+         * Sets the number of threads building {@link StatementData}.
+         *
+         * @param threads the thread count, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if {@code threads} is not positive
+         */
+        public Builder pricingThreads(final int threads) {
+            this.pricingThreads = positive("pricing threads", threads);
+            return this;
+        }
+
+        /**
+         * Sets the number of threads rendering statements.
+         *
+         * @param threads the thread count, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if {@code threads} is not positive
+         */
+        public Builder renderingThreads(final int threads) {
+            this.renderingThreads = positive("rendering threads", threads);
+            return this;
+        }
+
+        /**
+         * Sets the number of threads writing statement files.
+         *
+         * @param threads the thread count, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if {@code threads} is not positive
+         */
+        public Builder writingThreads(final int threads) {
+            this.writingThreads = positive("writing threads", threads);
+            return this;
+        }
+
+        /**
+         * Creates the pipeline.
+         *
+         * @return the pipeline, ready to {@link StatementPipeline#run(InputStream) run}
+         */
+        public StatementPipeline build() {
+            return new StatementPipeline(this);
+        }
+
+        private static int positive(final String setting, final int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException(setting + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Statistics of one stage at a point in time.
+     */
+    public static final class StageStats {
+        private static final double NANOS_PER_SECOND = 1e9;
+        private static final long NANOS_PER_MILLI = 1_000_000;
+
+        private final String name;
+        private final int threads;
+        private final long processed;
+        private final long failed;
+        private final long busyNanos;
+        private final long backpressureNanos;
+        private final int queueDepth;
+        private final int maxQueueDepth;
+        private final int queueCapacity;
+        private final long elapsedNanos;
+
+        StageStats(final String name, final int threads, final long processed, final long failed,
+                   final long busyNanos, final long backpressureNanos, final int queueDepth,
+                   final int maxQueueDepth, final int queueCapacity, final long elapsedNanos) {
+            this.name = name;
+            this.threads = threads;
+            this.processed = processed;
+            this.failed = failed;
+            this.busyNanos = busyNanos;
+            this.backpressureNanos = backpressureNanos;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.queueCapacity = queueCapacity;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the stage name: {@code ingest}, {@code price}, {@code render} or {@code write}.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of threads of the stage.
+         *
+         * @return the thread count
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * Returns the number of invoices the stage has processed, including failed ones.
+         *
+         * @return the invoice count
+         */
+        public long getProcessed() {
+            return processed;
+        }
+
+        /**
+         * Returns the number of invoices the stage rejected; only pricing rejects invoices.
+         *
+         * @return the failure count
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Returns the time the stage's threads spent working, summed over threads.
+         *
+         * @return the busy time in nanoseconds
+         */
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        /**
+         * Returns the time the stage's threads spent blocked on the next
+         * stage's full queue, summed over threads.
+         *
+         * @return the blocked time in nanoseconds
+         */
+        public long getBackpressureNanos() {
+            return backpressureNanos;
+        }
+
+        /**
+         * Returns the number of invoices waiting in front of the stage.
+         *
+         * @return the queue depth; always 0 for ingestion, which has no queue
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * Returns the largest number of invoices that waited in front of the stage.
+         *
+         * @return the peak queue depth
+         */
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        /**
+         * Returns the capacity of the stage's queue.
+         *
+         * @return the capacity; 0 for ingestion
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * Returns the time from the start of the run until the stage finished, or until now.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the throughput of the stage over its elapsed time.
+         *
+         * @return invoices per second
+         */
+        public double getThroughput() {
+            if (elapsedNanos == 0) {
+                return 0;
+            }
+            return processed * NANOS_PER_SECOND / elapsedNanos;
+        }
+
+        /**
+         * Returns the fraction of the stage's thread time spent working; the
+         * stage closest to 1 is the bottleneck.
+         *
+         * @return the utilization, from 0 to 1
+         */
+        public double getUtilization() {
+            if (elapsedNanos == 0) {
+                return 0;
+            }
+            return Math.min(1, (double) busyNanos / ((double) elapsedNanos * threads));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d processed (%d failed) by %d threads, %.0f/s, %.0f%% busy, "
+                            + "%d ms blocked, queue %d/%d (max %d)",
+                    name, processed, failed, threads, getThroughput(), getUtilization() * Constants.PERCENT_FACTOR,
+                    backpressureNanos / NANOS_PER_MILLI, queueDepth, queueCapacity, maxQueueDepth);
+        }
+    }
+
+    /**
+     * The outcome of a run.
+     */
+    public static final class Report {
+        private final long written;
+        private final List<BatchResult> failures;
+        private final long elapsedNanos;
+        private final List<StageStats> stages;
+
+        Report(final long written, final List<BatchResult> failures, final long elapsedNanos,
+               final List<StageStats> stages) {
+            this.written = written;
+            this.failures = Collections.unmodifiableList(failures);
+            this.elapsedNanos = elapsedNanos;
+            this.stages = stages;
+        }
+
+        /**
+         * Returns the number of statement files written.
+         *
+         * @return the file count
+         */
+        public long getWritten() {
+            return written;
+        }
+
+        /**
+         * Returns the invoices that could not be priced, in no particular order.
+         *
+         * @return the failed results
+         */
+        public List<BatchResult> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the duration of the run.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the final statistics of each stage, in pipeline order.
+         *
+         * @return one entry per stage
+         */
+        public List<StageStats> getStages() {
+            return stages;
+        }
+    }
+}
@@ -1,22 +1,34 @@
 package theater;
 
-import java.text.NumberFormat;
-import java.util.Locale;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
  * Generates a plain-text statement for an invoice.
  * <p>
- * All calculation work is delegated to {@link StatementData};
- * this class is responsible only for rendering the result as text.
+ * All calculation work is delegated to {@link StatementData} (or any other
+ * {@link StatementSource}); this class is responsible only for rendering the
+ * result as text.
  * </p>
  */
 public class StatementPrinter {
 
+    private static final StatementTemplate HEADER = StatementTemplate.text("Statement for {customer}\n");
+    private static final StatementTemplate LINE = StatementTemplate.text("  {name}: {amount} ({seats} seats)\n");
+    private static final StatementTemplate FOOTER = StatementTemplate.text(
+            "Amount owed is {total}\nYou earned {credits} credits\n");
+
     /**
      * Prepared data for this invoice statement.
      */
-    private final StatementData statementData;
+    private final StatementSource statementData;
 
     /**
      * Creates a printer for the given invoice and plays.
@@ -25,41 +37,179 @@ public class StatementPrinter {
      * @param plays   the mapping from play id to play
      */
     public StatementPrinter(final Invoice invoice, final Map<String, Play> plays) {
-        this.statementData = new StatementData(invoice, plays);
+        this(new StatementData(invoice, plays));
+    }
+
+    /**
+     * Creates a printer for the given invoice, pricing it against a play catalog.
+     *
+     * @param invoice the invoice to print
+     * @param catalog the plays and their pricing rules
+     */
+    public StatementPrinter(final Invoice invoice, final PlayCatalog catalog) {
+        this(new StatementData(invoice, catalog));
+    }
+
+    /**
+     * Creates a printer for statement data that has already been priced.
+     *
+     * @param statementData the prepared statement data
+     */
+    public StatementPrinter(final StatementSource statementData) {
+        this.statementData = statementData;
     }
 
     /**
      * Returns the plain-text statement for this printer's invoice.
+     * <p>This is a thin wrapper over {@link #statement(Appendable)}.</p>
      *
      * @return the formatted statement
      */
     public String statement() {
-        return renderPlainText(statementData);
+        final StatementEvents.Render event = beginRenderEvent();
+        final StringBuilder result = new StringBuilder();
+        try {
+            render(result);
+        }
+        catch (IOException exception) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(exception);
+        }
+        if (event.shouldCommit()) {
+            commitRenderEvent(event, Utf8Appendable.encodedLength(result));
+        }
+        return result.toString();
     }
 
     /**
-     * Renders the given statement data as a plain-text invoice.
+     * Renders the statement for this printer's invoice into the given output,
+     * one line item at a time.
      *
-     * @param data pre-computed statement data
-     * @return the formatted invoice
+     * @param out the output to render into
+     * @throws IOException if the output fails
      */
-    private String renderPlainText(final StatementData data) {
-        final StringBuilder result = new StringBuilder(
-                String.format("Statement for %s%n", data.getCustomer()));
+    public void statement(final Appendable out) throws IOException {
+        final StatementEvents.Render event = beginRenderEvent();
+        render(out);
+        if (event.shouldCommit()) {
+            commitRenderEvent(event, StatementEvents.UNKNOWN_SIZE);
+        }
+    }
+
+    private void render(final Appendable out) throws IOException {
+        final long start = StatementMetrics.get().start();
+        renderHeader(out);
 
         // line items
-        for (PerformanceData perfData : data.getPerformances()) {
-            result.append(String.format("  %s: %s (%s seats)%n",
-                    perfData.getName(),
-                    usd(perfData.getAmount()),
-                    perfData.getAudience()));
+        final int size = getStatementSource().size();
+        for (int line = 0; line < size; line++) {
+            if (line > 0) {
+                renderLineSeparator(out);
+            }
+            renderLine(out, line);
         }
 
         // totals
-        result.append(String.format("Amount owed is %s%n", usd(data.totalAmount())));
-        result.append(String.format("You earned %s credits%n", data.volumeCredits()));
+        renderFooter(out);
+        StatementMetrics.get().recordRendering(getFormatName(), start);
+    }
 
-        return result.toString();
+    /**
+     * Streams the statement to the given output stream through a bounded buffer,
+     * so memory use does not grow with the size of the invoice.
+     * UTF-8 output is encoded directly, without a {@link Writer}.
+     * The stream is flushed but not closed.
+     *
+     * @param out     the stream to write to
+     * @param charset the character encoding to use
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream out, final Charset charset) throws IOException {
+        final StatementEvents.Render event = beginRenderEvent();
+        long size = StatementEvents.UNKNOWN_SIZE;
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            final Utf8Appendable utf8 = new Utf8Appendable(out);
+            render(utf8);
+            utf8.flush();
+            size = utf8.bytesWritten();
+        }
+        else {
+            final Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(out, charset), Constants.STREAM_BUFFER_SIZE);
+            render(writer);
+            writer.flush();
+        }
+        if (event.shouldCommit()) {
+            commitRenderEvent(event, size);
+        }
+    }
+
+    private static StatementEvents.Render beginRenderEvent() {
+        final StatementEvents.Render event = new StatementEvents.Render();
+        event.begin();
+        return event;
+    }
+
+    private void commitRenderEvent(final StatementEvents.Render event, final long size) {
+        final StatementSource data = getStatementSource();
+        event.customer = data.getCustomer();
+        event.performanceCount = data.size();
+        event.format = getFormatName();
+        event.size = size;
+        event.outputs = 1;
+        event.commit();
+    }
+
+    /**
+     * Renders the statement header.
+     *
+     * @param out the output to render into
+     * @throws IOException if the output fails
+     */
+    protected void renderHeader(final Appendable out) throws IOException {
+        HEADER.render(out, getStatementSource());
+    }
+
+    /**
+     * Renders a single line item.
+     *
+     * @param out  the output to render into
+     * @param line the index of the line item in {@link #getStatementSource()}
+     * @throws IOException if the output fails
+     */
+    protected void renderLine(final Appendable out, final int line) throws IOException {
+        LINE.render(out, getStatementSource(), line);
+    }
+
+    /**
+     * Renders whatever separates two consecutive line items, such as the comma
+     * between JSON array elements. Does nothing by default.
+     *
+     * @param out the output to render into
+     * @throws IOException if the output fails
+     */
+    protected void renderLineSeparator(final Appendable out) throws IOException {
+        // line items are self-delimiting in plain text
+    }
+
+    /**
+     * Renders the statement totals.
+     *
+     * @param out the output to render into
+     * @throws IOException if the output fails
+     */
+    protected void renderFooter(final Appendable out) throws IOException {
+        FOOTER.render(out, getStatementSource());
+    }
+
+    /**
+     * Returns the name this printer's output is reported under in
+     * {@link StatementMetrics}.
+     *
+     * @return the format name
+     */
+    protected String getFormatName() {
+        return "text";
     }
 
     /**
@@ -69,20 +219,37 @@ public class StatementPrinter {
      * @return the formatted currency string
      */
     protected String usd(final int amount) {
-        final NumberFormat currency = NumberFormat.getCurrencyInstance(Locale.US);
-        return currency.format(amount / (double) Constants.PERCENT_FACTOR);
+        return CurrencyFormatter.US.format(amount);
     }
 
     /**
      * Exposes the calculated statement data to subclasses such as
-     * {@link HTMLStatementPrinter}.
+     * {@link HTMLStatementPrinter}, whichever representation it is in.
      *
-     * @return the prepared {@link StatementData}
+     * @return the prepared statement data
      */
-    protected StatementData getStatementData() {
+    protected StatementSource getStatementSource() {
         return statementData;
     }
 
+    /**
+     * Exposes the calculated statement data to subclasses when the printer
+     * was created from an invoice or from a {@link StatementData}.
+     *
+     * @return the prepared statement data
+     * @throws IllegalStateException if the printer was created from another
+     *                               {@link StatementSource}, such as a
+     *                               {@link ColumnarStatementData}; use
+     *                               {@link #getStatementSource()} instead
+     */
+    protected StatementData getStatementData() {
+        if (!(statementData instanceof StatementData)) {
+            throw new IllegalStateException("statement is not backed by StatementData: "
+                    + statementData.getClass().getSimpleName());
+        }
+        return (StatementData) statementData;
+    }
+
     /*
      * ====== Legacy helper methods for MarkUs tests ======
      * The following private methods are here so that the
@@ -0,0 +1,256 @@
+package theater;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves statements over HTTP with the JDK's built-in server.
+ * <p>
+ * {@code POST /statement?format=html} with an invoice JSON object as the body
+ * returns its statement; the format is {@code text} (the default),
+ * {@code html}, {@code csv} or {@code json}. The invoice is priced completely
+ * before the response starts, so an unknown play or malformed body is
+ * answered with {@code 400 Bad Request}; the statement itself is then
+ * streamed to the client in chunks instead of being built in memory.
+ * </p>
+ * <p>
+ * Every request runs on its own virtual thread when the JDK supports them
+ * (see {@link BatchStatementRenderer#virtualThreadExecutor()}), and all
+ * requests share one immutable {@link PlayCatalog}. The number of requests
+ * handled at once can be bounded; a request over the bound is answered with
+ * {@code 503 Service Unavailable} straight away rather than queued. By default
+ * there is no bound on virtual threads, while the platform-thread fallback on
+ * older JDKs is bounded at {@value #FALLBACK_MAX_EXCHANGES} so it cannot grow
+ * without limit.
+ * </p>
+ */
+public final class StatementServer implements Closeable {
+
+    /** Path statements are served on. */
+    public static final String PATH = "/statement";
+
+    /** Default bound on concurrent requests when running on platform threads. */
+    public static final int FALLBACK_MAX_EXCHANGES = 256;
+
+    /** Bound that leaves concurrent requests unlimited. */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /** Requested listen backlog; the operating system caps it (e.g. {@code net.core.somaxconn}). */
+    private static final int BACKLOG = 1 << 16;
+    private static final int STOP_GRACE_SECONDS = 5;
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final String FORMAT_PARAMETER = "format=";
+    private static final String CHARSET = "; charset=utf-8";
+
+    private final PlayCatalog catalog;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int maxExchanges;
+    private final Semaphore exchanges;
+    private volatile boolean closed;
+
+    /**
+     * Creates a server with the default bound on concurrent requests: none on
+     * virtual threads, {@value #FALLBACK_MAX_EXCHANGES} otherwise. Call
+     * {@link #start()} to begin accepting requests.
+     *
+     * @param catalog the plays and pricing rules shared by all requests
+     * @param address the address to listen on; port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public StatementServer(final PlayCatalog catalog, final InetSocketAddress address) throws IOException {
+        this(catalog, address, defaultMaxExchanges());
+    }
+
+    /**
+     * Creates a server; call {@link #start()} to begin accepting requests.
+     *
+     * @param catalog      the plays and pricing rules shared by all requests
+     * @param address      the address to listen on; port 0 picks a free port
+     * @param maxExchanges the most requests handled at once, or {@link #UNBOUNDED}
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if {@code maxExchanges} is not positive
+     */
+    public StatementServer(final PlayCatalog catalog, final InetSocketAddress address,
+                           final int maxExchanges) throws IOException {
+        if (maxExchanges < 1) {
+            throw new IllegalArgumentException("maxExchanges must be positive: " + maxExchanges);
+        }
+        this.catalog = catalog;
+        this.maxExchanges = maxExchanges;
+        this.exchanges = new Semaphore(maxExchanges);
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = BatchStatementRenderer.virtualThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+    }
+
+    private static int defaultMaxExchanges() {
+        if (BatchStatementRenderer.supportsVirtualThreads()) {
+            return UNBOUNDED;
+        }
+        return FALLBACK_MAX_EXCHANGES;
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and releases the threads. Exchanges in
+     * progress are given up to {@value #STOP_GRACE_SECONDS} seconds to finish
+     * before the listener and any remaining connections are closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            // holding every permit means no exchange is running; HttpServer.stop(delay)
+            // cannot be used for this because before JDK 21 it always sleeps the whole delay
+            if (exchanges.tryAcquire(maxExchanges, STOP_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                exchanges.release(maxExchanges);
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Handles an exchange on its executor thread, holding a permit throughout
+     * so that {@link #close()} can wait for it. The permit is only ever tried,
+     * never waited for, so a busy or closing server answers at once.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        if (!exchanges.tryAcquire()) {
+            try {
+                sendError(exchange, SERVICE_UNAVAILABLE, "server is busy");
+            }
+            finally {
+                exchange.close();
+            }
+            return;
+        }
+        try {
+            if (closed) {
+                sendError(exchange, SERVICE_UNAVAILABLE, "server is closing");
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, METHOD_NOT_ALLOWED, "only POST is supported");
+                return;
+            }
+            final StatementFormat format = formatOf(exchange.getRequestURI().getRawQuery());
+            if (format == null) {
+                sendError(exchange, BAD_REQUEST, "format must be one of text, html, csv, json");
+                return;
+            }
+
+            final Invoice invoice;
+            try {
+                invoice = readInvoice(exchange);
+            }
+            catch (NoSuchElementException exception) {
+                sendError(exchange, BAD_REQUEST, "body must be an invoice object");
+                return;
+            }
+            catch (UncheckedIOException exception) {
+                // malformed JSON or a missing field
+                sendError(exchange, BAD_REQUEST, exception.getCause().getMessage());
+                return;
+            }
+            final String unknownPlay = findUnknownPlay(invoice);
+            if (unknownPlay != null) {
+                sendError(exchange, BAD_REQUEST, String.format("unknown play: %s", unknownPlay));
+                return;
+            }
+            final StatementData data = new StatementData(invoice, catalog);
+
+            exchange.getResponseHeaders().set("Content-Type", format.getContentType() + CHARSET);
+            // length 0 selects chunked encoding, so the body streams as it is rendered
+            exchange.sendResponseHeaders(OK, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                format.newPrinter(data).writeTo(body, StandardCharsets.UTF_8);
+            }
+        }
+        finally {
+            exchange.close();
+            exchanges.release();
+        }
+    }
+
+    private static Invoice readInvoice(final HttpExchange exchange) throws IOException {
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(exchange.getRequestBody())) {
+            return reader.next();
+        }
+    }
+
+    private String findUnknownPlay(final Invoice invoice) {
+        for (final Performance performance : invoice.getPerformances()) {
+            if (!catalog.contains(performance.getPlayID())) {
+                return performance.getPlayID();
+            }
+        }
+        return null;
+    }
+
+    private static StatementFormat formatOf(final String query) {
+        if (query == null) {
+            return StatementFormat.TEXT;
+        }
+        for (final String parameter : query.split("&")) {
+            if (parameter.startsWith(FORMAT_PARAMETER)) {
+                final String name = parameter.substring(FORMAT_PARAMETER.length()).toUpperCase(Locale.ROOT);
+                for (final StatementFormat format : StatementFormat.values()) {
+                    if (format.name().equals(name)) {
+                        return format;
+                    }
+                }
+                return null;
+            }
+        }
+        return StatementFormat.TEXT;
+    }
+
+    private static void sendError(final HttpExchange exchange, final int status,
+                                  final String message) throws IOException {
+        final byte[] body = (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain" + CHARSET);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
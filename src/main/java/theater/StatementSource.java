@@ -0,0 +1,72 @@
+package theater;
+
+/**
+ * Read-only view of priced statement data that printers render from.
+ * <p>
+ * Line items are accessed by index so that implementations can store them
+ * either as objects ({@link StatementData}) or as primitive columns
+ * ({@link ColumnarStatementData}).
+ * </p>
+ */
+public interface StatementSource {
+
+    /**
+     * Returns the customer name.
+     *
+     * @return the customer name
+     */
+    String getCustomer();
+
+    /**
+     * Returns the number of line items.
+     *
+     * @return the number of performances
+     */
+    int size();
+
+    /**
+     * Returns the play name of a line item.
+     *
+     * @param line the zero-based line index
+     * @return the play name
+     */
+    String getName(int line);
+
+    /**
+     * Returns the audience size of a line item.
+     *
+     * @param line the zero-based line index
+     * @return the audience size
+     */
+    int getAudience(int line);
+
+    /**
+     * Returns the amount of a line item.
+     *
+     * @param line the zero-based line index
+     * @return the amount in cents
+     */
+    int getAmount(int line);
+
+    /**
+     * Returns the volume credits of a line item.
+     *
+     * @param line the zero-based line index
+     * @return the volume credits
+     */
+    int getVolumeCredits(int line);
+
+    /**
+     * Returns the total amount owed for all performances.
+     *
+     * @return the total amount owed in cents
+     */
+    int totalAmount();
+
+    /**
+     * Returns the total volume credits earned for all performances.
+     *
+     * @return the total volume credits earned
+     */
+    int volumeCredits();
+}
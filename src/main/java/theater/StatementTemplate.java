@@ -0,0 +1,389 @@
+package theater;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A statement layout compiled once into literal segments and typed slots.
+ * <p>
+ * Patterns name their slots in braces, and {@link #render} fills them from a
+ * {@link StatementSource}: {@code {customer}} takes the customer,
+ * {@code {credits}} and {@code {total}} the statement's volume credits and
+ * total amount, and {@code {name}}, {@code {seats}} and {@code {amount}} the
+ * play name, audience and amount of one line item. Money slots are formatted
+ * as currency; {@code {amountCents}} and {@code {totalCents}} give the same
+ * two amounts as a plain number of cents. A pattern may use any combination
+ * of slots, each any number of times.
+ * A {@code \n} in the pattern stands for the platform line separator, like
+ * {@code %n} in {@link String#format}, except in CSV templates, where it
+ * stands for the {@code \r\n} that RFC 4180 requires. A literal brace is
+ * written {@code {{}.
+ * </p>
+ * <p>
+ * Rendering appends each segment directly, with no format parsing or boxing.
+ * Literals are also kept pre-encoded as UTF-8, so rendering into a
+ * {@link Utf8Appendable} copies them as bytes. HTML, CSV and JSON templates
+ * escape the customer and play name in the same pass. Templates are
+ * immutable and thread-safe.
+ * </p>
+ */
+public final class StatementTemplate {
+
+    /** Line index for templates that use no line item slots. */
+    public static final int NO_LINE = -1;
+
+    /**
+     * How the customer and play name are escaped.
+     */
+    public enum Escape {
+        /** Copied as is. */
+        NONE,
+        /** HTML text or attribute value. */
+        HTML,
+        /** An RFC 4180 field, quoted only when needed; the pattern must not quote it. */
+        CSV,
+        /** The inside of a JSON string; the pattern supplies the quotes. */
+        JSON
+    }
+
+    private static final int CUSTOMER = 0;
+    private static final int NAME = 1;
+    private static final int SEATS = 2;
+    private static final int CREDITS = 3;
+    private static final int AMOUNT = 4;
+    private static final int TOTAL = 5;
+    private static final int AMOUNT_CENTS = 6;
+    private static final int TOTAL_CENTS = 7;
+
+    /** Slot names, indexed by the slot constants above. */
+    private static final String[] SLOT_NAMES = {
+        "customer", "name", "seats", "credits", "amount", "total", "amountCents", "totalCents"};
+
+    private static final int RADIX = 10;
+    private static final int HEX_RADIX = 16;
+    private static final char FIRST_PRINTABLE = ' ';
+    private static final String CSV_RECORD_SEPARATOR = "\r\n";
+    private static final String UNICODE_ESCAPE = "\\u00";
+
+    private final String[] literals;
+    private final byte[][] encodedLiterals;
+    private final int[] slots;
+    private final boolean usesLine;
+    private final Escape escape;
+    private final CurrencyFormatter currency;
+
+    private StatementTemplate(final List<String> literals, final List<Integer> slots,
+                              final Escape escape, final CurrencyFormatter currency) {
+        this.literals = literals.toArray(new String[0]);
+        this.encodedLiterals = new byte[this.literals.length][];
+        for (int i = 0; i < this.literals.length; i++) {
+            encodedLiterals[i] = this.literals[i].getBytes(StandardCharsets.UTF_8);
+        }
+        this.slots = new int[slots.size()];
+        boolean line = false;
+        for (int i = 0; i < this.slots.length; i++) {
+            this.slots[i] = slots.get(i);
+            line |= isLineSlot(this.slots[i]);
+        }
+        this.usesLine = line;
+        this.escape = escape;
+        this.currency = currency;
+    }
+
+    /**
+     * Compiles a plain-text template that formats money as US dollars.
+     *
+     * @param pattern the layout
+     * @return the template
+     * @throws IllegalArgumentException if the pattern names an unknown slot
+     */
+    public static StatementTemplate text(final String pattern) {
+        return compile(pattern, Escape.NONE, CurrencyFormatter.US);
+    }
+
+    /**
+     * Compiles an HTML template that formats money as US dollars and escapes
+     * its text slots.
+     *
+     * @param pattern the layout; its literal markup is copied unescaped
+     * @return the template
+     * @throws IllegalArgumentException if the pattern names an unknown slot
+     */
+    public static StatementTemplate html(final String pattern) {
+        return compile(pattern, Escape.HTML, CurrencyFormatter.US);
+    }
+
+    /**
+     * Compiles a CSV template. The customer and play name are quoted when
+     * they contain a comma, quote or line break.
+     *
+     * @param pattern the layout
+     * @return the template
+     * @throws IllegalArgumentException if the pattern names an unknown slot
+     */
+    public static StatementTemplate csv(final String pattern) {
+        return compile(pattern, Escape.CSV, CurrencyFormatter.US);
+    }
+
+    /**
+     * Compiles a JSON template. The customer and play name are escaped for use
+     * inside a JSON string, whose quotes the pattern provides.
+     *
+     * @param pattern the layout
+     * @return the template
+     * @throws IllegalArgumentException if the pattern names an unknown slot
+     */
+    public static StatementTemplate json(final String pattern) {
+        return compile(pattern, Escape.JSON, CurrencyFormatter.US);
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param pattern  the layout
+     * @param escape   how the customer and play name are escaped
+     * @param currency the formatter for money slots
+     * @return the template
+     * @throws IllegalArgumentException if the pattern names an unknown slot
+     */
+    public static StatementTemplate compile(final String pattern, final Escape escape,
+                                            final CurrencyFormatter currency) {
+        final String source;
+        if (escape == Escape.CSV) {
+            source = pattern.replace("\n", CSV_RECORD_SEPARATOR);
+        }
+        else {
+            source = pattern.replace("\n", System.lineSeparator());
+        }
+        final List<String> literals = new ArrayList<>();
+        final List<Integer> slots = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        int start = 0;
+        int open = source.indexOf('{');
+        while (open >= 0) {
+            literal.append(source, start, open);
+            if (source.startsWith("{{", open)) {
+                literal.append('{');
+                start = open + 2;
+            }
+            else {
+                final int close = source.indexOf('}', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("unterminated slot in template: " + pattern);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(slotKind(source.substring(open + 1, close)));
+                start = close + 1;
+            }
+            open = source.indexOf('{', start);
+        }
+        literals.add(literal.append(source, start, source.length()).toString());
+        return new StatementTemplate(literals, slots, escape, currency);
+    }
+
+    private static int slotKind(final String name) {
+        for (int i = 0; i < SLOT_NAMES.length; i++) {
+            if (SLOT_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("unknown template slot: %s", name));
+    }
+
+    private static boolean isLineSlot(final int slot) {
+        return slot == NAME || slot == SEATS || slot == AMOUNT || slot == AMOUNT_CENTS;
+    }
+
+    /**
+     * Renders a template that uses no line item slots, such as a header or
+     * footer, into the given output.
+     *
+     * @param out  the output to render into
+     * @param data the statement
+     * @throws IOException              if the output fails
+     * @throws IllegalArgumentException if the pattern uses a line item slot
+     */
+    public void render(final Appendable out, final StatementSource data) throws IOException {
+        render(out, data, NO_LINE);
+    }
+
+    /**
+     * Renders the template for one line item into the given output.
+     *
+     * @param out  the output to render into
+     * @param data the statement
+     * @param line the index of the line item, or {@link #NO_LINE} if the
+     *             pattern uses no line item slots
+     * @throws IOException              if the output fails
+     * @throws IllegalArgumentException if the pattern uses a line item slot and
+     *                                  no line is given
+     */
+    public void render(final Appendable out, final StatementSource data, final int line) throws IOException {
+        if (usesLine && line == NO_LINE) {
+            throw new IllegalArgumentException("template renders a line item but no line was given");
+        }
+        final Utf8Appendable utf8;
+        if (out instanceof Utf8Appendable) {
+            utf8 = (Utf8Appendable) out;
+        }
+        else {
+            utf8 = null;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            appendLiteral(out, utf8, i);
+            switch (slots[i]) {
+                case CUSTOMER:
+                    appendText(out, data.getCustomer());
+                    break;
+                case NAME:
+                    appendText(out, data.getName(line));
+                    break;
+                case SEATS:
+                    appendLong(out, data.getAudience(line));
+                    break;
+                case CREDITS:
+                    appendLong(out, data.volumeCredits());
+                    break;
+                case AMOUNT:
+                    currency.appendTo(out, data.getAmount(line));
+                    break;
+                case TOTAL:
+                    currency.appendTo(out, data.totalAmount());
+                    break;
+                case AMOUNT_CENTS:
+                    appendLong(out, data.getAmount(line));
+                    break;
+                default:
+                    appendLong(out, data.totalAmount());
+                    break;
+            }
+        }
+        appendLiteral(out, utf8, slots.length);
+    }
+
+    private void appendLiteral(final Appendable out, final Utf8Appendable utf8, final int index) throws IOException {
+        if (utf8 != null) {
+            utf8.write(encodedLiterals[index]);
+        }
+        else if (!literals[index].isEmpty()) {
+            out.append(literals[index]);
+        }
+    }
+
+    private void appendText(final Appendable out, final String text) throws IOException {
+        switch (escape) {
+            case HTML:
+            case JSON:
+                appendEscaped(out, text);
+                break;
+            case CSV:
+                appendCsvField(out, text);
+                break;
+            default:
+                out.append(text);
+                break;
+        }
+    }
+
+    private void appendEscaped(final Appendable out, final String text) throws IOException {
+        // copy unescaped runs in one call and only break them up at special characters
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            final String replacement;
+            if (escape == Escape.HTML) {
+                replacement = entityFor(c);
+            }
+            else {
+                replacement = jsonEscapeFor(c);
+            }
+            if (replacement != null) {
+                out.append(text, run, i).append(replacement);
+                run = i + 1;
+            }
+        }
+        out.append(text, run, text.length());
+    }
+
+    private static void appendCsvField(final Appendable out, final String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            final char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.append(text);
+            return;
+        }
+        out.append('"');
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                out.append(text, run, i + 1).append('"');
+                run = i + 1;
+            }
+        }
+        out.append(text, run, text.length()).append('"');
+    }
+
+    private static String jsonEscapeFor(final char c) {
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            default:
+                if (c < FIRST_PRINTABLE) {
+                    return UNICODE_ESCAPE + Character.forDigit(c / HEX_RADIX, HEX_RADIX)
+                            + Character.forDigit(c % HEX_RADIX, HEX_RADIX);
+                }
+                return null;
+        }
+    }
+
+    private static String entityFor(final char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#39;";
+            default:
+                return null;
+        }
+    }
+
+    private static void appendLong(final Appendable out, final long value) throws IOException {
+        // work with a non-positive value so that Long.MIN_VALUE needs no special case
+        long negative = value;
+        if (value < 0) {
+            out.append('-');
+        }
+        else {
+            negative = -value;
+        }
+        // emit digits from the most significant down, without a scratch buffer
+        long power = 1;
+        while (negative / power <= -RADIX) {
+            power *= RADIX;
+        }
+        while (power > 0) {
+            out.append((char) ('0' - negative / power % RADIX));
+            power /= RADIX;
+        }
+    }
+}
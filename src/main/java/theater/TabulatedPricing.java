@@ -0,0 +1,107 @@
+package theater;
+
+/**
+ * Pricing strategy backed by precomputed amount and volume-credit tables.
+ * <p>
+ * The wrapped strategy is evaluated once for every audience size from 0 to
+ * {@code maxAudience}; lookups in that range are then a single array read.
+ * Audiences outside the range fall back to the wrapped formula, so results are
+ * always identical to it. The bulk methods run as tight loops over the tables,
+ * which suits pricing millions of what-if audiences in one call.
+ * </p>
+ */
+public final class TabulatedPricing implements PricingStrategy {
+
+    private final PricingStrategy formula;
+    private final int[] amounts;
+    private final int[] credits;
+
+    /**
+     * Precomputes the tables for the given strategy.
+     *
+     * @param formula     the strategy to tabulate
+     * @param maxAudience the largest audience held in the tables
+     * @throws IllegalArgumentException if {@code maxAudience} is negative
+     */
+    public TabulatedPricing(final PricingStrategy formula, final int maxAudience) {
+        if (maxAudience < 0) {
+            throw new IllegalArgumentException("maxAudience must not be negative: " + maxAudience);
+        }
+        this.formula = formula;
+        this.amounts = new int[maxAudience + 1];
+        this.credits = new int[maxAudience + 1];
+        for (int audience = 0; audience <= maxAudience; audience++) {
+            amounts[audience] = formula.amountFor(audience);
+            credits[audience] = formula.volumeCreditsFor(audience);
+        }
+    }
+
+    /**
+     * Returns the largest audience held in the tables.
+     *
+     * @return the table range
+     */
+    public int getMaxAudience() {
+        return amounts.length - 1;
+    }
+
+    @Override
+    public String getPlayType() {
+        return formula.getPlayType();
+    }
+
+    /**
+     * Returns the fingerprint of the tabulated strategy, whose prices the
+     * tables reproduce exactly.
+     *
+     * @return the fingerprint
+     */
+    @Override
+    public long fingerprint() {
+        return formula.fingerprint();
+    }
+
+    @Override
+    public int amountFor(final int audience) {
+        if (audience >= 0 && audience < amounts.length) {
+            return amounts[audience];
+        }
+        return formula.amountFor(audience);
+    }
+
+    @Override
+    public int volumeCreditsFor(final int audience) {
+        if (audience >= 0 && audience < credits.length) {
+            return credits[audience];
+        }
+        return formula.volumeCreditsFor(audience);
+    }
+
+    @Override
+    public void amountsFor(final int[] audiences, final int[] result) {
+        final int[] table = amounts;
+        for (int i = 0; i < audiences.length; i++) {
+            final int audience = audiences[i];
+            if (audience >= 0 && audience < table.length) {
+                result[i] = table[audience];
+            }
+            else {
+                result[i] = formula.amountFor(audience);
+            }
+        }
+    }
+
+    @Override
+    public void volumeCreditsFor(final int[] audiences, final int[] result) {
+        final int[] table = credits;
+        for (int i = 0; i < audiences.length; i++) {
+            final int audience = audiences[i];
+            if (audience >= 0 && audience < table.length) {
+                result[i] = table[audience];
+            }
+            else {
+                result[i] = formula.volumeCreditsFor(audience);
+            }
+        }
+    }
+}
@@ -1,26 +1,30 @@
 package theater;
 
 /**
- * Calculator implementation for 'tragedy' plays.
+ * Stateless pricing rules for 'tragedy' plays.
  */
-public class TragedyCalculator extends AbstractPerformanceCalculator {
+public final class TragedyCalculator implements PricingStrategy {
 
-    public TragedyCalculator(final Performance performance, final Play play) {
-        super(performance, play);
+    @Override
+    public String getPlayType() {
+        return "tragedy";
     }
 
     /**
      * 4.3: 实现悲剧的 getAmount 逻辑.
      */
     @Override
-    public int getAmount() {
+    public int amountFor(final int audience) {
         int result = Constants.TRAGEDY_BASE_AMOUNT;
-        if (getPerformance().getAudience() > Constants.TRAGEDY_AUDIENCE_THRESHOLD) {
+        if (audience > Constants.TRAGEDY_AUDIENCE_THRESHOLD) {
             result += Constants.TRAGEDY_OVER_BASE_CAPACITY_PER_PERSON
-                    * (getPerformance().getAudience() - Constants.TRAGEDY_AUDIENCE_THRESHOLD);
+                    * (audience - Constants.TRAGEDY_AUDIENCE_THRESHOLD);
         }
         return result;
     }
 
-    // getVolumeCredits 继承自 AbstractPerformanceCalculator 的通用逻辑
+    @Override
+    public int volumeCreditsFor(final int audience) {
+        return Math.max(audience - Constants.BASE_VOLUME_CREDIT_THRESHOLD, 0);
+    }
 }
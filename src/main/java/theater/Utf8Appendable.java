@@ -0,0 +1,186 @@
+package theater;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link Appendable} that encodes characters as UTF-8 straight into an
+ * {@link OutputStream} through a fixed-size byte buffer.
+ * <p>
+ * {@link StatementTemplate} recognises this type and copies its pre-encoded
+ * literal segments in with {@link #write(byte[])}, so only the variable parts
+ * of a statement are encoded at render time.
+ * </p>
+ */
+final class Utf8Appendable implements Appendable {
+
+    private static final int ONE_BYTE_LIMIT = 0x80;
+    private static final int TWO_BYTE_LIMIT = 0x800;
+    private static final int SIX_BITS = 6;
+    private static final int TWELVE_BITS = 12;
+    private static final int EIGHTEEN_BITS = 18;
+    private static final int CONTINUATION = 0x80;
+    private static final int CONTINUATION_MASK = 0x3f;
+    private static final int TWO_BYTE_LEAD = 0xc0;
+    private static final int THREE_BYTE_LEAD = 0xe0;
+    private static final int FOUR_BYTE_LEAD = 0xf0;
+    private static final int MAX_SEQUENCE = 4;
+    private static final char REPLACEMENT = '?';
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[Constants.STREAM_BUFFER_SIZE];
+    private int count;
+    private long drained;
+    private char pendingHighSurrogate;
+
+    /**
+     * Creates an appendable writing to the given stream.
+     *
+     * @param out the stream; it is flushed by {@link #flush()} but never closed
+     */
+    Utf8Appendable(final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Copies already-encoded bytes. A high surrogate still waiting for its low
+     * half is written as a replacement first, as the bytes cannot complete it.
+     *
+     * @param bytes UTF-8 bytes
+     * @throws IOException if writing fails
+     */
+    void write(final byte[] bytes) throws IOException {
+        replacePendingSurrogate();
+        if (bytes.length > buffer.length - count) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                drained += bytes.length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    @Override
+    public Appendable append(final CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(final char c) throws IOException {
+        if (buffer.length - count < MAX_SEQUENCE) {
+            drain();
+        }
+        if (pendingHighSurrogate != 0) {
+            final char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (FOUR_BYTE_LEAD | codePoint >> EIGHTEEN_BITS);
+                buffer[count++] = (byte) (CONTINUATION | codePoint >> TWELVE_BITS & CONTINUATION_MASK);
+                buffer[count++] = (byte) (CONTINUATION | codePoint >> SIX_BITS & CONTINUATION_MASK);
+                buffer[count++] = (byte) (CONTINUATION | codePoint & CONTINUATION_MASK);
+                return this;
+            }
+            buffer[count++] = (byte) REPLACEMENT;
+        }
+        if (c < ONE_BYTE_LIMIT) {
+            buffer[count++] = (byte) c;
+        }
+        else if (c < TWO_BYTE_LIMIT) {
+            buffer[count++] = (byte) (TWO_BYTE_LEAD | c >> SIX_BITS);
+            buffer[count++] = (byte) (CONTINUATION | c & CONTINUATION_MASK);
+        }
+        else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        }
+        else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = (byte) REPLACEMENT;
+        }
+        else {
+            buffer[count++] = (byte) (THREE_BYTE_LEAD | c >> TWELVE_BITS);
+            buffer[count++] = (byte) (CONTINUATION | c >> SIX_BITS & CONTINUATION_MASK);
+            buffer[count++] = (byte) (CONTINUATION | c & CONTINUATION_MASK);
+        }
+        return this;
+    }
+
+    /**
+     * Writes out everything buffered and flushes the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException {
+        replacePendingSurrogate();
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Returns the number of bytes encoded so far, including buffered ones.
+     *
+     * @return the byte count
+     */
+    long bytesWritten() {
+        return drained + count;
+    }
+
+    /**
+     * Returns the number of bytes the given text takes in UTF-8, counting an
+     * unpaired surrogate as one replacement byte like {@link #append(char)}.
+     *
+     * @param text the text
+     * @return the encoded length
+     */
+    static long encodedLength(final CharSequence text) {
+        long length = 0;
+        final int size = text.length();
+        int i = 0;
+        while (i < size) {
+            final char c = text.charAt(i++);
+            if (c < ONE_BYTE_LIMIT) {
+                length++;
+            }
+            else if (c < TWO_BYTE_LIMIT) {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i < size && Character.isLowSurrogate(text.charAt(i))) {
+                length += MAX_SEQUENCE;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                length++;
+            }
+            else {
+                length += MAX_SEQUENCE - 1;
+            }
+        }
+        return length;
+    }
+
+    private void replacePendingSurrogate() {
+        // append(char) leaves room for a whole sequence when it holds back a high surrogate
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            buffer[count++] = (byte) REPLACEMENT;
+        }
+    }
+
+    private void drain() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            drained += count;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package theater;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+
+/**
+ * Bytes allocated per statement, per line and per phase, measured with
+ * {@code com.sun.management.ThreadMXBean} and checked against fixed budgets.
+ * <p>
+ * Each scenario is warmed up first so that the JIT has settled, and the
+ * lowest of several rounds is kept to filter out one-off allocations. The
+ * cost per line is the difference between a 1000-line and a 3-line invoice,
+ * so fixed costs such as buffers do not blur it. A failing test reports, in
+ * its failure message, every scenario it measured with its budget, and marks
+ * those that went over and by how much.
+ * </p>
+ * <p>
+ * Budgets leave roughly 25% of headroom over the figures measured on JDK
+ * {@value #BUDGETED_SPECIFICATION}. Allocation sizes differ between JDK
+ * releases, so on any other release the tests are skipped rather than
+ * checked against numbers that do not apply. When a change lowers
+ * allocation, tighten the budget in the same commit; when one raises it on
+ * purpose, say why next to the new number.
+ * </p>
+ */
+public class AllocationBudgetTests {
+
+    /** The {@code java.specification.version} the budgets were measured on. */
+    private static final String BUDGETED_SPECIFICATION = "17";
+
+    private static final int SAMPLE_WARMUP = 20_000;
+    private static final int SAMPLE_ITERATIONS = 2_000;
+    private static final int LONG_WARMUP = 200;
+    private static final int LONG_ITERATIONS = 20;
+    private static final int ROUNDS = 5;
+    private static final int LONG_INVOICE_LINES = 1_000;
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "othello", new Play("Othello", "tragedy"));
+
+    private static final Invoice SAMPLE = new Invoice("BigCo", List.of(
+            new Performance("hamlet", 55),
+            new Performance("as-like", 35),
+            new Performance("othello", 40)));
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static PlayCatalog catalog;
+    private static Invoice longInvoice;
+
+    private final List<String> report = new ArrayList<>();
+    private boolean overBudget;
+
+    @BeforeClass
+    public static void setUp() {
+        assumeTrue("allocation budgets apply to JDK " + BUDGETED_SPECIFICATION + " only",
+                BUDGETED_SPECIFICATION.equals(System.getProperty("java.specification.version")));
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("thread allocation accounting is not available",
+                bean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+        threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        catalog = PlayCatalog.of(PLAYS);
+        String[] playIDs = {"hamlet", "as-like", "othello"};
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < LONG_INVOICE_LINES; i++) {
+            performances.add(new Performance(playIDs[i % playIDs.length], i % 80));
+        }
+        longInvoice = new Invoice("BigCo", performances);
+    }
+
+    @After
+    public void failOnOverruns() {
+        if (overBudget) {
+            fail(String.format("allocation budget exceeded (bytes)%n%-50s %10s %10s  %s%n%s",
+                    "scenario", "measured", "budget", "status", String.join(System.lineSeparator(), report)));
+        }
+    }
+
+    /**
+     * Returns the fewest bytes allocated by one call of the action in any round.
+     */
+    private static long measure(Runnable action, int warmup, int iterations) {
+        for (int i = 0; i < warmup; i++) {
+            action.run();
+        }
+        long threadID = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(threadID);
+            for (int i = 0; i < iterations; i++) {
+                action.run();
+            }
+            best = Math.min(best, (threads.getThreadAllocatedBytes(threadID) - before) / iterations);
+        }
+        return best;
+    }
+
+    private void check(String scenario, long bytes, long budget) {
+        String status = "ok";
+        if (bytes > budget) {
+            status = String.format("OVER BUDGET by %d (+%d%%)", bytes - budget, (bytes - budget) * 100 / budget);
+            overBudget = true;
+        }
+        report.add(String.format("%-50s %10d %10d  %s", scenario, bytes, budget, status));
+    }
+
+    /**
+     * Checks one call on the 3-line sample invoice, and each further line
+     * from the difference to the same call on the long invoice.
+     */
+    private void checkCallAndLine(String scenario, Runnable sample, Runnable longer,
+                                  long callBudget, long lineBudget) {
+        long call = measure(sample, SAMPLE_WARMUP, SAMPLE_ITERATIONS);
+        long longCall = measure(longer, LONG_WARMUP, LONG_ITERATIONS);
+        check(scenario + ", 3-line invoice", call, callBudget);
+        check(scenario + ", per extra line",
+                (longCall - call) / (LONG_INVOICE_LINES - SAMPLE.getPerformances().size()), lineBudget);
+    }
+
+    private static void stream(StatementPrinter printer) {
+        try {
+            printer.writeTo(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        }
+        catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Test
+    public void statementDataFromPlayMap() {
+        checkCallAndLine("StatementData(map) build",
+                () -> new StatementData(SAMPLE, PLAYS), () -> new StatementData(longInvoice, PLAYS), 416, 64);
+    }
+
+    @Test
+    public void statementDataFromCatalog() {
+        checkCallAndLine("StatementData(catalog) build",
+                () -> new StatementData(SAMPLE, catalog), () -> new StatementData(longInvoice, catalog), 416, 64);
+    }
+
+    @Test
+    public void plainTextStatement() {
+        StatementPrinter sample = new StatementPrinter(SAMPLE, catalog);
+        StatementPrinter longer = new StatementPrinter(longInvoice, catalog);
+        checkCallAndLine("StatementPrinter.statement()", sample::statement, longer::statement, 1152, 136);
+    }
+
+    @Test
+    public void htmlStatement() {
+        StatementPrinter sample = new HTMLStatementPrinter(SAMPLE, catalog);
+        StatementPrinter longer = new HTMLStatementPrinter(longInvoice, catalog);
+        checkCallAndLine("HTMLStatementPrinter.statement()", sample::statement, longer::statement, 2176, 256);
+    }
+
+    @Test
+    public void streamingStatement() {
+        StatementPrinter sample = new StatementPrinter(SAMPLE, catalog);
+        StatementPrinter longer = new StatementPrinter(longInvoice, catalog);
+        // the 8 KiB encoding buffer is the only allocation; nothing is allocated per line
+        checkCallAndLine("StatementPrinter.writeTo(UTF-8)", () -> stream(sample), () -> stream(longer), 8704, 8);
+    }
+
+    @Test
+    public void statementFromPlayMap() {
+        check("new StatementPrinter(invoice, map).statement()",
+                measure(() -> new StatementPrinter(SAMPLE, PLAYS).statement(), SAMPLE_WARMUP, SAMPLE_ITERATIONS),
+                1504);
+    }
+}
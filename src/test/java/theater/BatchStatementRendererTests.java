@@ -0,0 +1,73 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class BatchStatementRendererTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "cats", new Play("Cats", "opera"));
+
+    private static List<Invoice> invoices(int count) {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String playID = i % 7 == 3 ? "cats" : (i % 2 == 0 ? "hamlet" : "as-like");
+            invoices.add(new Invoice("Customer" + i, List.of(new Performance(playID, i % 60))));
+        }
+        return invoices;
+    }
+
+    @Test
+    public void resultsKeepInputOrderAndReportFailures() throws Exception {
+        List<Invoice> invoices = invoices(500);
+        ExecutorService executor = BatchStatementRenderer.forkJoinExecutor(8);
+        try {
+            BatchStatementRenderer renderer =
+                    new BatchStatementRenderer(PLAYS, StatementPrinter::new, executor, 16);
+            List<BatchResult> results = renderer.renderAll(invoices);
+
+            assertEquals(invoices.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                BatchResult result = results.get(i);
+                assertEquals(i, result.getIndex());
+                if (i % 7 == 3) {
+                    assertFalse(result.isSuccess());
+                    assertEquals("unknown type: opera", result.getFailure().getMessage());
+                }
+                else {
+                    assertTrue(result.isSuccess());
+                    assertEquals(new StatementPrinter(invoices.get(i), PLAYS).statement(),
+                            result.getStatement());
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThreadExecutorRendersHtml() {
+        ExecutorService executor = BatchStatementRenderer.virtualThreadExecutor();
+        try {
+            BatchStatementRenderer renderer =
+                    new BatchStatementRenderer(PLAYS, HTMLStatementPrinter::new, executor, 4);
+            List<BatchResult> results = renderer.renderAll(invoices(3));
+            assertTrue(results.get(0).getStatement().startsWith("<h1>Statement for Customer0</h1>"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
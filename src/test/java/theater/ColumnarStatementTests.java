@@ -0,0 +1,69 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+public class ColumnarStatementTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "henry-v", new Play("Henry V", "history"),
+            "pastoral", new Play("The Shepherd", "pastoral"));
+
+    private static final String[] PLAY_IDS = {"hamlet", "as-like", "henry-v", "pastoral"};
+
+    @Test
+    public void columnarStatementsAreIdenticalToObjectStatements() {
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            performances.add(new Performance(PLAY_IDS[i % PLAY_IDS.length], (i * 7) % 90));
+        }
+        Invoice invoice = new Invoice("BigCo", performances);
+        ColumnarStatementData columnar = new ColumnarStatementData(ColumnarInvoice.from(invoice), PLAYS);
+
+        assertEquals(new StatementPrinter(invoice, PLAYS).statement(),
+                new StatementPrinter(columnar).statement());
+        assertEquals(new HTMLStatementPrinter(invoice, PLAYS).statement(),
+                new HTMLStatementPrinter(columnar).statement());
+    }
+
+    @Test
+    public void builderInternsPlayIDs() {
+        ColumnarInvoice invoice = ColumnarInvoice.builder("BigCo")
+                .add("hamlet", 55)
+                .add("as-like", 35)
+                .add("hamlet", 40)
+                .build();
+
+        assertEquals(3, invoice.size());
+        assertEquals(2, invoice.getPlayCount());
+        assertEquals(invoice.getPlayIndex(0), invoice.getPlayIndex(2));
+        assertEquals("hamlet", invoice.toInvoice().getPerformances().get(2).getPlayID());
+    }
+
+    @Test
+    public void subclassesKeepObjectAccessToStatementData() {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55)));
+        StatementData data = new StatementData(invoice, PLAYS);
+        ColumnarStatementData columnar = new ColumnarStatementData(ColumnarInvoice.from(invoice), PLAYS);
+
+        assertSame(data, new StatementPrinter(data).getStatementData());
+        assertSame(columnar, new StatementPrinter(columnar).getStatementSource());
+        try {
+            new StatementPrinter(columnar).getStatementData();
+            fail("expected columnar data to be rejected");
+        }
+        catch (IllegalStateException expected) {
+            // only the object path has a StatementData
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class CreditLedgerTests {
+
+    private static final int THREADS = 8;
+    private static final int POSTINGS_PER_THREAD = 2_000;
+    private static final int CUSTOMERS = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> files(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Map<String, Long> postConcurrently(CreditLedger ledger) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<CompletableFuture<Void>>>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                List<CompletableFuture<Void>> durable = new ArrayList<>();
+                for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                    durable.add(ledger.post("Customer " + (thread + i) % CUSTOMERS, i % 7));
+                }
+                return durable;
+            }));
+        }
+        for (Future<List<CompletableFuture<Void>>> result : results) {
+            CompletableFuture.allOf(result.get().toArray(new CompletableFuture<?>[0])).join();
+        }
+        executor.shutdown();
+        return ledger.balances();
+    }
+
+    @Test
+    public void concurrentPostingsAreCountedAndGroupCommitted() throws Exception {
+        try (CreditLedger ledger = CreditLedger.open(folder.getRoot().toPath())) {
+            Map<String, Long> balances = postConcurrently(ledger);
+
+            long expected = 0;
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                expected += i % 7;
+            }
+            assertEquals(CUSTOMERS, balances.size());
+            assertEquals(expected * THREADS, balances.values().stream().mapToLong(Long::longValue).sum());
+            assertEquals(THREADS * POSTINGS_PER_THREAD, ledger.committedPostingCount());
+            assertTrue(ledger.commitCount() <= ledger.committedPostingCount());
+        }
+    }
+
+    @Test
+    public void reopeningReplaysTheLog() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Map<String, Long> balances;
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            postConcurrently(ledger);
+            ledger.post("Acme", -3);
+            balances = ledger.balances();
+        }
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            assertEquals(balances, ledger.balances());
+            assertEquals(-3, ledger.balance("Acme"));
+            assertEquals(0, ledger.balance("Nobody"));
+        }
+    }
+
+    @Test
+    public void checkpointFoldsSealedSegmentsIntoSnapshot() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Map<String, Long> balances;
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            ledger.post("BigCo", 40);
+            ledger.post("Acme", 5);
+            ledger.checkpoint();
+            assertEquals(List.of("credits-00000001.log", "credits.snapshot"), files(directory));
+
+            ledger.post("BigCo", 2).join();
+            balances = ledger.balances();
+        }
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            assertEquals(balances, ledger.balances());
+            assertEquals(42, ledger.balance("BigCo"));
+            ledger.checkpoint();
+        }
+        assertEquals(List.of("credits-00000003.log", "credits.snapshot"), files(directory));
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            assertEquals(balances, ledger.balances());
+        }
+    }
+
+    @Test
+    public void tornRecordAtTheEndIsDropped() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            ledger.post("BigCo", 40);
+            ledger.post("Acme", 5);
+        }
+        Path segment = directory.resolve("credits-00000000.log");
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[] {0, 0, 0, 20, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            assertEquals(40, ledger.balance("BigCo"));
+            assertEquals(5, ledger.balance("Acme"));
+            assertEquals(intact, Files.size(segment));
+            ledger.post("BigCo", 1);
+        }
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            assertEquals(41, ledger.balance("BigCo"));
+        }
+    }
+
+    @Test
+    public void postsStatementCredits() throws Exception {
+        Map<String, Play> plays = Map.of(
+                "hamlet", new Play("Hamlet", "tragedy"),
+                "as-like", new Play("As You Like It", "comedy"));
+        Invoice invoice = new Invoice("BigCo", List.of(
+                new Performance("hamlet", 55), new Performance("as-like", 35)));
+        StatementData data = new StatementData(invoice, plays);
+
+        try (CreditLedger ledger = CreditLedger.open(folder.getRoot().toPath())) {
+            ledger.post(data).join();
+            ledger.post(data).join();
+            assertEquals(2L * data.volumeCredits(), ledger.balance("BigCo"));
+        }
+    }
+
+    @Test
+    public void checkpointSkipsSegmentsAlreadyInTheSnapshot() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            ledger.post("BigCo", 40);
+        }
+        Path first = directory.resolve("credits-00000000.log");
+        byte[] folded = Files.readAllBytes(first);
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            ledger.checkpoint();
+        }
+
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            // as if the previous checkpoint had failed to delete the segment it folded
+            Files.write(first, folded);
+            ledger.post("BigCo", 1);
+            ledger.checkpoint();
+            assertEquals(41, ledger.balance("BigCo"));
+        }
+        assertTrue(Files.notExists(first));
+        try (CreditLedger ledger = CreditLedger.open(directory)) {
+            assertEquals(41, ledger.balance("BigCo"));
+        }
+    }
+
+    @Test
+    public void truncatedSnapshotIsReportedAsCorrupt() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Files.write(directory.resolve("credits.snapshot"), new byte[] {1, 2});
+        try {
+            CreditLedger.open(directory).close();
+            fail("expected a corrupt snapshot");
+        }
+        catch (IOException exception) {
+            assertTrue(exception.getMessage().startsWith("corrupt credit snapshot"));
+        }
+    }
+
+    @Test
+    public void postingsRacingCloseAreCommittedOrRejected() throws Exception {
+        CreditLedger ledger = CreditLedger.open(folder.getRoot().toPath());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<CompletableFuture<Void>>>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                List<CompletableFuture<Void>> durable = new ArrayList<>();
+                try {
+                    while (true) {
+                        durable.add(ledger.post("BigCo", 1));
+                    }
+                }
+                catch (IllegalStateException closed) {
+                    return durable;
+                }
+            }));
+        }
+        Thread.sleep(20);
+        ledger.close();
+
+        long committed = 0;
+        for (Future<List<CompletableFuture<Void>>> result : results) {
+            for (CompletableFuture<Void> durable : result.get(10, TimeUnit.SECONDS)) {
+                durable.get(10, TimeUnit.SECONDS);
+                committed++;
+            }
+        }
+        executor.shutdown();
+        assertEquals(committed, ledger.committedPostingCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsPostingsAfterClose() throws Exception {
+        CreditLedger ledger = CreditLedger.open(folder.getRoot().toPath());
+        ledger.close();
+        ledger.post("BigCo", 1);
+    }
+}
@@ -0,0 +1,43 @@
+package theater;
+
+import org.junit.Test;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class CurrencyFormatterTests {
+
+    private static final long[] AMOUNTS = {
+            0, 5, 99, 100, 65000, 173000, 180500, 99999, 100000, 123456789,
+            -1, -65000, -123456789, Integer.MAX_VALUE, Integer.MIN_VALUE, 99999999999999L};
+
+    @Test
+    public void matchesNumberFormatForUsDollars() {
+        NumberFormat expected = NumberFormat.getCurrencyInstance(Locale.US);
+        for (long amount : AMOUNTS) {
+            assertEquals(expected.format(amount / 100.0), CurrencyFormatter.US.format(amount));
+        }
+    }
+
+    @Test
+    public void formatsOtherLocales() {
+        assertEquals("\u00a31,730.00", CurrencyFormatter.forLocale(Locale.UK).format(173000));
+        assertEquals("1.730,00\u00a0\u20ac", CurrencyFormatter.forLocale(Locale.GERMANY).format(173000));
+        assertEquals("-1\u202f234\u202f567,89\u00a0\u20ac", CurrencyFormatter.FRANCE.format(-123456789));
+        assertEquals("$0.05", CurrencyFormatter.CANADA.format(5));
+    }
+
+    @Test
+    public void handlesExtremeValues() {
+        assertEquals("-$92,233,720,368,547,758.08", CurrencyFormatter.US.format(Long.MIN_VALUE));
+        assertEquals("$92,233,720,368,547,758.07", CurrencyFormatter.US.format(Long.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedLocale() {
+        CurrencyFormatter.forLocale(Locale.JAPAN);
+    }
+}
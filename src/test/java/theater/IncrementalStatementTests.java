@@ -0,0 +1,172 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class IncrementalStatementTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "othello", new Play("Othello", "tragedy"));
+
+    private static final PlayCatalog CATALOG = PlayCatalog.of(PLAYS);
+
+    @Test
+    public void addRemoveAndCorrectKeepTotalsInStep() {
+        IncrementalStatement statement = new IncrementalStatement("BigCo", CATALOG, 16);
+        long hamlet = statement.add(new Performance("hamlet", 55));
+        long wrong = statement.add(new Performance("hamlet", 1));
+        statement.add(new Performance("othello", 40));
+        long version = statement.getVersion();
+
+        assertTrue(statement.correct(wrong, new Performance("as-like", 35)));
+        assertTrue(statement.remove(hamlet));
+        assertFalse(statement.remove(hamlet));
+        statement.add(new Performance("hamlet", 55));
+
+        Invoice expected = new Invoice("BigCo", List.of(
+                new Performance("as-like", 35),
+                new Performance("othello", 40),
+                new Performance("hamlet", 55)));
+        assertEquals(new StatementPrinter(expected, PLAYS).statement(),
+                new StatementPrinter(statement.snapshot()).statement());
+        assertEquals(173000, statement.totalAmount());
+
+        List<IncrementalStatement.Change> changes = statement.changesSince(version);
+        assertEquals(3, changes.size());
+        assertEquals(IncrementalStatement.Change.Kind.CORRECTED, changes.get(0).getKind());
+        assertEquals("As You Like It", changes.get(0).getName());
+        assertEquals(1, changes.get(0).getPosition());
+        assertEquals(IncrementalStatement.Change.Kind.REMOVED, changes.get(1).getKind());
+        assertEquals(hamlet, changes.get(1).getLineID());
+        assertEquals(0, changes.get(1).getPosition());
+        assertEquals(2, changes.get(2).getPosition());
+        assertEquals(statement.getVersion(), changes.get(2).getVersion());
+        assertTrue(statement.changesSince(statement.getVersion()).isEmpty());
+    }
+
+    @Test
+    public void replayingChangesByPositionTracksTheStatement() {
+        IncrementalStatement statement = new IncrementalStatement("BigCo", CATALOG, 64);
+        List<String> rendered = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        String[] playIDs = {"hamlet", "as-like", "othello"};
+        Random random = new Random(42);
+        for (int step = 0; step < 5000; step++) {
+            long version = statement.getVersion();
+            int action = random.nextInt(3);
+            if (action == 0 || ids.isEmpty()) {
+                ids.add(statement.add(new Performance(playIDs[random.nextInt(3)], random.nextInt(80))));
+            }
+            else if (action == 1) {
+                statement.remove(ids.remove(random.nextInt(ids.size())));
+            }
+            else {
+                statement.correct(ids.get(random.nextInt(ids.size())),
+                        new Performance(playIDs[random.nextInt(3)], random.nextInt(80)));
+            }
+            for (IncrementalStatement.Change change : statement.changesSince(version)) {
+                String line = change.getName() + ":" + change.getAmount();
+                if (change.getKind() == IncrementalStatement.Change.Kind.ADDED) {
+                    rendered.add(change.getPosition(), line);
+                }
+                else if (change.getKind() == IncrementalStatement.Change.Kind.REMOVED) {
+                    rendered.remove(change.getPosition());
+                }
+                else {
+                    rendered.set(change.getPosition(), line);
+                }
+            }
+        }
+
+        StatementSource snapshot = statement.snapshot();
+        List<String> expected = new ArrayList<>();
+        for (int line = 0; line < snapshot.size(); line++) {
+            expected.add(snapshot.getName(line) + ":" + snapshot.getAmount(line));
+        }
+        assertEquals(expected, rendered);
+    }
+
+    @Test
+    public void positionsStayCorrectUnderLongAddRemoveChurn() {
+        IncrementalStatement statement = new IncrementalStatement("BigCo", CATALOG, 4);
+        long first = statement.add(new Performance("hamlet", 55));
+        long last = statement.add(new Performance("othello", 40));
+        for (int i = 0; i < 200_000; i++) {
+            long middle = statement.add(new Performance("as-like", i % 80));
+            assertEquals(2, statement.changesSince(statement.getVersion() - 1).get(0).getPosition());
+            statement.remove(middle);
+            assertEquals(2, statement.changesSince(statement.getVersion() - 1).get(0).getPosition());
+        }
+        statement.correct(last, new Performance("othello", 41));
+        assertEquals(1, statement.changesSince(statement.getVersion() - 1).get(0).getPosition());
+        statement.remove(first);
+        assertEquals(0, statement.changesSince(statement.getVersion() - 1).get(0).getPosition());
+    }
+
+    @Test
+    public void journalKeepsOnlyTheMostRecentChanges() {
+        IncrementalStatement statement = new IncrementalStatement("BigCo", CATALOG, 4);
+        for (int i = 0; i < 10; i++) {
+            statement.add(new Performance("hamlet", i));
+        }
+
+        assertEquals(10, statement.getVersion());
+        assertEquals(4, statement.changesSince(6).size());
+        assertEquals(7, statement.changesSince(6).get(0).getVersion());
+        try {
+            statement.changesSince(5);
+            fail("expected overwritten changes to be reported");
+        }
+        catch (IllegalArgumentException exception) {
+            assertEquals("changes before version 6 are no longer kept", exception.getMessage());
+        }
+
+        IncrementalStatement untracked = new IncrementalStatement("BigCo", CATALOG);
+        untracked.add(new Performance("hamlet", 1));
+        assertTrue(untracked.changesSince(untracked.getVersion()).isEmpty());
+        try {
+            untracked.changesSince(0);
+            fail("expected a statement without a journal to keep no changes");
+        }
+        catch (IllegalArgumentException expected) {
+            // no journal was asked for
+        }
+    }
+
+    @Test
+    public void concurrentAppendersProduceConsistentTotals() throws InterruptedException {
+        IncrementalStatement statement = new IncrementalStatement("BigCo", CATALOG);
+        List<Thread> threads = new ArrayList<>();
+        List<Performance> all = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            List<Performance> mine = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                mine.add(new Performance(i % 2 == 0 ? "hamlet" : "as-like", (i + t) % 70));
+            }
+            all.addAll(mine);
+            threads.add(new Thread(() -> mine.forEach(statement::add)));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        StatementData expected = new StatementData(new Invoice("BigCo", all), PLAYS);
+        assertEquals(all.size(), statement.size());
+        assertEquals(expected.totalAmount(), statement.totalAmount());
+        assertEquals(expected.volumeCredits(), statement.volumeCredits());
+        assertEquals(expected.totalAmount(), statement.snapshot().totalAmount());
+    }
+}
@@ -0,0 +1,129 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+public class InvoiceArchiveTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "henry-v", new Play("Henry V", "history"),
+            "shepherd", new Play("The Shepherd's Tale", "pastoral"));
+
+    private static final String[] PLAY_IDS = {"hamlet", "as-like", "henry-v", "shepherd"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Invoice> invoices() {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            List<Performance> performances = new ArrayList<>();
+            for (int p = 0; p < i % 50; p++) {
+                performances.add(new Performance(PLAY_IDS[(i + p) % PLAY_IDS.length], (p * 37 + i) % 500));
+            }
+            invoices.add(new Invoice("Customer-" + i + "-é", performances));
+        }
+        return invoices;
+    }
+
+    @Test
+    public void roundTripsInvoicesWithRandomAccess() throws IOException {
+        Path file = folder.newFile("invoices.bin").toPath();
+        List<Invoice> invoices = invoices();
+        try (InvoiceArchiveWriter writer = new InvoiceArchiveWriter(file)) {
+            for (Invoice invoice : invoices) {
+                writer.append(invoice);
+            }
+        }
+
+        PlayCatalog catalog = PlayCatalog.of(PLAYS);
+        try (InvoiceArchiveReader reader = new InvoiceArchiveReader(file)) {
+            assertEquals(invoices.size(), reader.size());
+            for (int i = invoices.size() - 1; i >= 0; i -= 7) {
+                Invoice expected = invoices.get(i);
+                assertEquals(i, reader.indexOf(expected.getCustomer()));
+
+                String statement = new StatementPrinter(expected, PLAYS).statement();
+                assertEquals(statement, new StatementPrinter(reader.readInvoice(i), PLAYS).statement());
+                assertEquals(statement,
+                        new StatementPrinter(new ColumnarStatementData(reader.readColumnar(i, catalog), catalog))
+                                .statement());
+
+                StatementData data = new StatementData(expected, PLAYS);
+                assertEquals(data.totalAmount(), reader.totalAmount(i, catalog));
+                assertEquals(data.volumeCredits(), reader.volumeCredits(i, catalog));
+            }
+            assertEquals(-1, reader.indexOf("nobody"));
+        }
+    }
+
+    @Test
+    public void customerTableFindsFirstInvoiceOfEachCustomer() throws IOException {
+        Path file = folder.newFile("repeat.bin").toPath();
+        try (InvoiceArchiveWriter writer = new InvoiceArchiveWriter(file)) {
+            for (int i = 0; i < 5000; i++) {
+                writer.append(new Invoice("Customer-" + i % 1000, List.of(new Performance("hamlet", i))));
+            }
+        }
+
+        try (InvoiceArchiveReader reader = new InvoiceArchiveReader(file)) {
+            for (int c = 0; c < 1000; c++) {
+                int index = reader.indexOf("Customer-" + c);
+                assertEquals(c, index);
+                assertEquals(c, reader.readInvoice(index).getPerformances().get(0).getAudience());
+            }
+            assertArrayEquals(new int[] {7, 1007, 2007, 3007, 4007}, reader.indexesOf("Customer-7"));
+            assertEquals(-1, reader.indexOf("Customer-1000"));
+            assertEquals(-1, reader.indexOf(""));
+            assertArrayEquals(new int[0], reader.indexesOf("Customer-1000"));
+        }
+    }
+
+    @Test
+    public void playsMissingFromCatalogOnlyFailInvoicesThatUseThem() throws IOException {
+        Path file = folder.newFile("partial.bin").toPath();
+        try (InvoiceArchiveWriter writer = new InvoiceArchiveWriter(file)) {
+            writer.append(new Invoice("BigCo", List.of(new Performance("hamlet", 55))));
+            writer.append(new Invoice("Acme", List.of(new Performance("cats", 10))));
+        }
+
+        PlayCatalog catalog = PlayCatalog.of(Map.of("hamlet", new Play("Hamlet", "tragedy")));
+        try (InvoiceArchiveReader reader = new InvoiceArchiveReader(file)) {
+            assertEquals(65000, reader.totalAmount(0, catalog));
+            assertEquals(25, reader.volumeCredits(0, catalog));
+            assertEquals(1, reader.readColumnar(0, catalog).size());
+            try {
+                reader.totalAmount(1, catalog);
+                fail("expected an unknown play");
+            }
+            catch (RuntimeException exception) {
+                assertEquals("unknown play: cats", exception.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void emptyArchiveHasNoCustomers() throws IOException {
+        Path file = folder.newFile("empty.bin").toPath();
+        new InvoiceArchiveWriter(file).close();
+
+        try (InvoiceArchiveReader reader = new InvoiceArchiveReader(file)) {
+            assertEquals(0, reader.size());
+            assertEquals(-1, reader.indexOf("BigCo"));
+        }
+    }
+}
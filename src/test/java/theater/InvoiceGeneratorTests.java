@@ -0,0 +1,152 @@
+package theater;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class InvoiceGeneratorTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String describe(Invoice invoice) {
+        StringBuilder result = new StringBuilder(invoice.getCustomer());
+        for (Performance performance : invoice.getPerformances()) {
+            result.append(' ').append(performance.getPlayID()).append(':').append(performance.getAudience());
+        }
+        return result.toString();
+    }
+
+    private static List<String> describe(List<Invoice> invoices) {
+        return invoices.stream().map(InvoiceGeneratorTests::describe).collect(Collectors.toList());
+    }
+
+    @Test
+    public void sameSeedGeneratesSameWorkload() {
+        InvoiceGenerator first = InvoiceGenerator.builder().seed(42).build();
+        InvoiceGenerator second = InvoiceGenerator.builder().seed(42).build();
+        InvoiceGenerator other = InvoiceGenerator.builder().seed(43).build();
+
+        assertEquals(first.plays().keySet(), second.plays().keySet());
+        List<String> invoices = describe(first.invoices(50).collect(Collectors.toList()));
+        assertEquals(invoices, describe(second.invoices(50).collect(Collectors.toList())));
+        assertEquals(invoices, describe(second.invoices(50).parallel().collect(Collectors.toList())));
+        assertEquals(invoices.get(17), describe(second.invoice(17)));
+        assertNotEquals(invoices, describe(other.invoices(50).collect(Collectors.toList())));
+    }
+
+    @Test
+    public void shapesFollowSettings() {
+        InvoiceGenerator generator = InvoiceGenerator.builder()
+                .seed(7)
+                .plays(50)
+                .customers(3)
+                .linesPerInvoice(5, 500)
+                .typeWeight("history", 0)
+                .audience("pastoral", 1000, 0)
+                .build();
+
+        assertEquals(50, generator.plays().size());
+        Map<String, Integer> counts = new HashMap<>();
+        int shortest = Integer.MAX_VALUE;
+        int longest = 0;
+        for (Invoice invoice : generator.invoices(300).collect(Collectors.toList())) {
+            assertTrue(invoice.getCustomer().matches("Customer [0-2]"));
+            shortest = Math.min(shortest, invoice.getPerformances().size());
+            longest = Math.max(longest, invoice.getPerformances().size());
+            for (Performance performance : invoice.getPerformances()) {
+                Play play = generator.plays().get(performance.getPlayID());
+                assertNotEquals("history", play.getType());
+                assertTrue(performance.getAudience() >= 0);
+                if ("pastoral".equals(play.getType())) {
+                    assertEquals(1000, performance.getAudience());
+                }
+                counts.merge(performance.getPlayID(), 1, Integer::sum);
+            }
+        }
+        assertTrue(shortest >= 5 && shortest < 20);
+        assertTrue(longest <= 500 && longest > 200);
+        // Zipf: the most popular play is booked far more often than the least popular one
+        assertTrue(counts.get("play-00000") > 10 * counts.getOrDefault("play-00049", 1));
+    }
+
+    @Test
+    public void jsonRoundTripsThroughReaders() throws IOException {
+        InvoiceGenerator generator = InvoiceGenerator.builder().seed(3).linesPerInvoice(1, 40).build();
+        Path plays = folder.newFile("plays.json").toPath();
+        Path invoices = folder.newFile("invoices.json").toPath();
+        generator.writeJson(plays, invoices, 25);
+
+        JSONObject jplays = new JSONObject(Files.readString(plays, StandardCharsets.UTF_8));
+        assertEquals(generator.plays().size(), jplays.length());
+        for (Map.Entry<String, Play> entry : generator.plays().entrySet()) {
+            JSONObject jplay = jplays.getJSONObject(entry.getKey());
+            assertEquals(entry.getValue().getName(), jplay.getString("name"));
+            assertEquals(entry.getValue().getType(), jplay.getString("type"));
+        }
+
+        StringBuilder inMemory = new StringBuilder();
+        generator.writeInvoicesJson(inMemory, 25);
+        assertEquals(inMemory.toString(), Files.readString(invoices, StandardCharsets.UTF_8));
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(new StringReader(inMemory.toString()))) {
+            for (int i = 0; i < 25; i++) {
+                assertEquals(describe(generator.invoice(i)), describe(reader.next()));
+            }
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void archiveRoundTrips() throws IOException {
+        InvoiceGenerator generator = InvoiceGenerator.builder().seed(11).build();
+        Path archive = folder.newFile("invoices.bin").toPath();
+        generator.writeArchive(archive, 40);
+
+        PlayCatalog catalog = generator.catalog();
+        try (InvoiceArchiveReader reader = new InvoiceArchiveReader(archive)) {
+            assertEquals(40, reader.size());
+            for (int i = 0; i < 40; i++) {
+                assertEquals(describe(generator.invoice(i)), describe(reader.readInvoice(i)));
+                assertEquals(new StatementData(generator.invoice(i), catalog).totalAmount(),
+                        reader.totalAmount(i, catalog));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownType() {
+        InvoiceGenerator.builder().typeWeight("opera", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeAudienceDeviation() {
+        InvoiceGenerator.builder().audience("comedy", 30, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNaNAudienceDeviation() {
+        InvoiceGenerator.builder().audience("comedy", 30, Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyLineRange() {
+        InvoiceGenerator.builder().linesPerInvoice(10, 9);
+    }
+}
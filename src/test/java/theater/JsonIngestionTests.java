@@ -0,0 +1,115 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+
+public class JsonIngestionTests {
+
+    private static InputStream open(String path) {
+        return Objects.requireNonNull(JsonIngestionTests.class.getClassLoader().getResourceAsStream(path));
+    }
+
+    private static String loadString(String path) throws IOException {
+        try (InputStream in = open(path)) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void streamedInvoicesProduceExampleStatements() throws IOException {
+        String[][] cases = {
+                {"plays.json", "invoices.json", "ExampleStatement.txt"},
+                {"new_plays.json", "new_invoices.json", "ExampleStatementWithNewPlays.txt"}};
+        for (String[] c : cases) {
+            Map<String, Play> plays = PlayJsonReader.read(open(c[0]));
+            try (InvoiceJsonReader invoices = new InvoiceJsonReader(open(c[1]))) {
+                Invoice invoice = invoices.next();
+                assertFalse(invoices.hasNext());
+
+                String expected = loadString(c[2]).replace("\r\n", "\n");
+                String result = new StatementPrinter(invoice, plays).statement().replace("\r\n", "\n");
+                assertEquals(expected, result);
+            }
+        }
+    }
+
+    @Test
+    public void readsSingleInvoiceObjectWithEscapesAndUnknownFields() throws IOException {
+        String json = "{\"id\": 7, \"tags\": [true, null, {\"x\": -1.5e3}],"
+                + " \"performances\": [{\"audience\": 12, \"playID\": \"a\\\"b\\u0041\"}],"
+                + " \"customer\": \"Big\\nCo\"}";
+        List<Invoice> invoices = new ArrayList<>();
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(new StringReader(json))) {
+            reader.forEachRemaining(invoices::add);
+        }
+
+        assertEquals(1, invoices.size());
+        assertEquals("Big\nCo", invoices.get(0).getCustomer());
+        assertEquals("a\"bA", invoices.get(0).getPerformances().get(0).getPlayID());
+        assertEquals(12, invoices.get(0).getPerformances().get(0).getAudience());
+    }
+
+    @Test
+    public void reportsMalformedInput() throws IOException {
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(
+                new StringReader("[{\"customer\": \"BigCo\",\n \"performances\": [}]"))) {
+            reader.next();
+            fail("expected malformed JSON to be rejected");
+        }
+        catch (UncheckedIOException exception) {
+            assertEquals("malformed JSON at line 2: unexpected character", exception.getCause().getMessage());
+        }
+    }
+
+    private static String firstError(String json) throws IOException {
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(new StringReader(json))) {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            fail("expected " + json + " to be rejected");
+            return null;
+        }
+        catch (UncheckedIOException exception) {
+            return exception.getCause().getMessage();
+        }
+    }
+
+    @Test
+    public void rejectsTrailingContentAndMissingFields() throws IOException {
+        String invoice = "{\"customer\": \"BigCo\", \"performances\": [{\"playID\": \"hamlet\", \"audience\": 5}]}";
+
+        assertEquals("malformed JSON at line 1: trailing content after document", firstError("[" + invoice + "] x"));
+        assertEquals("malformed JSON at line 1: trailing content after document", firstError(invoice + invoice));
+        assertEquals("malformed JSON at line 1: unterminated array", firstError("[" + invoice));
+        assertEquals("malformed JSON at line 1: expected an invoice or an array of invoices", firstError("\"BigCo\""));
+        assertEquals("malformed JSON at line 1: invoice has no customer",
+                firstError(invoice.replace("\"customer\"", "\"client\"")));
+        assertEquals("malformed JSON at line 1: expected STRING but was NULL",
+                firstError(invoice.replace("\"BigCo\"", "null")));
+        assertEquals("malformed JSON at line 1: performance has no playID",
+                firstError(invoice.replace("\"playID\"", "\"play\"")));
+        assertEquals("malformed JSON at line 1: performance has no audience",
+                firstError(invoice.replace("\"audience\"", "\"seats\"")));
+    }
+
+    @Test
+    public void consumesWholeArray() throws IOException {
+        try (InvoiceJsonReader reader = new InvoiceJsonReader(new StringReader("[]\n"))) {
+            assertFalse(reader.hasNext());
+            assertFalse(reader.hasNext());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package theater;
+
+/**
+ * Play type contributed through ServiceLoader by the test classpath.
+ */
+public class MusicalPricing implements PricingStrategy {
+
+    @Override
+    public String getPlayType() {
+        return "musical";
+    }
+
+    @Override
+    public int amountFor(int audience) {
+        return 50000 + 100 * audience;
+    }
+
+    @Override
+    public int volumeCreditsFor(int audience) {
+        return audience / 10;
+    }
+}
@@ -0,0 +1,92 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+public class PlayCatalogTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "othello", new Play("Othello", "tragedy"));
+
+    private static final Invoice INVOICE = new Invoice("BigCo", List.of(
+            new Performance("hamlet", 55),
+            new Performance("as-like", 35),
+            new Performance("othello", 40)));
+
+    @Test
+    public void handlesAreDenseAndOrderedByPlayID() {
+        PlayCatalog catalog = PlayCatalog.of(PLAYS);
+
+        assertEquals(3, catalog.size());
+        assertEquals(0, catalog.handleOf("as-like"));
+        assertEquals(1, catalog.handleOf("hamlet"));
+        assertEquals(2, catalog.handleOf("othello"));
+        assertEquals("Othello", catalog.getName(2));
+        assertEquals("tragedy", catalog.getType(2));
+        assertSame(catalog.getPricing(1), catalog.getPricing(2));
+    }
+
+    @Test
+    public void playIDsAreBoundToTheirPricing() {
+        PlayCatalog catalog = PlayCatalog.of(PLAYS);
+        PlayCatalog.PricedPlay hamlet = catalog.lookup("hamlet");
+
+        assertEquals(catalog.handleOf("hamlet"), hamlet.getHandle());
+        assertEquals("Hamlet", hamlet.getName());
+        assertSame(catalog.getPricing(hamlet.getHandle()), hamlet.getPricing());
+        assertEquals(65000, hamlet.amountFor(55));
+        assertEquals(25, hamlet.volumeCreditsFor(55));
+        try {
+            catalog.lookup("cats");
+            fail("expected an unknown play");
+        }
+        catch (RuntimeException exception) {
+            assertEquals("unknown play: cats", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void printersAcceptCatalogInPlaceOfMap() {
+        PlayCatalog catalog = PlayCatalog.of(PLAYS);
+
+        assertEquals(new StatementPrinter(INVOICE, PLAYS).statement(),
+                new StatementPrinter(INVOICE, catalog).statement());
+        assertEquals(new HTMLStatementPrinter(INVOICE, PLAYS).statement(),
+                new HTMLStatementPrinter(INVOICE, catalog).statement());
+    }
+
+    @Test
+    public void columnarInvoiceReferencesPlaysByHandle() {
+        PlayCatalog catalog = PlayCatalog.of(PLAYS);
+        ColumnarInvoice invoice = ColumnarInvoice.builder("BigCo", catalog)
+                .add(catalog.handleOf("hamlet"), 55)
+                .add(catalog.handleOf("as-like"), 35)
+                .add(catalog.handleOf("othello"), 40)
+                .build();
+
+        assertEquals(new StatementPrinter(INVOICE, PLAYS).statement(),
+                new StatementPrinter(new ColumnarStatementData(invoice, catalog)).statement());
+        assertEquals(new StatementPrinter(INVOICE, PLAYS).statement(),
+                new StatementPrinter(new ColumnarStatementData(ColumnarInvoice.from(INVOICE), catalog)).statement());
+    }
+
+    @Test
+    public void unknownPlayTypeFailsWhenCatalogIsBuilt() {
+        try {
+            PlayCatalog.of(Map.of("cats", new Play("Cats", "opera")), PricingRegistry.withBuiltIns());
+            fail("expected unknown type to be rejected");
+        }
+        catch (RuntimeException exception) {
+            assertEquals("unknown type: opera", exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class PricingRegistryTests {
+
+    @Test
+    public void sharedStrategiesMatchPerPerformanceCalculators() {
+        PricingRegistry registry = PricingRegistry.withBuiltIns();
+        for (String type : List.of("tragedy", "comedy", "history", "pastoral")) {
+            Play play = new Play(type, type);
+            PricingStrategy pricing = registry.lookup(type);
+            for (int audience = 0; audience < 200; audience++) {
+                Performance performance = new Performance(type, audience);
+                AbstractPerformanceCalculator calculator =
+                        AbstractPerformanceCalculator.createPerformanceCalculator(performance, play);
+                assertEquals(calculator.getAmount(), pricing.amountFor(audience));
+                assertEquals(calculator.getVolumeCredits(), pricing.volumeCreditsFor(audience));
+            }
+        }
+    }
+
+    @Test
+    public void lookupReturnsSharedInstance() {
+        PricingRegistry registry = PricingRegistry.getDefault();
+        assertSame(registry.lookup("comedy"), registry.lookup("comedy"));
+    }
+
+    @Test
+    public void serviceLoaderContributesNewTypes() {
+        assertTrue(PricingRegistry.getDefault().supports("musical"));
+
+        Map<String, Play> plays = Map.of("cats", new Play("Cats", "musical"));
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("cats", 40)));
+        StatementData data = new StatementData(invoice, plays);
+
+        assertEquals(54000, data.totalAmount());
+        assertEquals(4, data.volumeCredits());
+    }
+
+    @Test
+    public void validateRejectsUnknownTypesUpFront() {
+        try {
+            PricingRegistry.withBuiltIns().validate(List.of(new Play("Hamlet", "tragedy"),
+                    new Play("Cats", "musical")));
+            fail("expected unknown type to be rejected");
+        }
+        catch (RuntimeException exception) {
+            assertEquals("unknown type: musical", exception.getMessage());
+        }
+    }
+}
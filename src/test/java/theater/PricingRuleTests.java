@@ -0,0 +1,118 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class PricingRuleTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static InputStream open(String path) {
+        return Objects.requireNonNull(PricingRuleTests.class.getClassLoader().getResourceAsStream(path));
+    }
+
+    private static String loadString(String path) throws IOException {
+        try (InputStream in = open(path)) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void defaultRulesReproduceExampleStatements() throws IOException {
+        PricingRegistry registry = PricingRuleSet.loadDefault().toRegistry();
+        String[][] cases = {
+                {"plays.json", "invoices.json", "ExampleStatement.txt"},
+                {"new_plays.json", "new_invoices.json", "ExampleStatementWithNewPlays.txt"}};
+        for (String[] c : cases) {
+            Map<String, Play> plays = PlayJsonReader.read(open(c[0]));
+            try (InvoiceJsonReader invoices = new InvoiceJsonReader(open(c[1]))) {
+                String result = new StatementPrinter(new StatementData(invoices.next(), plays, registry)).statement();
+                assertEquals(loadString(c[2]).replace("\r\n", "\n"), result.replace("\r\n", "\n"));
+            }
+        }
+    }
+
+    @Test
+    public void defaultRulesMatchCalculators() {
+        PricingRuleSet rules = PricingRuleSet.loadDefault();
+        PricingRegistry calculators = PricingRegistry.withBuiltIns();
+        assertEquals(calculators.getPlayTypes(), rules.getPlayTypes());
+        for (String type : rules.getPlayTypes()) {
+            for (int audience = -50; audience <= 1000; audience++) {
+                assertEquals(calculators.lookup(type).amountFor(audience), rules.getRule(type).amountFor(audience));
+                assertEquals(calculators.lookup(type).volumeCreditsFor(audience),
+                        rules.getRule(type).volumeCreditsFor(audience));
+            }
+        }
+    }
+
+    @Test
+    public void reloadSwapsRulesWithoutTouchingBuiltCatalogs() throws IOException {
+        Map<String, Play> plays = Map.of("hamlet", new Play("Hamlet", "tragedy"));
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 20)));
+        ReloadablePricing pricing = ReloadablePricing.withDefaults();
+        PlayCatalog before = pricing.catalog(plays);
+
+        Path file = folder.newFile("pricing.properties").toPath();
+        Files.writeString(file, "tragedy.base=45000\ntragedy.threshold=30\ntragedy.overPerSeat=1000\n"
+                + "tragedy.creditThreshold=30\n", StandardCharsets.UTF_8);
+        PricingRuleSet previous = pricing.reload(file);
+        PlayCatalog after = pricing.catalog(plays);
+
+        assertEquals(PricingRuleSet.loadDefault(), previous);
+        assertEquals(40000, new StatementData(invoice, before).totalAmount());
+        assertEquals(45000, new StatementData(invoice, after).totalAmount());
+        assertNotEquals(before.getVersion(), after.getVersion());
+
+        Files.writeString(file, "tragedy.base=lots\n", StandardCharsets.UTF_8);
+        try {
+            pricing.reload(file);
+            fail("expected an invalid value to be rejected");
+        }
+        catch (IllegalArgumentException exception) {
+            assertEquals("invalid pricing value for tragedy.base: lots", exception.getMessage());
+        }
+        assertEquals(45000, pricing.rules().getRule("tragedy").amountFor(20));
+    }
+
+    @Test
+    public void reloadChangesVersionOfTabulatedCatalogs() throws IOException {
+        Map<String, Play> plays = Map.of("hamlet", new Play("Hamlet", "tragedy"));
+        ReloadablePricing pricing = ReloadablePricing.withDefaults();
+        PlayCatalog before = PlayCatalog.of(plays, pricing.registry().tabulated(100));
+        assertEquals(pricing.catalog(plays).getVersion(), before.getVersion());
+
+        pricing.swap(PricingRuleSet.load(new StringReader("tragedy.base=45000\n")));
+        PlayCatalog after = PlayCatalog.of(plays, pricing.registry().tabulated(100));
+
+        assertNotEquals(before.getVersion(), after.getVersion());
+        assertEquals(pricing.catalog(plays).getVersion(), after.getVersion());
+        StatementCache cache = new StatementCache(1 << 20);
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 20)));
+        assertTrue(cache.statement(invoice, before, StatementFormat.TEXT).contains("$400.00"));
+        assertTrue(cache.statement(invoice, after, StatementFormat.TEXT).contains("$450.00"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFields() throws IOException {
+        PricingRuleSet.load(new StringReader("comedy.discount=5\n"));
+    }
+}
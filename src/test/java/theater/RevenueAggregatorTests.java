@@ -0,0 +1,67 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class RevenueAggregatorTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "othello", new Play("Othello", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "henry-v", new Play("Henry V", "history"));
+
+    @Test
+    public void matchesStatementTotals() {
+        List<Invoice> invoices = new ArrayList<>();
+        String[] playIDs = {"hamlet", "othello", "as-like"};
+        for (int i = 0; i < 2000; i++) {
+            List<Performance> performances = new ArrayList<>();
+            for (int j = 0; j < 1 + i % 7; j++) {
+                performances.add(new Performance(playIDs[(i + j) % 3], (i * 31 + j * 17) % 90));
+            }
+            invoices.add(new Invoice("customer-" + i % 13, performances));
+        }
+        PlayCatalog catalog = PlayCatalog.of(PLAYS);
+
+        long amount = 0;
+        long credits = 0;
+        long customerZero = 0;
+        for (Invoice invoice : invoices) {
+            StatementData data = new StatementData(invoice, catalog);
+            amount += data.totalAmount();
+            credits += data.volumeCredits();
+            if ("customer-0".equals(invoice.getCustomer())) {
+                customerZero += data.totalAmount();
+            }
+        }
+
+        RevenueAggregator.RevenueReport report = new RevenueAggregator(catalog).aggregate(invoices);
+        assertEquals(amount, report.getTotal().getAmount());
+        assertEquals(credits, report.getTotal().getVolumeCredits());
+        assertEquals(customerZero, report.getByCustomer().get("customer-0").getAmount());
+        assertEquals(13, report.getByCustomer().size());
+        assertEquals(List.of("as-like", "hamlet", "othello"), new ArrayList<>(report.getByPlay().keySet()));
+        assertEquals(report.getByPlay().get("hamlet").getAmount() + report.getByPlay().get("othello").getAmount(),
+                report.getByType().get("tragedy").getAmount());
+        assertEquals(amount, new RevenueAggregator(catalog).aggregate(invoices.stream()).getTotal().getAmount());
+    }
+
+    @Test
+    public void sumsBeyondIntRange() {
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            performances.add(new Performance("hamlet", 100000));
+        }
+        Invoice invoice = new Invoice("BigCo", performances);
+        RevenueAggregator.RevenueReport report = new RevenueAggregator(PlayCatalog.of(PLAYS))
+                .aggregate(List.of(invoice, invoice, invoice));
+        assertEquals(3000L * (40000 + 1000 * (100000 - 30)), report.getTotal().getAmount());
+    }
+}
@@ -0,0 +1,155 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class StatementCacheTests {
+
+    private static Map<String, Play> plays(String hamletName) {
+        Map<String, Play> plays = new HashMap<>();
+        plays.put("hamlet", new Play(hamletName, "tragedy"));
+        plays.put("as-like", new Play("As You Like It", "comedy"));
+        return plays;
+    }
+
+    private static Invoice invoice(String customer, int audience) {
+        return new Invoice(customer, List.of(new Performance("hamlet", audience), new Performance("as-like", 35)));
+    }
+
+    @Test
+    public void hitsMissesAndCatalogChanges() {
+        StatementCache cache = new StatementCache(1 << 20);
+        PlayCatalog catalog = PlayCatalog.of(plays("Hamlet"));
+
+        String text = cache.statement(invoice("BigCo", 55), catalog, StatementFormat.TEXT);
+        assertEquals(new StatementPrinter(invoice("BigCo", 55), catalog).statement(), text);
+        assertEquals(text, cache.statement(invoice("BigCo", 55), catalog, StatementFormat.TEXT));
+        cache.statement(invoice("BigCo", 55), catalog, StatementFormat.HTML);
+        cache.statement(invoice("BigCo", 56), catalog, StatementFormat.TEXT);
+        assertEquals(1, cache.hitCount());
+        assertEquals(3, cache.missCount());
+
+        PlayCatalog renamed = PlayCatalog.of(plays("The Tragedy of Hamlet"));
+        assertNotEquals(catalog.getVersion(), renamed.getVersion());
+        assertEquals(catalog.getVersion(), PlayCatalog.of(plays("Hamlet")).getVersion());
+        assertTrue(cache.statement(invoice("BigCo", 55), renamed, StatementFormat.TEXT)
+                .contains("The Tragedy of Hamlet"));
+
+        cache.retainCatalogVersion(renamed.getVersion());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWithinByteBudget() {
+        PlayCatalog catalog = PlayCatalog.of(plays("Hamlet"));
+        String sample = new StatementPrinter(invoice("Customer0", 50), catalog).statement();
+        StatementCache cache = new StatementCache(3 * (sample.length() * 2L + 200));
+
+        for (int i = 0; i < 10; i++) {
+            cache.statement(invoice("Customer" + i, 50), catalog, StatementFormat.TEXT);
+            cache.statement(invoice("Customer0", 50), catalog, StatementFormat.TEXT);
+        }
+
+        assertEquals(3, cache.size());
+        assertTrue(cache.sizeBytes() <= 3 * (sample.length() * 2L + 200));
+        assertEquals(7, cache.evictionCount());
+        long misses = cache.missCount();
+        cache.statement(invoice("Customer0", 50), catalog, StatementFormat.TEXT);
+        assertEquals(misses, cache.missCount());
+    }
+
+    @Test
+    public void concurrentMissesRenderOnce() throws Exception {
+        PlayCatalog catalog = PlayCatalog.of(plays("Hamlet"));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 200000; i++) {
+            performances.add(new Performance("hamlet", i % 90));
+        }
+        Invoice big = new Invoice("BigCo", performances);
+        StatementCache cache = new StatementCache(1L << 30);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.statement(big, catalog, StatementFormat.HTML);
+            }));
+        }
+        start.countDown();
+        String first = results.get(0).get();
+        for (Future<String> result : results) {
+            assertEquals(first, result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, cache.missCount());
+        assertEquals(7, cache.hitCount());
+    }
+
+    @Test
+    public void hashCollisionsNeverShareAStatement() {
+        // enough keys that several pairs share a 32-bit hash code
+        PlayCatalog catalog = PlayCatalog.of(plays("Hamlet"));
+        StatementCache cache = new StatementCache(1L << 30);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 200000; i++) {
+                Invoice invoice = new Invoice("Customer-" + i, List.of(new Performance("hamlet", 55)));
+                String statement = cache.statement(invoice, catalog, StatementFormat.TEXT);
+                assertTrue(statement, statement.startsWith("Statement for Customer-" + i + "\n"));
+            }
+        }
+        assertEquals(200000, cache.size());
+        assertEquals(200000, cache.hitCount());
+    }
+
+    @Test
+    public void waitersSeeTheRenderersException() throws Exception {
+        PlayCatalog catalog = PlayCatalog.of(plays("Hamlet"));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 200000; i++) {
+            performances.add(new Performance("hamlet", i % 90));
+        }
+        performances.add(new Performance("cats", 10));
+        Invoice broken = new Invoice("BigCo", performances);
+        StatementCache cache = new StatementCache(1L << 30);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.statement(broken, catalog, StatementFormat.TEXT);
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            try {
+                result.get();
+                fail("expected the unknown play to be reported");
+            }
+            catch (ExecutionException exception) {
+                assertEquals(RuntimeException.class, exception.getCause().getClass());
+                assertEquals("unknown play: cats", exception.getCause().getMessage());
+            }
+        }
+        executor.shutdown();
+    }
+}
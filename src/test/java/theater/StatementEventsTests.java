@@ -0,0 +1,103 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementEventsTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsIngestBuildPricingAndRenderEvents() throws IOException {
+        Map<String, Play> plays = Map.of("hamlet", new Play("Hamlet", "tragedy"));
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < StatementEvents.PRICING_SAMPLE_INTERVAL + 1; i++) {
+            performances.add(new Performance("hamlet", 40));
+        }
+        String json = "{\"customer\":\"BigCo\",\"performances\":[{\"playID\":\"hamlet\",\"audience\":55}]}";
+
+        Invoice invoice = new Invoice("BigCo", performances);
+        Path file = folder.newFile("statements.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("theater.InvoiceIngest").withoutThreshold();
+            recording.enable("theater.StatementBuild").withoutThreshold();
+            recording.enable("theater.Pricing").withoutThreshold();
+            recording.enable("theater.StatementRender").withoutThreshold();
+            recording.start();
+
+            try (InvoiceJsonReader reader = new InvoiceJsonReader(new StringReader(json))) {
+                reader.next();
+            }
+            new HTMLStatementPrinter(invoice, plays).writeTo(new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        long expectedSize = new HTMLStatementPrinter(invoice, plays).statement().length();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(1, count(events, "theater.InvoiceIngest"));
+        assertEquals(1, count(events, "theater.StatementBuild"));
+        assertEquals(2, count(events, "theater.Pricing"));
+        assertEquals(1, count(events, "theater.StatementRender"));
+        for (RecordedEvent event : events) {
+            if ("theater.StatementRender".equals(event.getEventType().getName())) {
+                assertEquals("html", event.getString("format"));
+                assertEquals(StatementEvents.PRICING_SAMPLE_INTERVAL + 1, event.getInt("performanceCount"));
+                assertEquals(expectedSize, event.getLong("size"));
+            }
+        }
+    }
+
+    @Test
+    public void recordsOneRenderEventPerFanOutFormat() throws IOException {
+        Map<String, Play> plays = Map.of("hamlet", new Play("Hamlet", "tragedy"));
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 40)));
+        Path file = folder.newFile("fanout.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("theater.StatementRender").withoutThreshold();
+            recording.start();
+
+            StatementFanOut.renderAll(new StatementData(invoice, plays),
+                    EnumSet.of(StatementFormat.TEXT, StatementFormat.JSON));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Set<String> formats = new HashSet<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if ("theater.StatementRender".equals(event.getEventType().getName())) {
+                formats.add(event.getString("format"));
+                assertEquals(2, event.getInt("outputs"));
+                assertEquals(-1, event.getLong("size"));
+            }
+        }
+        assertEquals(Set.of("text", "json"), formats);
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> name.equals(event.getEventType().getName())).count();
+    }
+}
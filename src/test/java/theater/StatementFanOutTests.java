@@ -0,0 +1,58 @@
+package theater;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementFanOutTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"),
+            "quoted", new Play("Rosencrantz, \"Guildenstern\"\tAre Dead", "tragedy"));
+
+    private static final Invoice INVOICE = new Invoice("BigCo", List.of(
+            new Performance("hamlet", 55), new Performance("as-like", 35), new Performance("quoted", 40)));
+
+    @Test
+    public void matchesSeparatePrinters() {
+        StatementData data = new StatementData(INVOICE, PLAYS);
+        Map<StatementFormat, String> statements = StatementFanOut.renderAll(data, EnumSet.allOf(StatementFormat.class));
+        assertEquals(StatementFormat.values().length, statements.size());
+        for (StatementFormat format : StatementFormat.values()) {
+            assertEquals(format.newPrinter(data).statement(), statements.get(format));
+        }
+    }
+
+    @Test
+    public void rendersCsvRecords() {
+        String csv = new CsvStatementPrinter(new StatementData(INVOICE, PLAYS)).statement();
+        assertEquals("customer,play,seats,amount_cents\r\n"
+                + "BigCo,Hamlet,55,65000\r\n"
+                + "BigCo,As You Like It,35,58000\r\n"
+                + "BigCo,\"Rosencrantz, \"\"Guildenstern\"\"\tAre Dead\",40,50000\r\n", csv);
+    }
+
+    @Test
+    public void rendersParsableJson() {
+        JSONObject json = new JSONObject(new JsonStatementPrinter(new StatementData(INVOICE, PLAYS)).statement());
+        assertEquals("BigCo", json.getString("customer"));
+        assertEquals(173000, json.getInt("totalAmount"));
+        assertEquals(47, json.getInt("volumeCredits"));
+        JSONArray performances = json.getJSONArray("performances");
+        assertEquals(3, performances.length());
+        assertEquals("Rosencrantz, \"Guildenstern\"\tAre Dead", performances.getJSONObject(2).getString("play"));
+        assertEquals(40, performances.getJSONObject(2).getInt("seats"));
+
+        JSONObject empty = new JSONObject(new JsonStatementPrinter(
+                new StatementData(new Invoice("Nobody", List.of()), PLAYS)).statement());
+        assertEquals(0, empty.getJSONArray("performances").length());
+    }
+}
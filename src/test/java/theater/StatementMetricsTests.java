@@ -0,0 +1,117 @@
+package theater;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementMetricsTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"));
+
+    private static final Invoice INVOICE = new Invoice("BigCo", List.of(
+            new Performance("hamlet", 55), new Performance("as-like", 35), new Performance("hamlet", 20)));
+
+    @After
+    public void tearDown() {
+        StatementMetrics.get().setEnabled(false);
+        StatementMetrics.get().reset();
+    }
+
+    @Test
+    public void recordsNothingWhileDisabled() {
+        StatementMetrics metrics = StatementMetrics.get();
+        metrics.reset();
+        new StatementPrinter(INVOICE, PLAYS).statement();
+        assertEquals(0, metrics.start());
+        assertNull(metrics.getTimer("build"));
+    }
+
+    @Test
+    public void recordsTimersByPlayTypeAndFormat() {
+        StatementMetrics metrics = StatementMetrics.get();
+        metrics.reset();
+        metrics.setEnabled(true);
+        new StatementPrinter(INVOICE, PLAYS).statement();
+        new HTMLStatementPrinter(INVOICE, PLAYS).statement();
+
+        assertEquals(2, metrics.getTimer("build").getCount());
+        assertEquals(4, metrics.getTimer("pricing.tragedy").getCount());
+        assertEquals(2, metrics.getTimer("pricing.comedy").getCount());
+        assertEquals(1, metrics.getTimer("render.text").getCount());
+        assertEquals(1, metrics.getTimer("render.html").getCount());
+
+        StatementMetrics.TimerSnapshot build = metrics.getTimer("build");
+        assertTrue(build.getP50Nanos() <= build.getP99Nanos());
+        assertTrue(build.getP99Nanos() <= build.getMaxNanos());
+    }
+
+    @Test
+    public void recordsFanOutUnderEachFormat() {
+        StatementMetrics metrics = StatementMetrics.get();
+        metrics.reset();
+        metrics.setEnabled(true);
+        StatementFanOut.renderAll(new StatementData(INVOICE, PLAYS),
+                EnumSet.of(StatementFormat.TEXT, StatementFormat.CSV));
+
+        assertEquals(1, metrics.getTimer("render.text").getCount());
+        assertEquals(1, metrics.getTimer("render.csv").getCount());
+        assertNull(metrics.getTimer("render.fanout"));
+    }
+
+    @Test
+    public void histogramCountsEveryConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        StatementMetrics.TimerSnapshot snapshot = histogram.snapshot("test");
+        assertEquals(40_000, snapshot.getCount());
+        assertEquals(4_000_000, snapshot.getTotalNanos());
+        histogram.reset();
+        assertEquals(0, histogram.snapshot("test").getCount());
+    }
+
+    @Test
+    public void histogramBucketsBoundValuesWithinOneEighth() {
+        for (long value : new long[] {0, 7, 8, 9, 100, 1_000_000, 123_456_789_012L, Long.MAX_VALUE}) {
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.bucketOf(value));
+            assertTrue(upper >= value);
+            assertTrue(upper - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void exposesSnapshotsOverJmx() throws Exception {
+        StatementMetrics.get().registerMBean();
+        StatementMetrics.get().registerMBean();
+        StatementMetricsMXBean proxy = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName(StatementMetrics.OBJECT_NAME), StatementMetricsMXBean.class);
+        proxy.setEnabled(true);
+        new StatementPrinter(INVOICE, PLAYS).statement();
+        assertEquals("render.text", proxy.getTimers().get(proxy.getTimers().size() - 1).getName());
+        assertEquals(1, proxy.getTimers().get(proxy.getTimers().size() - 1).getCount());
+    }
+}
@@ -0,0 +1,151 @@
+package theater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class StatementPipelineTests {
+
+    private static final int INVOICES = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static InputStream json(InvoiceGenerator generator, int count) throws IOException {
+        StringBuilder json = new StringBuilder();
+        generator.writeInvoicesJson(json, count);
+        return new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void writesOneStatementPerInvoice() throws Exception {
+        InvoiceGenerator generator = InvoiceGenerator.builder().seed(5).linesPerInvoice(1, 50).build();
+        PlayCatalog catalog = generator.catalog();
+        Path output = folder.getRoot().toPath().resolve("statements");
+
+        StatementPipeline pipeline = StatementPipeline.builder(catalog, output)
+                .format(StatementFormat.HTML)
+                .queueCapacity(2)
+                .pricingThreads(2)
+                .renderingThreads(3)
+                .writingThreads(2)
+                .build();
+        StatementPipeline.Report report = pipeline.run(json(generator, INVOICES));
+
+        assertEquals(INVOICES, report.getWritten());
+        assertTrue(report.getFailures().isEmpty());
+        assertEquals(INVOICES, countFiles(output));
+        for (int i = 0; i < INVOICES; i += 13) {
+            String expected = new HTMLStatementPrinter(generator.invoice(i), catalog).statement();
+            Path file = output.resolve(String.format("%08d.html", i));
+            assertEquals(expected, Files.readString(file, StandardCharsets.UTF_8));
+        }
+
+        List<StatementPipeline.StageStats> stages = report.getStages();
+        assertEquals(4, stages.size());
+        for (StatementPipeline.StageStats stage : stages) {
+            assertEquals(stage.getName(), INVOICES, stage.getProcessed());
+            assertEquals(0, stage.getQueueDepth());
+            assertTrue(stage.getMaxQueueDepth() <= stage.getQueueCapacity());
+            assertTrue(stage.getUtilization() >= 0 && stage.getUtilization() <= 1);
+        }
+        assertEquals("ingest", stages.get(0).getName());
+        assertEquals(3, stages.get(2).getThreads());
+    }
+
+    @Test
+    public void reportsUnpricedInvoicesAndGoesOn() throws Exception {
+        String json = "[{\"customer\": \"A\", \"performances\": [{\"playID\": \"hamlet\", \"audience\": 55}]},"
+                + "{\"customer\": \"B\", \"performances\": [{\"playID\": \"cats\", \"audience\": 10}]},"
+                + "{\"customer\": \"C\", \"performances\": [{\"playID\": \"othello\", \"audience\": 40}]}]";
+        PlayCatalog catalog = PlayCatalog.of(Map.of(
+                "hamlet", new Play("Hamlet", "tragedy"),
+                "othello", new Play("Othello", "tragedy")));
+        Path output = folder.newFolder().toPath();
+
+        StatementPipeline.Report report = StatementPipeline.builder(catalog, output).build()
+                .run(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.getWritten());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(1, report.getFailures().get(0).getIndex());
+        assertEquals("unknown play: cats", report.getFailures().get(0).getFailure().getMessage());
+        assertEquals(1, report.getStages().get(1).getFailed());
+        assertTrue(Files.exists(output.resolve("00000000.txt")));
+        assertTrue(Files.exists(output.resolve("00000002.txt")));
+    }
+
+    @Test(expected = IOException.class)
+    public void abortsOnMalformedJson() throws Exception {
+        StatementPipeline.builder(PlayCatalog.of(Map.of()), folder.newFolder().toPath()).build()
+                .run(new ByteArrayInputStream("[{\"customer\": ".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = StackOverflowError.class)
+    public void abortsWhenAStageThrowsAnError() throws Exception {
+        PricingRegistry registry = new PricingRegistry();
+        registry.register(new PricingStrategy() {
+            @Override
+            public String getPlayType() {
+                return "tragedy";
+            }
+
+            @Override
+            public int amountFor(int audience) {
+                throw new StackOverflowError();
+            }
+
+            @Override
+            public int volumeCreditsFor(int audience) {
+                return 0;
+            }
+        });
+        PlayCatalog catalog = PlayCatalog.of(Map.of("hamlet", new Play("Hamlet", "tragedy")), registry);
+        String json = "[{\"customer\": \"A\", \"performances\": [{\"playID\": \"hamlet\", \"audience\": 55}]}]";
+
+        StatementPipeline.builder(catalog, folder.newFolder().toPath()).build()
+                .run(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void stopDrainsWhatWasRead() throws Exception {
+        InvoiceGenerator generator = InvoiceGenerator.builder().seed(9).build();
+        Path output = folder.newFolder().toPath();
+        StatementPipeline pipeline = StatementPipeline.builder(generator.catalog(), output).build();
+        pipeline.stop();
+
+        StatementPipeline.Report report = pipeline.run(json(generator, INVOICES));
+
+        assertEquals(report.getStages().get(0).getProcessed(), report.getWritten());
+        assertEquals(report.getWritten(), countFiles(output));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runsOnlyOnce() throws Exception {
+        InvoiceGenerator generator = InvoiceGenerator.builder().build();
+        StatementPipeline pipeline = StatementPipeline.builder(generator.catalog(), folder.newFolder().toPath())
+                .build();
+        pipeline.run(json(generator, 1));
+        pipeline.run(json(generator, 1));
+    }
+}
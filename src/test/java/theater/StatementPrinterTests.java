@@ -4,7 +4,9 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
@@ -66,4 +68,30 @@ public class StatementPrinterTests {
         }
 
     }
+
+    @Test
+    public void streamedStatementMatchesStringStatement() throws IOException {
+        JSONObject a = new JSONObject(loadString("plays.json"));
+
+        Map<String, Play> plays = new HashMap<>();
+
+        for (String s : a.keySet()) {
+            JSONObject play = (JSONObject) a.get(s);
+            plays.put(s, new Play(play.getString("name"), play.getString("type")));
+        }
+
+        List<Performance> performances = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            performances.add(new Performance(i % 2 == 0 ? "hamlet" : "as-like", i % 80));
+        }
+        Invoice invoice = new Invoice("BigCo", performances);
+
+        for (StatementPrinter statementPrinter : List.of(new StatementPrinter(invoice, plays),
+                new HTMLStatementPrinter(invoice, plays))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            statementPrinter.writeTo(out, StandardCharsets.UTF_8);
+
+            assertEquals(statementPrinter.statement(), out.toString(StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package theater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementServerTests {
+
+    private static final Map<String, Play> PLAYS = Map.of(
+            "hamlet", new Play("Hamlet", "tragedy"),
+            "as-like", new Play("As You Like It", "comedy"));
+
+    private static final String INVOICE_JSON = "{\"customer\":\"BigCo\",\"performances\":["
+            + "{\"playID\":\"hamlet\",\"audience\":55},{\"playID\":\"as-like\",\"audience\":35}]}";
+
+    private StatementServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StatementServer(PlayCatalog.of(PLAYS), new InetSocketAddress("localhost", 0));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpURLConnection post(String query, String body) throws IOException {
+        URL url = new URL("http://localhost:" + server.getPort() + StatementServer.PATH + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void servesStatementsInEachFormat() throws IOException {
+        Invoice invoice = new Invoice("BigCo", List.of(new Performance("hamlet", 55), new Performance("as-like", 35)));
+
+        HttpURLConnection text = post("", INVOICE_JSON);
+        assertEquals(200, text.getResponseCode());
+        assertEquals("text/plain; charset=utf-8", text.getContentType());
+        assertEquals(new StatementPrinter(invoice, PLAYS).statement(), read(text.getInputStream()));
+
+        HttpURLConnection html = post("?format=html", INVOICE_JSON);
+        assertEquals(200, html.getResponseCode());
+        assertEquals(new HTMLStatementPrinter(invoice, PLAYS).statement(), read(html.getInputStream()));
+    }
+
+    @Test
+    public void rejectsBadRequests() throws IOException {
+        HttpURLConnection unknownPlay = post("", "{\"customer\":\"BigCo\",\"performances\":["
+                + "{\"playID\":\"cats\",\"audience\":5}]}");
+        assertEquals(400, unknownPlay.getResponseCode());
+        assertEquals("unknown play: cats", read(unknownPlay.getErrorStream()).trim());
+
+        assertEquals(400, post("", "{\"customer\":").getResponseCode());
+        HttpURLConnection noCustomer = post("", "{\"performances\":[]}");
+        assertEquals(400, noCustomer.getResponseCode());
+        assertEquals("malformed JSON at line 1: invoice has no customer",
+                read(noCustomer.getErrorStream()).trim());
+        HttpURLConnection array = post("", "[]");
+        assertEquals(400, array.getResponseCode());
+        assertEquals("body must be an invoice object", read(array.getErrorStream()).trim());
+        assertEquals(400, post("?format=pdf", INVOICE_JSON).getResponseCode());
+
+        HttpURLConnection get = (HttpURLConnection) new URL(
+                "http://localhost:" + server.getPort() + StatementServer.PATH).openConnection();
+        assertEquals(405, get.getResponseCode());
+    }
+
+    @Test
+    public void answersBusyInsteadOfQueueingOverTheBound() throws Exception {
+        try (StatementServer bounded = new StatementServer(PlayCatalog.of(PLAYS),
+                new InetSocketAddress("localhost", 0), 1)) {
+            bounded.start();
+            try (Socket stalled = new Socket("localhost", bounded.getPort())) {
+                // announce a body but send only part of it, so the only permit stays taken
+                OutputStream out = stalled.getOutputStream();
+                out.write(("POST " + StatementServer.PATH + " HTTP/1.1\r\nHost: localhost\r\n"
+                        + "Content-Length: 100\r\n\r\n{").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                int status = 0;
+                for (int attempt = 0; attempt < 100 && status != 503; attempt++) {
+                    Thread.sleep(10);
+                    URL url = new URL("http://localhost:" + bounded.getPort() + StatementServer.PATH);
+                    HttpURLConnection busy = (HttpURLConnection) url.openConnection();
+                    busy.setRequestMethod("POST");
+                    busy.setDoOutput(true);
+                    try (OutputStream body = busy.getOutputStream()) {
+                        body.write(INVOICE_JSON.getBytes(StandardCharsets.UTF_8));
+                    }
+                    status = busy.getResponseCode();
+                }
+                assertEquals(503, status);
+            }
+        }
+    }
+}
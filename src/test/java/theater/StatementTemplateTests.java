@@ -0,0 +1,158 @@
+package theater;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class StatementTemplateTests {
+
+    @Test
+    public void rendersTypedSlots() throws IOException {
+        StatementTemplate template = StatementTemplate.text("  {name}: {amount} ({seats} seats)\n");
+        StringBuilder out = new StringBuilder();
+        template.render(out, new FixedSource("BigCo", "Hamlet", -42, 65000, 0, 0), 0);
+        assertEquals(String.format("  Hamlet: $650.00 (-42 seats)%n"), out.toString());
+    }
+
+    @Test
+    public void escapesHtmlNames() {
+        Map<String, Play> plays = Map.of("ac", new Play("Antony & <Cleopatra>", "tragedy"));
+        Invoice invoice = new Invoice("O'Brien \"Co\"", List.of(new Performance("ac", 40)));
+        String statement = new HTMLStatementPrinter(invoice, plays).statement();
+        assertEquals(String.format("<h1>Statement for O&#39;Brien &quot;Co&quot;</h1>%n"
+                + "<table>%n"
+                + " <caption>Statement for O&#39;Brien &quot;Co&quot;</caption>%n"
+                + " <tr><th>play</th><th>seats</th><th>cost</th></tr>%n"
+                + " <tr><td>Antony &amp; &lt;Cleopatra&gt;</td><td>40</td><td>$500.00</td></tr>%n"
+                + "</table>%n"
+                + "<p>Amount owed is <em>$500.00</em></p>%n"
+                + "<p>You earned <em>10</em> credits</p>%n"), statement);
+    }
+
+    @Test
+    public void writesUtf8Directly() throws IOException {
+        Map<String, Play> plays = Map.of("faust", new Play("Faust \u2013 Der Trag\u00f6die erster Teil \ud83c\udfad",
+                "tragedy"));
+        Invoice invoice = new Invoice("M\u00fcller", List.of(new Performance("faust", 55)));
+        StatementPrinter printer = new StatementPrinter(invoice, plays);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        printer.writeTo(out, StandardCharsets.UTF_8);
+        assertEquals(printer.statement(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void rendersNumbersOfEveryLength() throws IOException {
+        StatementTemplate template = StatementTemplate.text("{seats} {totalCents}");
+        int[] values = {0, 7, 10, 99, 1000, -1, -10, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            StringBuilder out = new StringBuilder();
+            template.render(out, new FixedSource("BigCo", "Hamlet", value, 0, 0, value), 0);
+            assertEquals(value + " " + value, out.toString());
+        }
+    }
+
+    @Test
+    public void bindsEverySlotToItsOwnValue() throws IOException {
+        StatementTemplate template = StatementTemplate.text(
+                "{customer}|{name}|{seats}|{credits}|{amount}|{total}|{amountCents}|{totalCents}|{seats}");
+        StringBuilder out = new StringBuilder();
+        template.render(out, new FixedSource("BigCo", "Hamlet", 55, 65000, 25, 173000), 0);
+        assertEquals("BigCo|Hamlet|55|25|$650.00|$1,730.00|65000|173000|55", out.toString());
+    }
+
+    @Test
+    public void rendersStatementSlotsWithoutALine() throws IOException {
+        StatementTemplate template = StatementTemplate.compile("{customer} owes {total}", StatementTemplate.Escape.HTML,
+                CurrencyFormatter.UK);
+        StringBuilder out = new StringBuilder();
+        template.render(out, new FixedSource("A&B", "Hamlet", 55, 65000, 25, 173000));
+        assertEquals("A&amp;B owes \u00a31,730.00", out.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLineSlotsWithoutALine() throws IOException {
+        StatementTemplate.text("{name}").render(new StringBuilder(), new FixedSource("BigCo", "Hamlet", 55, 0, 0, 0));
+    }
+
+    @Test
+    public void replacesAHalfSurrogatePairCutOffByALiteral() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Appendable out = new Utf8Appendable(bytes);
+        out.append('\ud83c');
+        out.write("!".getBytes(StandardCharsets.UTF_8));
+        out.append('\udfad');
+        out.flush();
+        assertEquals("?!?", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownSlot() {
+        StatementTemplate.text("{price}");
+    }
+
+    /** A statement with one line item. */
+    private static final class FixedSource implements StatementSource {
+        private final String customer;
+        private final String name;
+        private final int audience;
+        private final int amount;
+        private final int credits;
+        private final int total;
+
+        FixedSource(String customer, String name, int audience, int amount, int credits, int total) {
+            this.customer = customer;
+            this.name = name;
+            this.audience = audience;
+            this.amount = amount;
+            this.credits = credits;
+            this.total = total;
+        }
+
+        @Override
+        public String getCustomer() {
+            return customer;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public String getName(int line) {
+            return name;
+        }
+
+        @Override
+        public int getAudience(int line) {
+            return audience;
+        }
+
+        @Override
+        public int getAmount(int line) {
+            return amount;
+        }
+
+        @Override
+        public int getVolumeCredits(int line) {
+            return credits;
+        }
+
+        @Override
+        public int totalAmount() {
+            return total;
+        }
+
+        @Override
+        public int volumeCredits() {
+            return credits;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package theater;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class TabulatedPricingTests {
+
+    @Test
+    public void tablesMatchFormulasInsideAndOutsideTheRange() {
+        PricingRegistry formulas = PricingRegistry.withBuiltIns();
+        PricingRegistry tables = formulas.tabulated(100);
+        for (String type : formulas.getPlayTypes()) {
+            PricingStrategy formula = formulas.lookup(type);
+            PricingStrategy table = tables.lookup(type);
+            assertEquals(type, table.getPlayType());
+            for (int audience = -10; audience <= 250; audience++) {
+                assertEquals(formula.amountFor(audience), table.amountFor(audience));
+                assertEquals(formula.volumeCreditsFor(audience), table.volumeCreditsFor(audience));
+            }
+        }
+    }
+
+    @Test
+    public void bulkPricingMatchesScalarPricing() {
+        int[] audiences = new int[10000];
+        for (int i = 0; i < audiences.length; i++) {
+            audiences[i] = (i * 31) % 700 - 20;
+        }
+        for (PricingStrategy formula : new PricingStrategy[] {new ComedyCalculator(), new PastoralCalculator()}) {
+            PricingStrategy table = new TabulatedPricing(formula, 500);
+            int[] expectedAmounts = new int[audiences.length];
+            int[] expectedCredits = new int[audiences.length];
+            formula.amountsFor(audiences, expectedAmounts);
+            formula.volumeCreditsFor(audiences, expectedCredits);
+
+            int[] amounts = new int[audiences.length];
+            int[] credits = new int[audiences.length];
+            table.amountsFor(audiences, amounts);
+            table.volumeCreditsFor(audiences, credits);
+
+            assertArrayEquals(expectedAmounts, amounts);
+            assertArrayEquals(expectedCredits, credits);
+            assertEquals(formula.amountFor(audiences[17]), amounts[17]);
+        }
+    }
+
+    @Test
+    public void tabulatedCatalogRendersSameStatement() {
+        Map<String, Play> plays = Map.of("hamlet", new Play("Hamlet", "tragedy"),
+                "as-like", new Play("As You Like It", "comedy"));
+        Invoice invoice = new Invoice("BigCo", List.of(
+                new Performance("hamlet", 55), new Performance("as-like", 35), new Performance("hamlet", 900)));
+        PlayCatalog catalog = PlayCatalog.of(plays, PricingRegistry.withBuiltIns().tabulated(200));
+
+        assertEquals(new StatementPrinter(invoice, plays).statement(),
+                new StatementPrinter(invoice, catalog).statement());
+    }
+}